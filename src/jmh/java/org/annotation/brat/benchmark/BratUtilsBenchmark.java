@@ -0,0 +1,115 @@
+package org.annotation.brat.benchmark;
+
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratSentence;
+import org.annotation.brat.BratUtils;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of {@link BratUtils} and the brat model classes over a {@link SyntheticCorpus}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BratUtilsBenchmark {
+
+    @Param({"1000"})
+    private int sentences;
+
+    @Param({"200"})
+    private int sentenceLength;
+
+    @Param({"5"})
+    private double entityDensity;
+
+    @Param({"0.3"})
+    private double eventRatio;
+
+    @Param({"0.2"})
+    private double relationRatio;
+
+    private SyntheticCorpus corpus;
+
+    private BratDocument document;
+
+    private File outputDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = new SyntheticCorpus(42, sentences, sentenceLength, entityDensity, eventRatio, relationRatio);
+        document = corpus.parse();
+        outputDir = Files.createTempDirectory("brat-benchmark").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(outputDir);
+    }
+
+    @State(Scope.Thread)
+    public static class Undistributed {
+        private BratDocument document;
+
+        private List<BratSentence> sentences;
+
+        @Setup(Level.Invocation)
+        public void setUp(final BratUtilsBenchmark benchmark) {
+            document = benchmark.corpus.parseUndistributed();
+            sentences = benchmark.corpus.sentences();
+        }
+    }
+
+    @Benchmark
+    public BratDocument readAnnotation() {
+        return corpus.parse();
+    }
+
+    @Benchmark
+    public BratDocument distributeAnnotation(final Undistributed state) {
+        BratUtils.distributeAnnotation(state.document, state.sentences);
+        return state.document;
+    }
+
+    @Benchmark
+    public BratDocument generateDocument() {
+        return BratUtils.generateDocument(document.getSentences(), "generated", SyntheticCorpus.SENTENCE_DELIMITER);
+    }
+
+    @Benchmark
+    public String toBratString() {
+        return document.toBratString();
+    }
+
+    @Benchmark
+    public File writeAnnotationConfig() throws IOException {
+        BratUtils.writeAnnotationConfig(List.of(document), outputDir);
+        return outputDir;
+    }
+
+    @Benchmark
+    public Object getEmbedJson() {
+        return document.getEmbedJson();
+    }
+}
@@ -0,0 +1,78 @@
+package org.annotation.brat.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.annotation.brat.BratSentence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.utils.JsonUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JSON-lines reading and writing of {@link BratSentence}s with {@link JsonUtils}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+    @Param({"1000"})
+    private int sentences;
+
+    @Param({"5"})
+    private double entityDensity;
+
+    private List<BratSentence> bratSentences;
+
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bratSentences = new SyntheticCorpus(42, sentences, 200, entityDensity, 0.3, 0.2).parse().getSentences();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonUtils.writeList(out, bratSentences);
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public void writeList() throws IOException {
+        JsonUtils.writeList(OutputStream.nullOutputStream(), bratSentences);
+    }
+
+    @Benchmark
+    public Object writeLines() throws IOException {
+        return JsonUtils.writeLines(OutputStream.nullOutputStream(), bratSentences.iterator());
+    }
+
+    @Benchmark
+    public List<JsonNode> readList() throws IOException {
+        return JsonUtils.readList(new ByteArrayInputStream(json), JsonNode.class);
+    }
+
+    @Benchmark
+    public long readStream() {
+        try (Stream<JsonNode> stream = JsonUtils.readStream(new ByteArrayInputStream(json), JsonNode.class,
+                JsonUtils.ErrorPolicy.FAIL)) {
+            return stream.count();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.annotation.brat.benchmark;
+
+import lombok.Getter;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratSentence;
+import org.annotation.brat.BratUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a reproducible brat document: a text of random words, split into sentences by
+ * {@link #SENTENCE_DELIMITER}, and the lines of its ".ann" file. Events and relations only use entities of their
+ * own sentence, so the whole document can be distributed into sentences.
+ */
+@Getter
+public final class SyntheticCorpus {
+
+    public static final String SENTENCE_DELIMITER = "\n";
+
+    private static final String[] ENTITY_TYPES = {"organization", "person", "location", "date", "money", "product",
+            "position", "trigger"};
+
+    private static final String[] EVENT_TYPES = {"acquisition", "investment", "layoff", "site_closure"};
+
+    private static final String[] ROLES = {"buyer", "seller", "acquired", "date", "location", "trigger"};
+
+    private static final String[] RELATION_TYPES = {"REF", "Test"};
+
+    private static final String[] ATTRIBUTES = {"Negation", "Speculation"};
+
+    private final String text;
+
+    private final List<String> annoLines = new ArrayList<>();
+
+    private final int[] sentenceStarts;
+
+    private final int[] sentenceEnds;
+
+    /**
+     * @param sentences      number of sentences
+     * @param sentenceLength characters per sentence
+     * @param entityDensity  entities per 100 characters
+     * @param eventRatio     events per entity
+     * @param relationRatio  relations per entity
+     */
+    public SyntheticCorpus(final long seed, final int sentences, final int sentenceLength,
+                           final double entityDensity, final double eventRatio, final double relationRatio) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(sentences * (sentenceLength + 1));
+        sentenceStarts = new int[sentences];
+        sentenceEnds = new int[sentences];
+
+        int entityN = 0, eventN = 0, relationN = 0, attributeN = 0;
+        for (int s = 0; s < sentences; s++) {
+            if (s > 0) {
+                sb.append(SENTENCE_DELIMITER);
+            }
+            final int start = sb.length();
+            while (sb.length() - start < sentenceLength) {
+                if (sb.length() > start) {
+                    sb.append(' ');
+                }
+                for (int i = 2 + random.nextInt(8); i > 0; i--) {
+                    sb.append((char) ('a' + random.nextInt(26)));
+                }
+            }
+            final int end = sb.length();
+            sentenceStarts[s] = start;
+            sentenceEnds[s] = end;
+
+            //entities of this sentence
+            int entities = Math.max(1, (int) Math.round((end - start) * entityDensity / 100));
+            int firstEntity = entityN + 1;
+            for (int e = 0; e < entities; e++) {
+                int eStart = start + random.nextInt(end - start - 1);
+                int eEnd = Math.min(end, eStart + 1 + random.nextInt(12));
+                entityN++;
+                annoLines.add("T" + entityN + "\t" + pick(random, ENTITY_TYPES) + " " + eStart + " " + eEnd + "\t"
+                        + sb.substring(eStart, eEnd));
+            }
+
+            for (int e = (int) Math.round(entities * eventRatio); e > 0; e--) {
+                eventN++;
+                StringBuilder line = new StringBuilder("E").append(eventN).append('\t')
+                        .append(pick(random, EVENT_TYPES)).append(":T")
+                        .append(firstEntity + random.nextInt(entities));
+                for (int a = 1 + random.nextInt(3); a > 0; a--) {
+                    line.append(' ').append(pick(random, ROLES)).append(":T")
+                            .append(firstEntity + random.nextInt(entities));
+                }
+                annoLines.add(line.toString());
+                if (random.nextInt(10) == 0) {
+                    attributeN++;
+                    annoLines.add("A" + attributeN + "\t" + pick(random, ATTRIBUTES) + " E" + eventN);
+                }
+            }
+
+            for (int r = (int) Math.round(entities * relationRatio); r > 0; r--) {
+                relationN++;
+                annoLines.add("R" + relationN + "\t" + pick(random, RELATION_TYPES)
+                        + " Arg1:T" + (firstEntity + random.nextInt(entities))
+                        + " Arg2:T" + (firstEntity + random.nextInt(entities)));
+            }
+        }
+        text = sb.toString();
+    }
+
+    /**
+     * @return the parsed document, distributed into sentences
+     */
+    public BratDocument parse() {
+        return BratUtils.readAnnotation("synthetic", text, annoLines, SENTENCE_DELIMITER);
+    }
+
+    /**
+     * @return the parsed document without sentences
+     */
+    public BratDocument parseUndistributed() {
+        return BratUtils.readAnnotation("synthetic", text, annoLines, null);
+    }
+
+    /**
+     * @return empty sentences matching the text
+     */
+    public List<BratSentence> sentences() {
+        List<BratSentence> sentences = new ArrayList<>(sentenceStarts.length);
+        for (int i = 0; i < sentenceStarts.length; i++) {
+            sentences.add(new BratSentence(text.substring(sentenceStarts[i], sentenceEnds[i]), sentenceStarts[i],
+                    sentenceEnds[i], "synthetic_" + sentenceStarts[i]));
+        }
+        return sentences;
+    }
+
+    private static String pick(final Random random, final String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -3,6 +3,8 @@ package org.annotation.brat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.io.IOException;
+
 /**
  * This class ...
  */
@@ -15,6 +17,13 @@ public interface BratAnnotation {
     @JsonIgnore
     String toBratString();
 
+    /**
+     * Writes the same characters as {@link #toBratString()} (no trailing line break), without building the string.
+     */
+    default void writeBrat(Appendable out) throws IOException {
+        out.append(toBratString());
+    }
+
     @JsonIgnore
     JsonNode getEmbedJson();
 }
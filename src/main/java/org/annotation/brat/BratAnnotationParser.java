@@ -0,0 +1,451 @@
+package org.annotation.brat;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single pass parser for brat standoff annotation lines.
+ * <p>
+ * Every line is looked at exactly once and dispatched on its first character ("T", "E", "R", "*", "A").
+ * Entities are built immediately; events, relations and attributes only keep the ids they refer to and are
+ * resolved against the entity table in {@link #finish()}, so forward references are allowed. Lines are tokenized
+ * in place by index arithmetic, no intermediate token arrays are created.
+ * <p>
+ * The lines handed to {@link #accept(CharSequence)} are not retained, callers may reuse a mutable
+ * {@link CharSequence} between calls. A parser instance is not thread safe and is meant for one file.
+ * <p>
+ * Types, roles and attribute names are taken from a {@link BratLabelPool}, which can be shared by the parsers of a
+ * corpus. Parsed lines by kind and rejected lines by reason are added to a {@link BratMetrics} when the parser is
+ * finished.
+ */
+public final class BratAnnotationParser {
+
+    private static final String ARG1 = BratBRelation.DEFAULT_ARG + "1:";
+
+    private static final String ARG2 = BratBRelation.DEFAULT_ARG + "2:";
+
+    private final BratLabelPool labels;
+
+    private final BratMetrics metrics;
+
+    private final long[] lineCounts = new long[BratMetrics.LineKind.values().length];
+
+    private final BratParseResult result = new BratParseResult();
+
+    private final List<PendingEvent> events = new ArrayList<>();
+
+    private final List<PendingRelation> relations = new ArrayList<>();
+
+    private final List<PendingRelation> equivalences = new ArrayList<>();
+
+    private final Map<String, Set<String>> attributes = new HashMap<>();
+
+    private int lineNumber;
+
+    private boolean finished;
+
+    /**
+     * a parser using the {@link BratLabelPool#getDefault() default} label pool
+     */
+    public BratAnnotationParser() {
+        this(BratLabelPool.getDefault());
+    }
+
+    public BratAnnotationParser(@NonNull final BratLabelPool labels) {
+        this(labels, BratMetrics.getDefault());
+    }
+
+    public BratAnnotationParser(@NonNull final BratLabelPool labels, @NonNull final BratMetrics metrics) {
+        this.labels = labels;
+        this.metrics = metrics;
+    }
+
+    public static BratParseResult parse(@NonNull final Iterable<? extends CharSequence> lines) {
+        return parse(lines, BratLabelPool.getDefault());
+    }
+
+    public static BratParseResult parse(@NonNull final Iterable<? extends CharSequence> lines,
+                                        @NonNull final BratLabelPool labels) {
+        BratAnnotationParser parser = new BratAnnotationParser(labels);
+        lines.forEach(parser::accept);
+        return parser.finish();
+    }
+
+    /**
+     * reads the next line of the annotation file, without its line terminator
+     */
+    public void accept(@NonNull final CharSequence line) {
+        if (finished) {
+            throw new IllegalStateException("The parser is already finished");
+        }
+        lineNumber++;
+        if (line.length() == 0) {
+            return;
+        }
+        switch (line.charAt(0)) {
+            case 'T':
+                lineCounts[BratMetrics.LineKind.ENTITY.ordinal()]++;
+                readEntity(line);
+                break;
+            case 'E':
+                lineCounts[BratMetrics.LineKind.EVENT.ordinal()]++;
+                readEvent(line);
+                break;
+            case 'R':
+                lineCounts[BratMetrics.LineKind.RELATION.ordinal()]++;
+                readRelation(line);
+                break;
+            case '*':
+                lineCounts[BratMetrics.LineKind.EQUIVALENCE.ordinal()]++;
+                readEquivalence(line);
+                break;
+            case 'A':
+                lineCounts[BratMetrics.LineKind.ATTRIBUTE.ordinal()]++;
+                readAttribute(line);
+                break;
+            default:
+                //notes and other annotation kinds are not supported
+                lineCounts[BratMetrics.LineKind.OTHER.ordinal()]++;
+        }
+    }
+
+    /**
+     * resolves all references and returns the parsed annotations
+     */
+    public BratParseResult finish() {
+        if (finished) {
+            return result;
+        }
+        finished = true;
+
+        Map<String, BratEntity> entities = result.getEntities();
+        for (PendingEvent pending : events) {
+            BratEntity trigger = entities.get(pending.triggerId);
+            if (null == trigger) {
+                diagnostic(pending.lineNumber, BratParseDiagnostic.Reason.UNKNOWN_TRIGGER, pending.toBratString());
+                continue;
+            }
+            BratEvent event = new BratEvent(pending.type, trigger);
+            event.setId(pending.id);
+            for (int i = 0; i < pending.roles.size(); i++) {
+                BratEntity argument = entities.get(pending.argumentIds.get(i));
+                if (null == argument) {
+                    diagnostic(pending.lineNumber, BratParseDiagnostic.Reason.UNKNOWN_ARGUMENT,
+                            pending.toBratString());
+                    continue;
+                }
+                event.getArgument().add(pending.roles.get(i), argument);
+            }
+            Set<String> eventAttributes = attributes.get(pending.id);
+            if (null != eventAttributes) {
+                event.getAttribute().addAll(eventAttributes);
+            }
+            result.getEvents().add(event);
+        }
+
+        for (PendingRelation pending : relations) {
+            BratEntity arg1 = entities.get(pending.argumentIds.get(0));
+            BratEntity arg2 = entities.get(pending.argumentIds.get(1));
+            if (null == arg1 || null == arg2) {
+                diagnostic(pending.lineNumber, BratParseDiagnostic.Reason.UNKNOWN_ARGUMENT, pending.toBratString());
+                continue;
+            }
+            BratBRelation relation = new BratBRelation(pending.type);
+            relation.setId(pending.id);
+            relation.getArguments().add(arg1);
+            relation.getArguments().add(arg2);
+            result.getRelations().add(relation);
+        }
+
+        for (PendingRelation pending : equivalences) {
+            BratBRelation relation = new BratBRelation(pending.type);
+            relation.setId(pending.id);
+            for (String argumentId : pending.argumentIds) {
+                BratEntity argument = entities.get(argumentId);
+                if (null != argument) {
+                    relation.getArguments().add(argument);
+                }
+            }
+            if (relation.getArguments().size() < 2) {
+                diagnostic(pending.lineNumber, BratParseDiagnostic.Reason.UNKNOWN_ARGUMENT, pending.toBratString());
+                continue;
+            }
+            result.getRelations().add(relation);
+        }
+
+        for (BratMetrics.LineKind kind : BratMetrics.LineKind.values()) {
+            if (lineCounts[kind.ordinal()] > 0) {
+                metrics.addLines(kind, lineCounts[kind.ordinal()]);
+            }
+        }
+        result.getDiagnostics().forEach(d -> metrics.countReject(d.getReason()));
+        return result;
+    }
+
+    // T1	type start end	text
+    // T1	type start end;start end	text
+    private void readEntity(final CharSequence line) {
+        final int end = trimTrailing(line, 0, line.length(), '\t');
+        final int tab1 = indexOf(line, '\t', 0, end);
+        final int tab2 = tab1 < 0 ? -1 : indexOf(line, '\t', tab1 + 1, end);
+        if (tab2 < 0 || indexOf(line, '\t', tab2 + 1, end) >= 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_ENTITY, line);
+            return;
+        }
+
+        final int fieldEnd = trimTrailing(line, tab1 + 1, tab2, ' ');
+        final int space1 = indexOf(line, ' ', tab1 + 1, fieldEnd);
+        final int space2 = space1 < 0 ? -1 : indexOf(line, ' ', space1 + 1, fieldEnd);
+        if (space2 < 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_ENTITY, line);
+            return;
+        }
+        final int lastSpace = lastIndexOf(line, ' ', space2, fieldEnd);
+
+        final int start;
+        final int stop;
+        try {
+            start = Integer.parseInt(line, space1 + 1, space2, 10);
+            stop = Integer.parseInt(line, lastSpace + 1, fieldEnd, 10);
+        } catch (NumberFormatException e) {
+            diagnostic(BratParseDiagnostic.Reason.INVALID_OFFSET, line);
+            return;
+        }
+
+        String id = substring(line, 0, tab1);
+        if (result.getEntities().containsKey(id)) {
+            diagnostic(BratParseDiagnostic.Reason.DUPLICATE_ID, line);
+            return;
+        }
+        BratEntity entity = new BratEntity(labels.intern(line, tab1 + 1, space1), substring(line, tab2 + 1, end));
+        entity.setId(id);
+        entity.setStartPosition(start);
+        entity.setEndPosition(stop);
+        result.getEntities().put(id, entity);
+    }
+
+    // E1	type:T1 role:T2 role:T3
+    private void readEvent(final CharSequence line) {
+        final int end = trimTrailing(line, 0, line.length(), '\t');
+        final int tab = indexOf(line, '\t', 0, end);
+        if (tab < 0 || indexOf(line, '\t', tab + 1, end) >= 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_EVENT, line);
+            return;
+        }
+        final int fieldEnd = trimTrailing(line, tab + 1, end, ' ');
+
+        int tokenEnd = indexOf(line, ' ', tab + 1, fieldEnd);
+        tokenEnd = tokenEnd < 0 ? fieldEnd : tokenEnd;
+        final int triggerColon = argumentColon(line, tab + 1, tokenEnd);
+        if (triggerColon < 0) {
+            diagnostic(BratParseDiagnostic.Reason.UNKNOWN_TRIGGER, line);
+            return;
+        }
+
+        PendingEvent event = new PendingEvent(lineNumber, substring(line, 0, tab),
+                labels.intern(line, tab + 1, triggerColon),
+                substring(line, triggerColon + 1, trimTrailing(line, triggerColon + 1, tokenEnd, ':')));
+
+        int tokenStart = tokenEnd + 1;
+        while (tokenStart < fieldEnd) {
+            tokenEnd = indexOf(line, ' ', tokenStart, fieldEnd);
+            tokenEnd = tokenEnd < 0 ? fieldEnd : tokenEnd;
+            final int colon = argumentColon(line, tokenStart, tokenEnd);
+            if (colon < 0) {
+                diagnostic(BratParseDiagnostic.Reason.MALFORMED_ARGUMENT, line);
+            } else {
+                event.roles.add(labels.intern(line, tokenStart, colon));
+                event.argumentIds.add(substring(line, colon + 1, trimTrailing(line, colon + 1, tokenEnd, ':')));
+            }
+            tokenStart = tokenEnd + 1;
+        }
+        events.add(event);
+    }
+
+    // R1	type Arg1:T1 Arg2:T2
+    private void readRelation(final CharSequence line) {
+        final int end = trimTrailing(line, 0, line.length(), '\t');
+        final int tab = indexOf(line, '\t', 0, end);
+        if (tab < 0 || indexOf(line, '\t', tab + 1, end) >= 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_RELATION, line);
+            return;
+        }
+        final int fieldEnd = trimTrailing(line, tab + 1, end, ' ');
+        final int space1 = indexOf(line, ' ', tab + 1, fieldEnd);
+        final int space2 = space1 < 0 ? -1 : indexOf(line, ' ', space1 + 1, fieldEnd);
+        if (space2 < 0 || indexOf(line, ' ', space2 + 1, fieldEnd) >= 0
+                || !startsWith(line, space1 + 1, ARG1) || !startsWith(line, space2 + 1, ARG2)) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_RELATION, line);
+            return;
+        }
+
+        PendingRelation relation = new PendingRelation(lineNumber, substring(line, 0, tab),
+                labels.intern(line, tab + 1, space1));
+        relation.argumentIds.add(substring(line, space1 + 1 + ARG1.length(), space2));
+        relation.argumentIds.add(substring(line, space2 + 1 + ARG2.length(), fieldEnd));
+        relations.add(relation);
+    }
+
+    // *	type T1 T2 ...
+    private void readEquivalence(final CharSequence line) {
+        final int end = trimTrailing(line, 0, line.length(), '\t');
+        final int tab = indexOf(line, '\t', 0, end);
+        if (tab < 0 || indexOf(line, '\t', tab + 1, end) >= 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_RELATION, line);
+            return;
+        }
+        final int fieldEnd = trimTrailing(line, tab + 1, end, ' ');
+        final int space1 = indexOf(line, ' ', tab + 1, fieldEnd);
+        if (space1 < 0 || indexOf(line, ' ', space1 + 1, fieldEnd) < 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_RELATION, line);
+            return;
+        }
+
+        PendingRelation relation = new PendingRelation(lineNumber, "*", labels.intern(line, tab + 1, space1));
+        int tokenStart = space1 + 1;
+        while (tokenStart < fieldEnd) {
+            int tokenEnd = indexOf(line, ' ', tokenStart, fieldEnd);
+            tokenEnd = tokenEnd < 0 ? fieldEnd : tokenEnd;
+            if (tokenEnd > tokenStart) {
+                relation.argumentIds.add(substring(line, tokenStart, tokenEnd));
+            }
+            tokenStart = tokenEnd + 1;
+        }
+        equivalences.add(relation);
+    }
+
+    // A1	name E1
+    private void readAttribute(final CharSequence line) {
+        final int end = trimTrailing(line, 0, line.length(), '\t');
+        final int tab = indexOf(line, '\t', 0, end);
+        if (tab < 0 || indexOf(line, '\t', tab + 1, end) >= 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_ATTRIBUTE, line);
+            return;
+        }
+        final int fieldEnd = trimTrailing(line, tab + 1, end, ' ');
+        final int space = indexOf(line, ' ', tab + 1, fieldEnd);
+        if (space < 0 || indexOf(line, ' ', space + 1, fieldEnd) >= 0) {
+            diagnostic(BratParseDiagnostic.Reason.MALFORMED_ATTRIBUTE, line);
+            return;
+        }
+        attributes.computeIfAbsent(substring(line, space + 1, fieldEnd), k -> new HashSet<>())
+                .add(labels.intern(line, tab + 1, space));
+    }
+
+    private void diagnostic(final BratParseDiagnostic.Reason reason, final CharSequence line) {
+        diagnostic(lineNumber, reason, line.toString());
+    }
+
+    private void diagnostic(final int lineN, final BratParseDiagnostic.Reason reason, final String line) {
+        result.getDiagnostics().add(new BratParseDiagnostic(lineN, reason, line));
+    }
+
+    /**
+     * @return the position of the single ':' in a "role:id" token, or -1 if the token is not in that form
+     */
+    private static int argumentColon(final CharSequence s, final int from, final int to) {
+        final int end = trimTrailing(s, from, to, ':');
+        final int colon = indexOf(s, ':', from, end);
+        return colon < 0 || indexOf(s, ':', colon + 1, end) >= 0 ? -1 : colon;
+    }
+
+    private static int indexOf(final CharSequence s, final char c, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(final CharSequence s, final char c, final int from, final int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * mirrors {@link String#split(String)}, which drops trailing empty tokens
+     */
+    private static int trimTrailing(final CharSequence s, final int from, final int to, final char c) {
+        int end = to;
+        while (end > from && s.charAt(end - 1) == c) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean startsWith(final CharSequence s, final int from, final String prefix) {
+        if (from + prefix.length() > s.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(from + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String substring(final CharSequence s, final int from, final int to) {
+        return s instanceof String ? ((String) s).substring(from, to) : s.subSequence(from, to).toString();
+    }
+
+    private static final class PendingEvent {
+        private final int lineNumber;
+        private final String id;
+        private final String type;
+        private final String triggerId;
+        private final List<String> roles = new ArrayList<>(4);
+        private final List<String> argumentIds = new ArrayList<>(4);
+
+        private PendingEvent(final int lineNumber, final String id, final String type, final String triggerId) {
+            this.lineNumber = lineNumber;
+            this.id = id;
+            this.type = type;
+            this.triggerId = triggerId;
+        }
+
+        private String toBratString() {
+            StringBuilder sb = new StringBuilder(id).append('\t').append(type).append(':').append(triggerId);
+            for (int i = 0; i < roles.size(); i++) {
+                sb.append(' ').append(roles.get(i)).append(':').append(argumentIds.get(i));
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class PendingRelation {
+        private final int lineNumber;
+        private final String id;
+        private final String type;
+        private final List<String> argumentIds = new ArrayList<>(2);
+
+        private PendingRelation(final int lineNumber, final String id, final String type) {
+            this.lineNumber = lineNumber;
+            this.id = id;
+            this.type = type;
+        }
+
+        private String toBratString() {
+            StringBuilder sb = new StringBuilder(id).append('\t').append(type);
+            for (int i = 0; i < argumentIds.size(); i++) {
+                sb.append(' ');
+                if (!"*".equals(id)) {
+                    sb.append(BratBRelation.getArgName(i)).append(':');
+                }
+                sb.append(argumentIds.get(i));
+            }
+            return sb.toString();
+        }
+    }
+}
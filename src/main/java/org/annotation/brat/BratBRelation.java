@@ -3,14 +3,14 @@ package org.annotation.brat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import lombok.Data;
+import lombok.SneakyThrows;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * This class ...
@@ -41,27 +41,37 @@ public class BratBRelation implements BratAnnotation {
     }
 
     @Override
+    @SneakyThrows(IOException.class)
     public String toBratString() {
-        return id.charAt(0) == '*' ?
-                "*" + "\t" + type + " " + arguments.stream()
-                                                   .map(BratEntity::getId)
-                                                   .collect(Collectors.joining(" "))
-                :
-                getId() + "\t" + type + " " + IntStream.rangeClosed(1, arguments.size())
-                                                       .mapToObj(i -> DEFAULT_ARG + i + ":" + arguments.get(i - 1)
-                                                                                                       .getId())
-                                                       .collect(Collectors.joining(" "));
+        StringBuilder sb = new StringBuilder();
+        writeBrat(sb);
+        return sb.toString();
+    }
+
+    @Override
+    public void writeBrat(Appendable out) throws IOException {
+        final boolean star = id.charAt(0) == '*';
+        out.append(star ? "*" : getId()).append('\t').append(type).append(' ');
+        for (int i = 0; i < arguments.size(); i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            if (!star) {
+                out.append(DEFAULT_ARG).append(Integer.toString(i + 1)).append(':');
+            }
+            out.append(arguments.get(i).getId());
+        }
     }
 
     public JsonNode getEmbedJson() {
-        ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        ArrayNode arrayNode = factory.arrayNode();
         arrayNode.add(getId());
         arrayNode.add(getType());
-        ArrayNode args = mapper.createArrayNode();
+        ArrayNode args = factory.arrayNode();
         arrayNode.add(args);
         for (int i = 0; i < arguments.size(); i++) {
-            args.add(mapper.createArrayNode().add(getArgName(i)).add(arguments.get(i).getId()));
+            args.add(factory.arrayNode().add(getArgName(i)).add(arguments.get(i).getId()));
         }
         return arrayNode;
     }
@@ -0,0 +1,33 @@
+package org.annotation.brat;
+
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * A document of a {@link BratCorpusWatcher} that was added, reparsed or removed.
+ */
+@Data
+public class BratCorpusChange {
+
+    public enum Kind {
+        ADDED,
+        UPDATED,
+        REMOVED
+    }
+
+    @NonNull
+    private final Kind kind;
+
+    @NonNull
+    private final String documentId;
+
+    /**
+     * null if the document was added
+     */
+    private final BratDocument previous;
+
+    /**
+     * null if the document was removed
+     */
+    private final BratDocument document;
+}
@@ -0,0 +1,187 @@
+package org.annotation.brat;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads the ".ann"/".txt" pairs of a brat directory tree concurrently.
+ * <p>
+ * The annotation files are collected up to {@link #getMaxDepth()} directory levels below the input directory and
+ * sorted by path. They are parsed on the configured executor (a fixed pool of {@link #getParallelism()} threads when
+ * none is set) with at most {@code 4 * parallelism} files in flight, and handed to the consumer on the calling
+ * thread in path order, so the output is deterministic and the consumer does not need to be thread safe.
+ */
+@Slf4j
+@Getter
+@Setter
+public class BratCorpusLoader {
+
+    /**
+     * null for documents without sentences
+     */
+    private final BratSentenceSplitter splitter;
+
+    /**
+     * 1 only reads the input directory itself
+     */
+    private int maxDepth = Integer.MAX_VALUE;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * executor used for parsing, it is not shut down by the loader. If null, a pool is created for each load.
+     */
+    private ExecutorService executor;
+
+    /**
+     * labels of the corpus, shared by all files of the loader
+     */
+    private BratLabelPool labelPool = new BratLabelPool();
+
+    /**
+     * if set, unchanged files are taken from the cache instead of being parsed
+     */
+    private BratParseCache cache;
+
+    /**
+     * counts the lines, rejects, documents, stage times and skipped files of the loader
+     */
+    private BratMetrics metrics = BratMetrics.getDefault();
+
+    public BratCorpusLoader(final String lineDelimiter) {
+        this(null == lineDelimiter ? null : BratSentenceSplitter.of(lineDelimiter));
+    }
+
+    public BratCorpusLoader(final BratSentenceSplitter splitter) {
+        this.splitter = splitter;
+    }
+
+    public BratLoadResult load(@NonNull final File inputDir) throws IOException {
+        BratLoadResult result = new BratLoadResult();
+        result.getSkipped().addAll(load(inputDir, result.getDocuments()::add));
+        return result;
+    }
+
+    /**
+     * streams the documents to the consumer without keeping them
+     *
+     * @return the files that were skipped
+     */
+    public List<BratSkippedFile> load(@NonNull final File inputDir,
+                                      @NonNull final Consumer<? super BratDocument> consumer) throws IOException {
+        List<Path> annoFiles = listAnnotationFiles(inputDir.toPath());
+        List<BratSkippedFile> skipped = new ArrayList<>();
+
+        ExecutorService service = null == executor ?
+                Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+                    Thread thread = new Thread(runnable, "brat-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }) : executor;
+        try {
+            final int window = Math.max(1, parallelism) * 4;
+            Deque<Future<Object>> inFlight = new ArrayDeque<>(window);
+            int next = 0;
+            while (next < annoFiles.size() || !inFlight.isEmpty()) {
+                while (next < annoFiles.size() && inFlight.size() < window) {
+                    final Path annoFile = annoFiles.get(next++);
+                    inFlight.add(CompletableFuture.supplyAsync(() -> read(annoFile), service));
+                }
+                Object loaded = await(inFlight.poll());
+                if (loaded instanceof BratSkippedFile) {
+                    BratSkippedFile skippedFile = (BratSkippedFile) loaded;
+                    log.warn("Skipped {}: {}", skippedFile.getAnnoFile(), skippedFile.getMessage());
+                    skipped.add(skippedFile);
+                    metrics.countSkipped(skippedFile.getReason());
+                } else {
+                    consumer.accept((BratDocument) loaded);
+                }
+            }
+        } finally {
+            if (service != executor) {
+                service.shutdownNow();
+            }
+        }
+        if (null != cache) {
+            try {
+                cache.evict();
+            } catch (IOException e) {
+                log.warn("Could not evict entries of the parse cache {}: {}", cache.getDirectory(), e.getMessage());
+            }
+        }
+        return skipped;
+    }
+
+    private List<Path> listAnnotationFiles(final Path inputDir) throws IOException {
+        try (Stream<Path> paths = Files.walk(inputDir, maxDepth)) {
+            return paths.filter(p -> p.getFileName().toString().endsWith(BratUtils.ANNO_FILE_EXTENSION))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return the document or a {@link BratSkippedFile}
+     */
+    private Object read(final Path annoPath) {
+        File annoFile = annoPath.toFile();
+        String fileName = annoFile.getName();
+        String id = fileName.substring(0, fileName.length() - BratUtils.ANNO_FILE_EXTENSION.length());
+        File textFile = new File(annoFile.getParentFile(), id + BratUtils.TEXT_FILE_EXTENSION);
+        if (!textFile.exists()) {
+            return new BratSkippedFile(annoFile, BratSkippedFile.Reason.MISSING_TEXT,
+                    "File " + textFile.getName() + " does not exist!");
+        }
+        log.debug("Reading from {}", fileName);
+
+        BratDocument document;
+        try {
+            document = null == cache ?
+                    BratUtils.readAnnotation(id, textFile.toPath(), annoPath, splitter, labelPool, metrics) :
+                    cache.read(id, textFile.toPath(), annoPath, splitter, labelPool, metrics);
+        } catch (IOException | UncheckedIOException e) {
+            return new BratSkippedFile(annoFile, BratSkippedFile.Reason.READ_ERROR, e.getMessage());
+        }
+        if (!document.getEvents().isEmpty() || !document.getEntities().isEmpty()) {
+            return new BratSkippedFile(annoFile, BratSkippedFile.Reason.CROSS_SENTENCE_ANNOTATIONS,
+                    "There are events or nes among sentences!");
+        }
+        return document;
+    }
+
+    private static Object await(final Future<Object> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading brat files", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
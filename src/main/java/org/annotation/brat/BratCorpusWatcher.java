@@ -0,0 +1,264 @@
+package org.annotation.brat;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the documents of a brat directory in memory and reloads them while the files are edited.
+ * <p>
+ * {@link #start()} loads the ".ann"/".txt" pairs of the directory and watches it with a {@link WatchService}. Events of
+ * a pair are debounced: the pair is reparsed with {@link BratUtils#readAnnotation} once no event arrived for
+ * {@link #getDebounceMillis()}, and the new document replaces the old one in a concurrent map, so readers see either
+ * version but never a partially parsed one. Listeners get a {@link BratCorpusChange} for every swap, on the single
+ * reloading thread and in the order of the swaps. A pair that can not be parsed keeps its last document. Only the
+ * directory itself is watched, not its subdirectories.
+ */
+@Slf4j
+public class BratCorpusWatcher implements Closeable {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private final Path directory;
+
+    private final String lineDelimiter;
+
+    private final long debounceMillis;
+
+    private final BratLabelPool labelPool = new BratLabelPool();
+
+    private final Map<String, BratDocument> documents = new ConcurrentHashMap<>();
+
+    private final List<Consumer<? super BratCorpusChange>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * pending reloads by document id, only used on the scheduler thread
+     */
+    private final Map<String, ScheduledFuture<?>> pending = new HashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "brat-watcher-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WatchService watchService;
+
+    private Thread watchThread;
+
+    public BratCorpusWatcher(@NonNull final File directory, final String lineDelimiter) {
+        this(directory, lineDelimiter, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public BratCorpusWatcher(@NonNull final File directory, final String lineDelimiter, final long debounceMillis) {
+        this.directory = directory.toPath().toAbsolutePath().normalize();
+        this.lineDelimiter = lineDelimiter;
+        this.debounceMillis = debounceMillis;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    public void addListener(@NonNull final Consumer<? super BratCorpusChange> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NonNull final Consumer<? super BratCorpusChange> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the current document, or null
+     */
+    public BratDocument getDocument(@NonNull final String id) {
+        return documents.get(id);
+    }
+
+    /**
+     * @return a live, unmodifiable view of the documents by id
+     */
+    public Map<String, BratDocument> getDocuments() {
+        return Collections.unmodifiableMap(documents);
+    }
+
+    /**
+     * Registers the watch before loading the directory, so no edit made during the load is lost. The initial documents
+     * are not reported to the listeners.
+     */
+    public synchronized void start() throws IOException {
+        if (null != watchService) {
+            throw new IllegalStateException("The watcher of " + directory + " is already started");
+        }
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        for (String id : listDocumentIds()) {
+            BratDocument document = read(id);
+            if (null != document) {
+                documents.put(id, document);
+            }
+        }
+        watchThread = new Thread(this::watch, "brat-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        log.warn("Lost events of {}, rescanning it", directory);
+                        scheduler.execute(this::rescan);
+                    } else {
+                        String id = getDocumentId(((Path) event.context()).getFileName().toString());
+                        if (null != id) {
+                            scheduler.execute(() -> schedule(id));
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("The brat directory {} is no longer watched", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException | RejectedExecutionException e) {
+            //closed
+        }
+    }
+
+    /**
+     * restarts the debounce delay of the document
+     */
+    private void schedule(final String id) {
+        ScheduledFuture<?> previous = pending.put(id, scheduler.schedule(() -> {
+            pending.remove(id);
+            reload(id);
+        }, debounceMillis, TimeUnit.MILLISECONDS));
+        if (null != previous) {
+            previous.cancel(false);
+        }
+    }
+
+    private void rescan() {
+        Set<String> ids;
+        try {
+            ids = listDocumentIds();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not list {}: {}", directory, e.getMessage());
+            return;
+        }
+        ids.addAll(documents.keySet());
+        ids.forEach(this::schedule);
+    }
+
+    private void reload(final String id) {
+        final BratDocument document;
+        if (Files.exists(directory.resolve(id + BratUtils.ANNO_FILE_EXTENSION))) {
+            document = read(id);
+            if (null == document) {
+                return;
+            }
+        } else {
+            document = null;
+        }
+
+        final BratDocument previous = null == document ? documents.remove(id) : documents.put(id, document);
+        if (null == document && null == previous) {
+            return;
+        }
+        BratCorpusChange.Kind kind = null == previous ? BratCorpusChange.Kind.ADDED :
+                null == document ? BratCorpusChange.Kind.REMOVED : BratCorpusChange.Kind.UPDATED;
+        log.debug("{} {}", kind, id);
+        BratCorpusChange change = new BratCorpusChange(kind, id, previous, document);
+        for (Consumer<? super BratCorpusChange> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                log.warn("Listener failed on {} of {}", kind, id, e);
+            }
+        }
+    }
+
+    /**
+     * @return the document, or null if the pair is incomplete or unreadable
+     */
+    private BratDocument read(final String id) {
+        Path annoFile = directory.resolve(id + BratUtils.ANNO_FILE_EXTENSION);
+        Path textFile = directory.resolve(id + BratUtils.TEXT_FILE_EXTENSION);
+        if (!Files.exists(textFile)) {
+            log.warn("File {} does not exist!", textFile);
+            return null;
+        }
+        try {
+            return BratUtils.readAnnotation(id, textFile, annoFile, lineDelimiter, labelPool);
+        } catch (IOException | UncheckedIOException e) {
+            //most likely still being written, the next event reloads it
+            log.warn("Could not read {}: {}", annoFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private Set<String> listDocumentIds() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(BratUtils.ANNO_FILE_EXTENSION))
+                    .map(BratCorpusWatcher::getDocumentId)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * @return the id of a ".ann" or ".txt" file, null for other files
+     */
+    private static String getDocumentId(final String fileName) {
+        for (String extension : new String[]{BratUtils.ANNO_FILE_EXTENSION, BratUtils.TEXT_FILE_EXTENSION}) {
+            if (fileName.endsWith(extension) && fileName.length() > extension.length()) {
+                return fileName.substring(0, fileName.length() - extension.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * stops watching, pending reloads are dropped
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        scheduler.shutdownNow();
+        if (null != watchService) {
+            watchService.close();
+            watchThread.interrupt();
+        }
+    }
+}
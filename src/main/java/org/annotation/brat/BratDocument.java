@@ -3,17 +3,17 @@ package org.annotation.brat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.Data;
 import lombok.NonNull;
+import lombok.SneakyThrows;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -64,38 +64,65 @@ public class BratDocument implements BratAnnotation {
                 getRelations().stream()).collect(Collectors.toList());
     }
 
+    /**
+     * @see BratEmbedWriter
+     */
     public JsonNode getEmbedJson() {
-        ObjectMapper mapper = new ObjectMapper();
-        ObjectNode node = mapper.createObjectNode();
-        node.put("text", getText());
+        return BratEmbedWriter.toJsonNode(this);
+    }
 
-        ArrayNode entityNode = mapper.createArrayNode();
-        getAllEntities().forEach(e -> entityNode.add(e.getEmbedJson()));
-        node.set("entities", entityNode);
+    @Override
+    @SneakyThrows(IOException.class)
+    public String toBratString() {
+        StringBuilder sb = new StringBuilder();
+        writeBrat(sb);
+        return sb.toString();
+    }
 
-        ArrayNode relationNode = mapper.createArrayNode();
-        getAllRelations().forEach(r -> relationNode.add(r.getEmbedJson()));
-        node.set("relations", relationNode);
+    /**
+     * Writes entities, events, relations and attributes, one per line, without copying the annotation lists.
+     */
+    @Override
+    public void writeBrat(Appendable out) throws IOException {
+        List<String> attributeList = new ArrayList<>();
+        boolean first = true;
+        for (BratEntity entity : iterate(BratSentence::getEntities, entities)) {
+            first = newLine(out, first);
+            entity.writeBrat(out);
+        }
+        for (BratEvent event : iterate(BratSentence::getEvents, events)) {
+            first = newLine(out, first);
+            event.writeBrat(out);
+            event.getAttribute().forEach(a -> attributeList.add(a + " " + event.getId()));
+        }
+        for (BratBRelation relation : iterate(BratSentence::getRelations, relations)) {
+            first = newLine(out, first);
+            relation.writeBrat(out);
+        }
+        Collections.sort(attributeList);
+        for (int i = 0; i < attributeList.size(); i++) {
+            first = newLine(out, first);
+            out.append(BratAnnotation.ATTRIBUTE_ID_PREFIX).append(Integer.toString(i + 1)).append('\t')
+               .append(attributeList.get(i));
+        }
+    }
 
-        //TODO: added json for events and attributes. added test cases!
-        return node;
+    private static boolean newLine(final Appendable out, final boolean first) throws IOException {
+        if (!first) {
+            out.append('\n');
+        }
+        return false;
     }
 
-    @Override
-    public String toBratString() {
-        List<String> attributeList = getAllEvents().stream()
-                                                   .flatMap(e -> e.getAttribute().stream()
-                                                                  .map(a -> a + " " + e.getId()))
-                                                   .sorted()
-                                                   .collect(Collectors.toList());
-
-        return Stream.of(getAllEntities().stream().map(BratEntity::toBratString),
-                         getAllEvents().stream().map(BratEvent::toBratString),
-                         getAllRelations().stream().map(BratBRelation::toBratString),
-                         IntStream.rangeClosed(1, attributeList.size())
-                                  .mapToObj(i -> BratAnnotation.ATTRIBUTE_ID_PREFIX
-                                          + i + "\t" + attributeList.get(i - 1)))
-                     .flatMap(s -> s)
-                     .collect(Collectors.joining("\n"));
+    /**
+     * the annotations of all sentences followed by the document level ones, like {@link #getAllEntities()}
+     */
+    private <T> Iterable<T> iterate(final Function<BratSentence, List<T>> sentenceAnnotations,
+                                    final List<T> documentAnnotations) {
+        if (null == sentences || sentences.isEmpty()) {
+            return documentAnnotations;
+        }
+        return () -> Stream.concat(sentences.stream().map(sentenceAnnotations).flatMap(Collection::stream),
+                                   documentAnnotations.stream()).iterator();
     }
 }
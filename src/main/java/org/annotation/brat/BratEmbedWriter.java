@@ -0,0 +1,239 @@
+package org.annotation.brat;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Writes brat documents in the "docData" format of the brat embedding API:
+ * <pre>
+ * {"text": "...",
+ *  "entities": [["T1", "type", [[start, end]]], ...],
+ *  "triggers": [["T2", "type", [[start, end]]], ...],
+ *  "attributes": [["A1", "name", "E1"], ...],
+ *  "relations": [["R1", "type", [["Arg1", "T1"], ["Arg2", "T3"]]], ...],
+ *  "equivs": [["*", "type", "T1", "T3"], ...],
+ *  "events": [["E1", "T2", [["role", "T1"], ...]], ...]}
+ * </pre>
+ * Entities that are used as event triggers are written as triggers. Everything is streamed to a
+ * {@link JsonGenerator} created from one shared (thread safe) factory, no intermediate tree is built.
+ */
+public final class BratEmbedWriter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    private BratEmbedWriter() {
+
+    }
+
+    public static void write(@NonNull final BratDocument document, @NonNull final Writer writer) throws IOException {
+        try (JsonGenerator generator = createGenerator(writer)) {
+            write(document, generator);
+        }
+    }
+
+    /**
+     * writes the documents as one JSON array
+     */
+    public static void writeAll(@NonNull final Iterable<? extends BratDocument> documents,
+                                @NonNull final Writer writer) throws IOException {
+        try (JsonGenerator generator = createGenerator(writer)) {
+            generator.writeStartArray();
+            for (BratDocument document : documents) {
+                write(document, generator);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * writes one document per line
+     */
+    public static void writeLines(@NonNull final Iterable<? extends BratDocument> documents,
+                                  @NonNull final Writer writer) throws IOException {
+        try (JsonGenerator generator = createGenerator(writer)) {
+            for (BratDocument document : documents) {
+                write(document, generator);
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    public static void write(@NonNull final BratDocument document,
+                             @NonNull final JsonGenerator generator) throws IOException {
+        Set<BratEntity> triggers = Collections.newSetFromMap(new IdentityHashMap<>());
+        forEach(document, BratSentence::getEvents, BratDocument::getEvents, e -> triggers.add(e.getTrigger()));
+
+        generator.writeStartObject();
+        generator.writeStringField("text", document.getText());
+
+        generator.writeArrayFieldStart("entities");
+        forEach(document, BratSentence::getEntities, BratDocument::getEntities, e -> {
+            if (!triggers.contains(e)) {
+                write(e, generator);
+            }
+        });
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("triggers");
+        forEach(document, BratSentence::getEntities, BratDocument::getEntities, e -> {
+            if (triggers.contains(e)) {
+                write(e, generator);
+            }
+        });
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("attributes");
+        List<String[]> attributes = new ArrayList<>();
+        forEach(document, BratSentence::getEvents, BratDocument::getEvents,
+                e -> e.getAttribute().forEach(a -> attributes.add(new String[]{a, e.getId()})));
+        //numbered as in BratDocument#toBratString, names and ids hold no characters sorting before the space
+        attributes.sort(Comparator.<String[], String>comparing(a -> a[0]).thenComparing(a -> a[1]));
+        for (int i = 0; i < attributes.size(); i++) {
+            generator.writeStartArray();
+            generator.writeString(BratAnnotation.ATTRIBUTE_ID_PREFIX + (i + 1));
+            generator.writeString(attributes.get(i)[0]);
+            generator.writeString(attributes.get(i)[1]);
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("relations");
+        forEach(document, BratSentence::getRelations, BratDocument::getRelations, r -> {
+            if (!isEquivalence(r)) {
+                write(r, generator);
+            }
+        });
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("equivs");
+        forEach(document, BratSentence::getRelations, BratDocument::getRelations, r -> {
+            if (isEquivalence(r)) {
+                write(r, generator);
+            }
+        });
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("events");
+        forEach(document, BratSentence::getEvents, BratDocument::getEvents, e -> write(e, generator));
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+    }
+
+    public static void write(@NonNull final BratEntity entity, @NonNull final JsonGenerator generator)
+            throws IOException {
+        generator.writeStartArray();
+        generator.writeString(entity.getId());
+        generator.writeString(entity.getType());
+        generator.writeStartArray();
+        generator.writeStartArray();
+        generator.writeNumber(entity.getStartPosition());
+        generator.writeNumber(entity.getEndPosition());
+        generator.writeEndArray();
+        generator.writeEndArray();
+        generator.writeEndArray();
+    }
+
+    /**
+     * "*" relations are written in the "equivs" form
+     */
+    public static void write(@NonNull final BratBRelation relation, @NonNull final JsonGenerator generator)
+            throws IOException {
+        generator.writeStartArray();
+        generator.writeString(relation.getId());
+        generator.writeString(relation.getType());
+        if (isEquivalence(relation)) {
+            for (BratEntity argument : relation.getArguments()) {
+                generator.writeString(argument.getId());
+            }
+        } else {
+            generator.writeStartArray();
+            for (int i = 0; i < relation.getArguments().size(); i++) {
+                generator.writeStartArray();
+                generator.writeString(BratBRelation.getArgName(i));
+                generator.writeString(relation.getArguments().get(i).getId());
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+    }
+
+    public static void write(@NonNull final BratEvent event, @NonNull final JsonGenerator generator)
+            throws IOException {
+        generator.writeStartArray();
+        generator.writeString(event.getId());
+        generator.writeString(event.getTrigger().getId());
+        generator.writeStartArray();
+        BratEventArguments arguments = event.getArgument();
+        for (int i = 0; i < arguments.size(); i++) {
+            generator.writeStartArray();
+            generator.writeString(arguments.getRole(i));
+            generator.writeString(arguments.getEntity(i).getId());
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+        generator.writeEndArray();
+    }
+
+    /**
+     * for the tree based {@link BratAnnotation#getEmbedJson()}
+     */
+    static JsonNode toJsonNode(@NonNull final BratDocument document) {
+        try (TokenBuffer buffer = new TokenBuffer(MAPPER, false)) {
+            write(document, buffer);
+            return MAPPER.readTree(buffer.asParser());
+        } catch (IOException e) {
+            //the token buffer lives in memory only
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonGenerator createGenerator(final Writer writer) throws IOException {
+        JsonGenerator generator = FACTORY.createGenerator(writer).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        //no space between root values, writeLines separates them by newlines
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private static boolean isEquivalence(final BratBRelation relation) {
+        return null != relation.getId() && relation.getId().startsWith("*");
+    }
+
+    private static <T> void forEach(final BratDocument document,
+                                    final Function<BratSentence, List<T>> sentenceAnnotations,
+                                    final Function<BratDocument, List<T>> documentAnnotations,
+                                    final IOConsumer<T> consumer) throws IOException {
+        if (null != document.getSentences()) {
+            for (BratSentence sentence : document.getSentences()) {
+                for (T annotation : sentenceAnnotations.apply(sentence)) {
+                    consumer.accept(annotation);
+                }
+            }
+        }
+        for (T annotation : documentAnnotations.apply(document)) {
+            consumer.accept(annotation);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+}
@@ -3,10 +3,13 @@ package org.annotation.brat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import lombok.Data;
 import lombok.NonNull;
+import lombok.SneakyThrows;
+
+import java.io.IOException;
 
 @Data
 public class BratEntity implements BratAnnotation {
@@ -25,8 +28,18 @@ public class BratEntity implements BratAnnotation {
     private int endPosition;
 
     @Override
+    @SneakyThrows(IOException.class)
     public String toBratString() {
-        return id + "\t" + type + " " + startPosition + " " + endPosition + "\t" + text;
+        StringBuilder sb = new StringBuilder();
+        writeBrat(sb);
+        return sb.toString();
+    }
+
+    @Override
+    public void writeBrat(Appendable out) throws IOException {
+        out.append(id).append('\t').append(type).append(' ')
+           .append(Integer.toString(startPosition)).append(' ').append(Integer.toString(endPosition))
+           .append('\t').append(text);
     }
 
     @JsonIgnore
@@ -40,11 +53,11 @@ public class BratEntity implements BratAnnotation {
 
     @Override
     public JsonNode getEmbedJson(){
-        ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        ArrayNode arrayNode = factory.arrayNode();
         arrayNode.add(getId());
         arrayNode.add(getType());
-        arrayNode.add(mapper.createArrayNode().add(mapper.createArrayNode().add(startPosition).add(endPosition)));
+        arrayNode.add(factory.arrayNode().add(factory.arrayNode().add(startPosition).add(endPosition)));
         return arrayNode;
     }
 }
\ No newline at end of file
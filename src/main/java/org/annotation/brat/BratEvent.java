@@ -3,18 +3,25 @@ package org.annotation.brat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
+import lombok.SneakyThrows;
+import lombok.ToString;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.io.IOException;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
- * This class ...
+ * An event: a trigger entity with role arguments and attributes.
+ * <p>
+ * The span, from the first start to the last end of trigger and arguments, is computed once and cached. Changing the
+ * arguments invalidates it; after moving the trigger or argument entities, {@link #invalidateSpan()} must be called.
  */
 @Data
 public class BratEvent implements BratAnnotation {
@@ -25,10 +32,10 @@ public class BratEvent implements BratAnnotation {
     private final BratEntity trigger;
 
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
-    private final Map<String, BratEntity> argument = new HashMap<>();
+    private final BratEventArguments argument = new BratEventArguments(this);
 
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
-    private final Set<String> attribute = new HashSet<>();
+    private final Set<String> attribute = new BratEventAttributes();
 
 
     private String id;
@@ -37,20 +44,57 @@ public class BratEvent implements BratAnnotation {
 
     private String annotator;
 
+    /**
+     * start in the high and end in the low 32 bits, {@link #UNKNOWN_SPAN} until computed
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    private volatile long span = UNKNOWN_SPAN;
+
+    private static final long UNKNOWN_SPAN = Long.MIN_VALUE;
+
     @JsonIgnore
     public int getStartPosition() {
-        return Stream.concat(argument.values().stream(), Stream.of(trigger))
-                     .mapToInt(BratEntity::getStartPosition)
-                     .min()
-                     .orElse(-1);
+        return (int) (getSpan() >> 32);
     }
 
     @JsonIgnore
     public int getEndPosition() {
-        return Stream.concat(argument.values().stream(), Stream.of(trigger))
-                     .mapToInt(BratEntity::getEndPosition)
-                     .max()
-                     .orElse(-1);
+        return (int) getSpan();
+    }
+
+    /**
+     * drops the cached span, to be called after the trigger or an argument entity was moved
+     */
+    public void invalidateSpan() {
+        span = UNKNOWN_SPAN;
+    }
+
+    private long getSpan() {
+        long s = span;
+        if (s == UNKNOWN_SPAN) {
+            int start = Integer.MAX_VALUE, end = Integer.MIN_VALUE;
+            if (null != trigger) {
+                start = trigger.getStartPosition();
+                end = trigger.getEndPosition();
+            }
+            for (int i = 0; i < argument.size(); i++) {
+                BratEntity entity = argument.getEntity(i);
+                if (null != entity) {
+                    start = Math.min(start, entity.getStartPosition());
+                    end = Math.max(end, entity.getEndPosition());
+                }
+            }
+            if (start > end) {
+                start = end = -1;
+            }
+            s = ((long) start << 32) | (end & 0xFFFFFFFFL);
+            span = s;
+        }
+        return s;
     }
 
     @JsonIgnore
@@ -63,18 +107,34 @@ public class BratEvent implements BratAnnotation {
     }
 
     @Override
+    @SneakyThrows(IOException.class)
     public String toBratString() {
+        StringBuilder sb = new StringBuilder();
+        writeBrat(sb);
+        return sb.toString();
+    }
 
-        return getId() + "\t" + type + ":" + trigger.getId() + " "
-                + getArgument().entrySet()
-                               .stream().map(entry -> entry.getKey() + ":" + entry.getValue().getId())
-                               .collect(Collectors.joining(" "));
+    @Override
+    public void writeBrat(Appendable out) throws IOException {
+        out.append(getId()).append('\t').append(type).append(':').append(trigger.getId()).append(' ');
+        for (int i = 0; i < argument.size(); i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(argument.getRole(i)).append(':').append(argument.getEntity(i).getId());
+        }
     }
 
     @Override
     public JsonNode getEmbedJson(){
-        //TODO:
-        return null;
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        ArrayNode arrayNode = factory.arrayNode();
+        arrayNode.add(getId());
+        arrayNode.add(trigger.getId());
+        ArrayNode args = factory.arrayNode();
+        arrayNode.add(args);
+        argument.forEach((role, entity) -> args.add(factory.arrayNode().add(role).add(entity.getId())));
+        return arrayNode;
     }
 
 }
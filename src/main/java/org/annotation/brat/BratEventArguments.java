@@ -0,0 +1,403 @@
+package org.annotation.brat;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The arguments of a {@link BratEvent}: (role, entity) pairs in the order they were added.
+ * <p>
+ * A role may occur several times, as in "Theme:T1 Theme:T2". The pairs are kept in two small arrays that are only
+ * allocated for the first argument, so events do not carry a hash table each; lookups by role scan the few arguments.
+ * Every change invalidates the cached span of the event.
+ * <p>
+ * Equality ignores the order, as it did when the arguments were a map: arguments are equal if they hold the same
+ * (role, entity) pairs as a multiset. As JSON, the arguments are an object from role to entity. Keys must be unique
+ * there, so a repeated role is numbered as brat does in its own files: "Theme", "Theme2", "Theme3", skipping names
+ * that are used by other roles.
+ * <p>
+ * The arguments used to be a {@code Map<String, BratEntity>}. {@link #asMap()} is a read-only map view with the first
+ * entity of every role, and {@link #containsKey(Object)}, {@link #keySet()}, {@link #values()} and
+ * {@link #entrySet()} read that view, so code written against the map keeps working for events without repeated roles.
+ */
+@JsonSerialize(using = BratEventArguments.Serializer.class)
+public final class BratEventArguments implements Iterable<Map.Entry<String, BratEntity>> {
+
+    private static final String[] NO_ROLES = new String[0];
+
+    private static final BratEntity[] NO_ENTITIES = new BratEntity[0];
+
+    private final BratEvent event;
+
+    private String[] roles = NO_ROLES;
+
+    private BratEntity[] entities = NO_ENTITIES;
+
+    private int size;
+
+    BratEventArguments(final BratEvent event) {
+        this.event = event;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getRole(final int i) {
+        return roles[Objects.checkIndex(i, size)];
+    }
+
+    public BratEntity getEntity(final int i) {
+        return entities[Objects.checkIndex(i, size)];
+    }
+
+    /**
+     * @return the first entity of the role, or null
+     */
+    public BratEntity get(@NonNull final String role) {
+        final int i = indexOf(role);
+        return i < 0 ? null : entities[i];
+    }
+
+    /**
+     * @return the entities of the role, in order
+     */
+    public List<BratEntity> getAll(@NonNull final String role) {
+        List<BratEntity> all = new ArrayList<>(1);
+        for (int i = 0; i < size; i++) {
+            if (role.equals(roles[i])) {
+                all.add(entities[i]);
+            }
+        }
+        return all;
+    }
+
+    public boolean containsRole(@NonNull final String role) {
+        return indexOf(role) >= 0;
+    }
+
+    /**
+     * @return the first entity of the role, or the default
+     */
+    public BratEntity getOrDefault(@NonNull final String role, final BratEntity defaultEntity) {
+        final int i = indexOf(role);
+        return i < 0 ? defaultEntity : entities[i];
+    }
+
+    public boolean containsKey(final Object role) {
+        return role instanceof String && indexOf((String) role) >= 0;
+    }
+
+    /**
+     * @return the roles in order of their first argument, a read-only view
+     */
+    public Set<String> keySet() {
+        return asMap().keySet();
+    }
+
+    /**
+     * @return the first entity of every role, a read-only view. {@link #getEntities()} has all of them
+     */
+    public Collection<BratEntity> values() {
+        return asMap().values();
+    }
+
+    /**
+     * @return role -> first entity of the role, a read-only view
+     */
+    public Set<Map.Entry<String, BratEntity>> entrySet() {
+        return asMap().entrySet();
+    }
+
+    /**
+     * @return a read-only view as a map from every role to its first entity, in order of the first argument of each
+     * role. It reflects later changes of the arguments.
+     */
+    public Map<String, BratEntity> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public Set<Entry<String, BratEntity>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, BratEntity>> iterator() {
+                        return new Iterator<>() {
+                            private int next = nextFirst(0);
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < size;
+                            }
+
+                            @Override
+                            public Entry<String, BratEntity> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                final int i = next;
+                                next = nextFirst(i + 1);
+                                return new SimpleImmutableEntry<>(roles[i], entities[i]);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        int roleCount = 0;
+                        for (int i = nextFirst(0); i < size; i = nextFirst(i + 1)) {
+                            roleCount++;
+                        }
+                        return roleCount;
+                    }
+                };
+            }
+
+            @Override
+            public BratEntity get(final Object role) {
+                return role instanceof String ? BratEventArguments.this.get((String) role) : null;
+            }
+
+            @Override
+            public boolean containsKey(final Object role) {
+                return BratEventArguments.this.containsKey(role);
+            }
+        };
+    }
+
+    /**
+     * @return the first index from the given one on whose role does not occur before it, size if there is none
+     */
+    private int nextFirst(final int from) {
+        int i = from;
+        while (i < size && indexOf(roles[i]) != i) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return all entities, in order
+     */
+    public List<BratEntity> getEntities() {
+        return Collections.unmodifiableList(Arrays.asList(entities).subList(0, size));
+    }
+
+    /**
+     * adds an argument, also if the role is already used
+     */
+    public void add(@NonNull final String role, final BratEntity entity) {
+        if (size == roles.length) {
+            final int capacity = Math.max(2, size * 2);
+            roles = Arrays.copyOf(roles, capacity);
+            entities = Arrays.copyOf(entities, capacity);
+        }
+        roles[size] = role;
+        entities[size] = entity;
+        size++;
+        event.invalidateSpan();
+    }
+
+    /**
+     * replaces the entity of the first argument of the role, or adds an argument
+     *
+     * @return the replaced entity, or null
+     */
+    public BratEntity put(@NonNull final String role, final BratEntity entity) {
+        final int i = indexOf(role);
+        if (i < 0) {
+            add(role, entity);
+            return null;
+        }
+        BratEntity previous = entities[i];
+        entities[i] = entity;
+        event.invalidateSpan();
+        return previous;
+    }
+
+    /**
+     * removes all arguments of the role
+     *
+     * @return whether there was one
+     */
+    public boolean remove(@NonNull final String role) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!role.equals(roles[i])) {
+                roles[kept] = roles[i];
+                entities[kept] = entities[i];
+                kept++;
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+        Arrays.fill(roles, kept, size, null);
+        Arrays.fill(entities, kept, size, null);
+        size = kept;
+        event.invalidateSpan();
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(roles, 0, size, null);
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+        event.invalidateSpan();
+    }
+
+    public void forEach(@NonNull final BiConsumer<? super String, ? super BratEntity> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(roles[i], entities[i]);
+        }
+    }
+
+    private int indexOf(final String role) {
+        for (int i = 0; i < size; i++) {
+            if (role.equals(roles[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, BratEntity>> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Map.Entry<String, BratEntity> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int i = next++;
+                return new AbstractMap.SimpleImmutableEntry<>(roles[i], entities[i]);
+            }
+        };
+    }
+
+    /**
+     * equal to arguments with the same pairs in any order
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BratEventArguments)) {
+            return false;
+        }
+        BratEventArguments other = (BratEventArguments) o;
+        if (size != other.size) {
+            return false;
+        }
+        //events have very few arguments, match every pair to an unused pair of the other
+        boolean[] matched = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int j = 0;
+            while (j < size && (matched[j] || !roles[i].equals(other.roles[j])
+                    || !Objects.equals(entities[i], other.entities[j]))) {
+                j++;
+            }
+            if (j == size) {
+                return false;
+            }
+            matched[j] = true;
+        }
+        return true;
+    }
+
+    /**
+     * the hash code of a map with the same pairs, it does not depend on the order
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash += roles[i].hashCode() ^ Objects.hashCode(entities[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * @return the JSON key of every argument, repeated roles numbered from 2 on
+     */
+    String[] getUniqueRoles() {
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            String name = roles[i];
+            for (int n = 2; contains(names, i, name) || (!name.equals(roles[i]) && indexOf(name) >= 0); n++) {
+                name = roles[i] + n;
+            }
+            names[i] = name;
+        }
+        return names;
+    }
+
+    private static boolean contains(final String[] names, final int length, final String name) {
+        for (int i = 0; i < length; i++) {
+            if (name.equals(names[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            sb.append(i > 0 ? ", " : "").append(roles[i]).append('=').append(entities[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+    static final class Serializer extends StdSerializer<BratEventArguments> {
+
+        Serializer() {
+            super(BratEventArguments.class);
+        }
+
+        @Override
+        public boolean isEmpty(final SerializerProvider provider, final BratEventArguments value) {
+            return value.isEmpty();
+        }
+
+        @Override
+        public void serialize(final BratEventArguments value, final JsonGenerator generator,
+                              final SerializerProvider provider) throws IOException {
+            String[] names = value.getUniqueRoles();
+            generator.writeStartObject();
+            for (int i = 0; i < value.size; i++) {
+                generator.writeFieldName(names[i]);
+                provider.defaultSerializeValue(value.entities[i], generator);
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.annotation.brat;
+
+import lombok.NonNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The attribute names of a {@link BratEvent}. Events have none or very few attributes, so the names are kept in an
+ * array that is only allocated for the first one and searched linearly, instead of a hash table per event.
+ */
+final class BratEventAttributes extends AbstractSet<String> {
+
+    private static final String[] NONE = new String[0];
+
+    private String[] names = NONE;
+
+    private int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean add(@NonNull final String name) {
+        if (indexOf(name) >= 0) {
+            return false;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, Math.max(2, size * 2));
+        }
+        names[size++] = name;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        final int i = indexOf(o);
+        if (i < 0) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+    }
+
+    private void removeAt(final int i) {
+        System.arraycopy(names, i + 1, names, i, size - i - 1);
+        names[--size] = null;
+    }
+
+    private int indexOf(final Object o) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return names[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+}
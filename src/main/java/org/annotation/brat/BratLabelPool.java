@@ -0,0 +1,159 @@
+package org.annotation.brat;
+
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe pool of the labels of a corpus: annotation types, event roles and attribute names.
+ * <p>
+ * A corpus has few distinct labels but one per annotation line, so the parser looks every label up here and keeps
+ * the pooled instance. Labels can be looked up straight from a region of a line, no string is created when the
+ * label is known. Labels read with the same pool are the same instances and may be compared by reference.
+ * <p>
+ * The pool stops growing at {@link #getMaxSize()} labels, further unknown labels are returned as new strings.
+ */
+public final class BratLabelPool {
+
+    public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+    private static final BratLabelPool DEFAULT = new BratLabelPool();
+
+    private final ConcurrentMap<Key, String> labels = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final LongAdder lookups = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder savedBytes = new LongAdder();
+
+    public BratLabelPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public BratLabelPool(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the pool used when none is given
+     */
+    public static BratLabelPool getDefault() {
+        return DEFAULT;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public String intern(@NonNull final String label) {
+        return intern(label, 0, label.length());
+    }
+
+    /**
+     * @return the pooled label of the characters from {@code start} (inclusive) to {@code end} (exclusive)
+     */
+    public String intern(@NonNull final CharSequence chars, final int start, final int end) {
+        lookups.increment();
+        String label = labels.get(new Key(chars, start, end));
+        if (null != label) {
+            hits.increment();
+            savedBytes.add(estimateSize(label));
+            return label;
+        }
+        label = chars.subSequence(start, end).toString();
+        if (labels.size() >= maxSize) {
+            return label;
+        }
+        String pooled = labels.putIfAbsent(new Key(label, 0, label.length()), label);
+        return null == pooled ? label : pooled;
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(labels.size(), lookups.sum(), hits.sum(), savedBytes.sum());
+    }
+
+    /**
+     * estimated heap size of a string with compact strings: object header and fields, plus the byte array
+     */
+    static long estimateSize(final String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) < 256;
+        }
+        return 24 + align(16 + (long) s.length() * (latin1 ? 1 : 2));
+    }
+
+    private static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+
+    @Data
+    public static class Statistics {
+        private final int labels;
+
+        private final long lookups;
+
+        private final long hits;
+
+        /**
+         * estimated bytes of the strings that were not created or not retained because the label was pooled
+         */
+        private final long savedBytes;
+    }
+
+    /**
+     * a region of characters, equal to other keys with the same characters
+     */
+    private static final class Key {
+        private final CharSequence chars;
+        private final int start;
+        private final int end;
+        private final int hash;
+
+        private Key(final CharSequence chars, final int start, final int end) {
+            this.chars = chars;
+            this.start = start;
+            this.end = end;
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + chars.charAt(i);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (hash != other.hash || end - start != other.end - other.start) {
+                return false;
+            }
+            for (int i = 0; i < end - start; i++) {
+                if (chars.charAt(start + i) != other.chars.charAt(other.start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package org.annotation.brat;
+
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A brat directory whose documents are parsed when they are first accessed.
+ * <p>
+ * Only the ".ann"/".txt" pairs are listed when the corpus is opened. Parsed documents are kept in an LRU cache bounded
+ * by their estimated heap size, so corpora larger than the heap can be used. {@link #iterator()} reads the next
+ * {@link #getReadAhead()} documents in the background while the current one is used. The corpus may be used from
+ * several threads; a document accessed concurrently while it is not cached may be parsed more than once.
+ */
+@Slf4j
+public class BratLazyCorpus implements Iterable<BratDocument>, Closeable {
+
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    public static final int DEFAULT_READ_AHEAD = 4;
+
+    /**
+     * estimated heap size of an annotation or sentence object with its lists and fields, without the strings
+     */
+    private static final long OBJECT_BYTES = 128;
+
+    private final Path directory;
+
+    private final String lineDelimiter;
+
+    private final long maxBytes;
+
+    private final int readAhead;
+
+    private final List<Pair> pairs;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private final BratLabelPool labelPool = new BratLabelPool();
+
+    /**
+     * id -> document, in access order, guarded by itself
+     */
+    private final LinkedHashMap<String, Cached> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedBytes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private ExecutorService prefetcher;
+
+    private boolean closed;
+
+    public BratLazyCorpus(@NonNull final File directory, final String lineDelimiter) throws IOException {
+        this(directory, lineDelimiter, DEFAULT_MAX_BYTES, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * @param maxBytes  the estimated size of the cached documents, one document is kept even if it is larger
+     * @param readAhead the number of documents read ahead by iterators, 0 to read them on demand
+     */
+    public BratLazyCorpus(@NonNull final File directory, final String lineDelimiter, final long maxBytes,
+                          final int readAhead) throws IOException {
+        this.directory = directory.toPath();
+        this.lineDelimiter = lineDelimiter;
+        this.maxBytes = maxBytes;
+        this.readAhead = readAhead;
+        List<Path> annoFiles;
+        try (Stream<Path> paths = Files.list(this.directory)) {
+            annoFiles = paths.filter(p -> p.getFileName().toString().endsWith(BratUtils.ANNO_FILE_EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        List<Pair> listed = new ArrayList<>(annoFiles.size());
+        for (Path annoFile : annoFiles) {
+            String fileName = annoFile.getFileName().toString();
+            String id = fileName.substring(0, fileName.length() - BratUtils.ANNO_FILE_EXTENSION.length());
+            Path textFile = this.directory.resolve(id + BratUtils.TEXT_FILE_EXTENSION);
+            if (!Files.exists(textFile)) {
+                log.warn("File {} does not exist!", textFile);
+                continue;
+            }
+            indexes.put(id, listed.size());
+            listed.add(new Pair(id, textFile, annoFile, Files.size(textFile), Files.size(annoFile)));
+        }
+        this.pairs = Collections.unmodifiableList(listed);
+    }
+
+    public int getReadAhead() {
+        return readAhead;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int size() {
+        return pairs.size();
+    }
+
+    /**
+     * @return the listed pairs, sorted by id
+     */
+    public List<Pair> getPairs() {
+        return pairs;
+    }
+
+    public List<String> getIds() {
+        return pairs.stream().map(Pair::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the document, or null if there is no such pair
+     */
+    public BratDocument get(@NonNull final String id) throws IOException {
+        Integer index = indexes.get(id);
+        return null == index ? null : get(index);
+    }
+
+    public BratDocument get(final int index) throws IOException {
+        Pair pair = pairs.get(index);
+        synchronized (cache) {
+            Cached cached = cache.get(pair.getId());
+            if (null != cached) {
+                hits.increment();
+                return cached.document;
+            }
+        }
+        misses.increment();
+        BratDocument document = BratUtils.readAnnotation(pair.getId(), pair.getTextFile(), pair.getAnnoFile(),
+                lineDelimiter, labelPool);
+        final long size = estimateSize(document);
+        synchronized (cache) {
+            Cached previous = cache.put(pair.getId(), new Cached(document, size));
+            cachedBytes += size - (null == previous ? 0 : previous.size);
+            Iterator<Cached> eldest = cache.values().iterator();
+            while (cachedBytes > maxBytes && cache.size() > 1) {
+                cachedBytes -= eldest.next().size;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return document;
+    }
+
+    /**
+     * drops all cached documents
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    /**
+     * Iterates the documents in id order. Read errors are thrown as {@link UncheckedIOException}.
+     */
+    @Override
+    public Iterator<BratDocument> iterator() {
+        return readAhead <= 0 ? new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < pairs.size();
+            }
+
+            @Override
+            public BratDocument next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return read(next++);
+            }
+        } : new ReadAheadIterator();
+    }
+
+    public Stream<BratDocument> stream() {
+        return pairs.isEmpty() ? Stream.empty() :
+                Stream.iterate(iterator(), Iterator::hasNext, it -> it).map(Iterator::next);
+    }
+
+    public Statistics getStatistics() {
+        synchronized (cache) {
+            return new Statistics(hits.sum(), misses.sum(), evictions.sum(), cache.size(), cachedBytes);
+        }
+    }
+
+    /**
+     * stops the read-ahead thread once the reads already queued by iterators are done, the corpus can still be used
+     * without it: iterators read the following documents on demand
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (null != prefetcher) {
+            prefetcher.shutdown();
+            prefetcher = null;
+        }
+    }
+
+    /**
+     * @return the read-ahead executor, null once the corpus is closed
+     */
+    private synchronized ExecutorService getPrefetcher() {
+        if (null == prefetcher && !closed) {
+            prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "brat-read-ahead");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return prefetcher;
+    }
+
+    private BratDocument read(final int index) {
+        try {
+            return get(index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * estimated heap size of a parsed document: the strings of the text and the entities, and a fixed size per
+     * sentence and annotation
+     */
+    static long estimateSize(final BratDocument document) {
+        long size = BratLabelPool.estimateSize(document.getText()) + OBJECT_BYTES;
+        if (null != document.getSentences()) {
+            size += OBJECT_BYTES * document.getSentences().size();
+        }
+        for (BratEntity entity : document.getAllEntities()) {
+            size += OBJECT_BYTES + (null == entity.getText() ? 0 : BratLabelPool.estimateSize(entity.getText()));
+        }
+        size += OBJECT_BYTES * (document.getAllEvents().size() + document.getAllRelations().size());
+        return size;
+    }
+
+    @Data
+    public static class Pair {
+        @NonNull
+        private final String id;
+
+        @NonNull
+        private final Path textFile;
+
+        @NonNull
+        private final Path annoFile;
+
+        private final long textSize;
+
+        private final long annoSize;
+    }
+
+    @Data
+    public static class Statistics {
+        private final long hits;
+
+        private final long misses;
+
+        private final long evictions;
+
+        private final int cachedDocuments;
+
+        /**
+         * estimated heap size of the cached documents
+         */
+        private final long cachedBytes;
+    }
+
+    private static final class Cached {
+        private final BratDocument document;
+        private final long size;
+
+        private Cached(final BratDocument document, final long size) {
+            this.document = document;
+            this.size = size;
+        }
+    }
+
+    /**
+     * keeps up to {@link #readAhead} documents in flight on the prefetch thread, and reads them on demand once the
+     * corpus is closed
+     */
+    private final class ReadAheadIterator implements Iterator<BratDocument> {
+        private final Deque<Future<BratDocument>> inFlight = new ArrayDeque<>(readAhead + 1);
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+            return !inFlight.isEmpty() || next < pairs.size();
+        }
+
+        @Override
+        public BratDocument next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ExecutorService executor;
+            while (next < pairs.size() && inFlight.size() <= readAhead && null != (executor = getPrefetcher())) {
+                final int index = next;
+                try {
+                    inFlight.add(CompletableFuture.supplyAsync(() -> read(index), executor));
+                } catch (RejectedExecutionException e) {
+                    //closed concurrently
+                    break;
+                }
+                next++;
+            }
+            final int index = next - inFlight.size();
+            Future<BratDocument> future = inFlight.poll();
+            if (null == future) {
+                next++;
+                return read(index);
+            }
+            try {
+                return future.get();
+            } catch (CancellationException e) {
+                return read(index);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("Interrupted while reading brat files", e));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new UncheckedIOException(new IOException(cause));
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.annotation.brat;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The documents loaded by {@link BratCorpusLoader} and the files it had to skip.
+ */
+@Data
+public class BratLoadResult {
+
+    private final List<BratDocument> documents = new ArrayList<>();
+
+    private final List<BratSkippedFile> skipped = new ArrayList<>();
+}
@@ -0,0 +1,182 @@
+package org.annotation.brat;
+
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the brat readers and writers: parsed lines by kind, rejected lines by reason, skipped files by reason,
+ * and the amount handled and time spent per stage.
+ * <p>
+ * The counters are {@link LongAdder}s, so the threads of a loader update them without contention. The parser counts
+ * lines locally and adds them when a file is finished. {@link #snapshot()} takes a consistent enough copy for
+ * monitoring; {@link Snapshot#toMap()} flattens it for export.
+ */
+public final class BratMetrics {
+
+    public enum LineKind {
+        ENTITY,
+        EVENT,
+        RELATION,
+        EQUIVALENCE,
+        ATTRIBUTE,
+        /** notes and other lines that are not read */
+        OTHER
+    }
+
+    public enum Stage {
+        /** reading and decoding the ".txt" and ".ann" files */
+        READ,
+        /** parsing the annotation lines */
+        PARSE,
+        /** splitting the text into sentences */
+        SPLIT,
+        /** assigning the annotations to the sentences */
+        DISTRIBUTE,
+        /** writing ".txt" and ".ann" files */
+        WRITE
+    }
+
+    private static final BratMetrics DEFAULT = new BratMetrics();
+
+    private final LongAdder[] lines = adders(LineKind.values().length);
+
+    private final LongAdder[] rejects = adders(BratParseDiagnostic.Reason.values().length);
+
+    private final LongAdder[] skipped = adders(BratSkippedFile.Reason.values().length);
+
+    private final LongAdder[] bytes = adders(Stage.values().length);
+
+    private final LongAdder[] nanos = adders(Stage.values().length);
+
+    private final LongAdder documents = new LongAdder();
+
+    private final LongAdder unmappedEntities = new LongAdder();
+
+    /**
+     * @return the metrics updated by {@link BratUtils}, {@link BratAnnotationParser} and {@link BratCorpusLoader}
+     * when no other instance is given
+     */
+    public static BratMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    private static LongAdder[] adders(final int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public void addLines(@NonNull final LineKind kind, final long count) {
+        lines[kind.ordinal()].add(count);
+    }
+
+    public void countReject(@NonNull final BratParseDiagnostic.Reason reason) {
+        rejects[reason.ordinal()].increment();
+    }
+
+    public void countSkipped(@NonNull final BratSkippedFile.Reason reason) {
+        skipped[reason.ordinal()].increment();
+    }
+
+    public void countDocument() {
+        documents.increment();
+    }
+
+    /**
+     * entities that stayed at the document because no sentence contains them
+     */
+    public void addUnmappedEntities(final long count) {
+        unmappedEntities.add(count);
+    }
+
+    /**
+     * @param bytes the amount handled: decoded characters for {@link Stage#READ} and {@link Stage#PARSE}, bytes for
+     *              {@link Stage#WRITE}, 0 for the other stages
+     * @param nanos the time spent, see {@link System#nanoTime()}
+     */
+    public void record(@NonNull final Stage stage, final long bytes, final long nanos) {
+        this.bytes[stage.ordinal()].add(bytes);
+        this.nanos[stage.ordinal()].add(nanos);
+    }
+
+    /**
+     * records the time since {@code startNanos}
+     */
+    public void recordSince(@NonNull final Stage stage, final long bytes, final long startNanos) {
+        record(stage, bytes, System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(sums(LineKind.class, lines), sums(BratParseDiagnostic.Reason.class, rejects),
+                sums(BratSkippedFile.Reason.class, skipped), sums(Stage.class, bytes), sums(Stage.class, nanos),
+                documents.sum(), unmappedEntities.sum());
+    }
+
+    public void reset() {
+        for (LongAdder[] adders : new LongAdder[][]{lines, rejects, skipped, bytes, nanos}) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+        documents.reset();
+        unmappedEntities.reset();
+    }
+
+    private static <E extends Enum<E>> Map<E, Long> sums(final Class<E> type, final LongAdder[] adders) {
+        Map<E, Long> sums = new EnumMap<>(type);
+        for (E e : type.getEnumConstants()) {
+            sums.put(e, adders[e.ordinal()].sum());
+        }
+        return Collections.unmodifiableMap(sums);
+    }
+
+    @Data
+    public static class Snapshot {
+        private final Map<LineKind, Long> lines;
+
+        private final Map<BratParseDiagnostic.Reason, Long> rejects;
+
+        private final Map<BratSkippedFile.Reason, Long> skipped;
+
+        private final Map<Stage, Long> bytes;
+
+        private final Map<Stage, Long> nanos;
+
+        private final long documents;
+
+        private final long unmappedEntities;
+
+        public long getRejectCount() {
+            return rejects.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        /**
+         * @return the counters by dotted lower case names, such as "lines.entity" or "nanos.parse"
+         */
+        public Map<String, Long> toMap() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            put(map, "lines", lines);
+            put(map, "rejects", rejects);
+            put(map, "skipped", skipped);
+            put(map, "bytes", bytes);
+            put(map, "nanos", nanos);
+            map.put("documents", documents);
+            map.put("unmapped_entities", unmappedEntities);
+            return map;
+        }
+
+        private static void put(final Map<String, Long> map, final String prefix,
+                                final Map<? extends Enum<?>, Long> values) {
+            values.forEach((k, v) -> map.put(prefix + "." + k.name().toLowerCase(Locale.ROOT), v));
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package org.annotation.brat;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.annotation.brat.snapshot.BratSnapshotReader;
+import org.annotation.brat.snapshot.BratSnapshotWriter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of parsed ".ann"/".txt" pairs, stored in the {@link org.annotation.brat.snapshot.BratSnapshot}
+ * format.
+ * <p>
+ * An entry is found by the path of the annotation file and the sentence splitter. It is valid while size and
+ * modification time of both files are unchanged; if only the times changed, the SHA-256 of the contents decides. As in
+ * git, an entry is "racy" if a file was modified within {@link #RACY_MILLIS} of the time the entry was created: an
+ * edit in the same timestamp granularity would leave size and time unchanged, so racy entries are always checked by
+ * hash, and re-stored once they are no longer racy. Entries
+ * are written to a temporary file and atomically moved into place, so several loaders, also in different processes,
+ * may share a cache directory. {@link #evict()} removes the least recently used entries beyond the size limits while
+ * holding a file lock on the directory.
+ */
+@Slf4j
+public class BratParseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+    public static final int DEFAULT_MAX_ENTRIES = 1_000_000;
+
+    static final String ENTRY_EXTENSION = ".entry";
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final String LOCK_FILE = "cache.lock";
+
+    private static final byte[] MAGIC = {'B', 'R', 'P', 'C'};
+
+    private static final int VERSION = 2;
+
+    /**
+     * the coarsest modification time granularity expected, e.g. 2 seconds on FAT
+     */
+    static final long RACY_MILLIS = 2000;
+
+    private static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * file locks are held by the process, threads of one process are serialized here
+     */
+    private static final Object EVICTION_LOCK = new Object();
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public BratParseCache(@NonNull final Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES);
+    }
+
+    public BratParseCache(@NonNull final Path directory, final long maxBytes, final int maxEntries)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * returns the cached document of the files, or parses and caches it
+     */
+    public BratDocument read(@NonNull final String id, @NonNull final Path textFile, @NonNull final Path annoFile,
+                             final String delimiter, @NonNull final BratLabelPool labels) throws IOException {
+        return read(id, textFile, annoFile, null == delimiter ? null : BratSentenceSplitter.of(delimiter), labels);
+    }
+
+    /**
+     * returns the cached document of the files, or parses and caches it. Entries of splitters with the same
+     * {@code toString()} are shared.
+     */
+    public BratDocument read(@NonNull final String id, @NonNull final Path textFile, @NonNull final Path annoFile,
+                             final BratSentenceSplitter splitter, @NonNull final BratLabelPool labels)
+            throws IOException {
+        return read(id, textFile, annoFile, splitter, labels, BratMetrics.getDefault());
+    }
+
+    /**
+     * returns the cached document of the files, or parses and caches it, counting the parse in the given metrics
+     */
+    public BratDocument read(@NonNull final String id, @NonNull final Path textFile, @NonNull final Path annoFile,
+                             final BratSentenceSplitter splitter, @NonNull final BratLabelPool labels,
+                             @NonNull final BratMetrics metrics) throws IOException {
+        final String key = annoFile.toAbsolutePath().normalize() + "\u0000" + splitter;
+        final Path entry = directory.resolve(hex(digest().digest(key.getBytes(StandardCharsets.UTF_8)))
+                + ENTRY_EXTENSION);
+
+        //stat before reading the contents: a later change is detected by the next read
+        final long statMillis = System.currentTimeMillis();
+        BasicFileAttributes text = Files.readAttributes(textFile, BasicFileAttributes.class);
+        BasicFileAttributes anno = Files.readAttributes(annoFile, BasicFileAttributes.class);
+
+        byte[] hash = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            Header header = Header.read(in);
+            if (null != header && key.equals(header.key) && id.equals(header.id)) {
+                final boolean sameTimes = header.matches(text, anno);
+                boolean unchanged = sameTimes && !header.isRacy();
+                if (!unchanged && header.textSize == text.size() && header.annoSize == anno.size()) {
+                    hash = hash(textFile, annoFile);
+                    unchanged = Arrays.equals(hash, header.hash);
+                }
+                if (unchanged) {
+                    BratDocument document = new BratSnapshotReader(in, labels).read();
+                    if (null != document) {
+                        hits.increment();
+                        Header current = new Header(key, id, text, anno, hash, statMillis);
+                        if (null == hash || (sameTimes && current.isRacy())) {
+                            touch(entry);
+                        } else {
+                            //the times changed or are no longer racy, remember them to skip hashing next time
+                            in.close();
+                            store(entry, current, document);
+                        }
+                        return document;
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            //not cached yet
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable cache entry {} of {}: {}", entry, annoFile, e.getMessage());
+        }
+
+        misses.increment();
+        if (null == hash) {
+            hash = hash(textFile, annoFile);
+        }
+        BratDocument document = BratUtils.readAnnotation(id, textFile, annoFile, splitter, labels, metrics);
+        store(entry, new Header(key, id, text, anno, hash, statMillis), document);
+        return document;
+    }
+
+    /**
+     * a failing cache only costs time, the document is still returned
+     */
+    private void store(final Path entry, final Header header, final BratDocument document) {
+        try {
+            write(entry, header, document);
+        } catch (IOException e) {
+            log.warn("Could not write cache entry {}: {}", entry, e.getMessage());
+        }
+    }
+
+    private void write(final Path entry, final Header header, final BratDocument document) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            header.write(out);
+            try (BratSnapshotWriter writer = new BratSnapshotWriter(out)) {
+                writer.write(document);
+            }
+        }
+        Path temp = Files.createTempFile(directory, entry.getFileName().toString(), TEMP_EXTENSION);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                bytes.writeTo(out);
+            }
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache holds at most the maximal number of entries and bytes.
+     */
+    public void evict() throws IOException {
+        synchronized (EVICTION_LOCK) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                List<Path> entries;
+                try (Stream<Path> files = Files.list(directory)) {
+                    entries = files.collect(Collectors.toList());
+                }
+                final long now = System.currentTimeMillis();
+                List<Path> cached = new ArrayList<>();
+                List<Long> times = new ArrayList<>();
+                List<Long> sizes = new ArrayList<>();
+                long total = 0;
+                for (Path file : entries) {
+                    String name = file.getFileName().toString();
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        if (name.endsWith(TEMP_EXTENSION)
+                                && now - attributes.lastModifiedTime().toMillis() > STALE_TEMP_MILLIS) {
+                            Files.deleteIfExists(file);
+                        } else if (name.endsWith(ENTRY_EXTENSION)) {
+                            cached.add(file);
+                            times.add(attributes.lastModifiedTime().toMillis());
+                            sizes.add(attributes.size());
+                            total += attributes.size();
+                        }
+                    } catch (NoSuchFileException e) {
+                        //removed concurrently
+                    }
+                }
+
+                Integer[] order = new Integer[cached.size()];
+                Arrays.setAll(order, i -> i);
+                Arrays.sort(order, Comparator.comparing(times::get));
+                int count = cached.size();
+                for (int i = 0; i < order.length && (count > maxEntries || total > maxBytes); i++) {
+                    Files.deleteIfExists(cached.get(order[i]));
+                    count--;
+                    total -= sizes.get(order[i]);
+                }
+            }
+        }
+    }
+
+    private static void touch(final Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            //only affects the eviction order
+        }
+    }
+
+    private static byte[] hash(final Path textFile, final Path annoFile) throws IOException {
+        MessageDigest digest = digest();
+        byte[] buffer = new byte[1 << 16];
+        for (Path file : new Path[]{textFile, annoFile}) {
+            try (InputStream in = Files.newInputStream(file)) {
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * what an entry was created from
+     */
+    private static final class Header {
+        private final String key;
+        private final String id;
+        private final long textSize;
+        private final long textModified;
+        private final long annoSize;
+        private final long annoModified;
+        private final byte[] hash;
+        /**
+         * when the files were checked for the entry
+         */
+        private final long created;
+
+        private Header(final String key, final String id, final long textSize, final long textModified,
+                       final long annoSize, final long annoModified, final byte[] hash, final long created) {
+            this.key = key;
+            this.id = id;
+            this.textSize = textSize;
+            this.textModified = textModified;
+            this.annoSize = annoSize;
+            this.annoModified = annoModified;
+            this.hash = hash;
+            this.created = created;
+        }
+
+        private Header(final String key, final String id, final BasicFileAttributes text,
+                       final BasicFileAttributes anno, final byte[] hash, final long created) {
+            this(key, id, text.size(), text.lastModifiedTime().toMillis(), anno.size(),
+                    anno.lastModifiedTime().toMillis(), hash, created);
+        }
+
+        /**
+         * @return whether a file may have been modified again without changing its time since the entry was created
+         */
+        private boolean isRacy() {
+            return Math.max(textModified, annoModified) + RACY_MILLIS > created;
+        }
+
+        private boolean matches(final BasicFileAttributes text, final BasicFileAttributes anno) {
+            return textSize == text.size() && textModified == text.lastModifiedTime().toMillis()
+                    && annoSize == anno.size() && annoModified == anno.lastModifiedTime().toMillis();
+        }
+
+        private void write(final DataOutputStream out) throws IOException {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(key);
+            out.writeUTF(id);
+            out.writeLong(textSize);
+            out.writeLong(textModified);
+            out.writeLong(annoSize);
+            out.writeLong(annoModified);
+            out.writeByte(hash.length);
+            out.write(hash);
+            out.writeLong(created);
+        }
+
+        /**
+         * @return the header, or null if the entry was written by another version
+         */
+        private static Header read(final DataInputStream in) throws IOException {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                return null;
+            }
+            String key = in.readUTF();
+            String id = in.readUTF();
+            long textSize = in.readLong();
+            long textModified = in.readLong();
+            long annoSize = in.readLong();
+            long annoModified = in.readLong();
+            byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            long created = in.readLong();
+            return new Header(key, id, textSize, textModified, annoSize, annoModified, hash, created);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.annotation.brat;
+
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * A problem found while parsing a single line of a brat annotation file.
+ */
+@Data
+public class BratParseDiagnostic {
+
+    public enum Reason {
+        /** a "T" line without the "id\ttype start end\ttext" layout */
+        MALFORMED_ENTITY,
+        /** a "T" line whose offsets are not integers */
+        INVALID_OFFSET,
+        /** a "T" line reusing an id that was already declared */
+        DUPLICATE_ID,
+        /** an "E" line without the "id\ttype:trigger role:arg ..." layout */
+        MALFORMED_EVENT,
+        /** an "E" line whose trigger is not a declared entity */
+        UNKNOWN_TRIGGER,
+        /** an event argument that is not in "role:id" form; the argument is dropped */
+        MALFORMED_ARGUMENT,
+        /** an event or relation argument that is not a declared entity; the argument is dropped */
+        UNKNOWN_ARGUMENT,
+        /** an "R" or "*" line that cannot be read */
+        MALFORMED_RELATION,
+        /** an "A" line without the "id\tname target" layout */
+        MALFORMED_ATTRIBUTE
+    }
+
+    /**
+     * 1-based line number in the annotation file
+     */
+    private final int lineNumber;
+
+    @NonNull
+    private final Reason reason;
+
+    @NonNull
+    private final String line;
+}
@@ -0,0 +1,29 @@
+package org.annotation.brat;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything read from one brat annotation file by {@link BratAnnotationParser}.
+ */
+@Data
+public class BratParseResult {
+
+    /**
+     * entities by id, in file order
+     */
+    private final Map<String, BratEntity> entities = new LinkedHashMap<>();
+
+    private final List<BratEvent> events = new ArrayList<>();
+
+    /**
+     * "R" relations first, then "*" relations, each group in file order
+     */
+    private final List<BratBRelation> relations = new ArrayList<>();
+
+    private final List<BratParseDiagnostic> diagnostics = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package org.annotation.brat;
+
+import lombok.Data;
+
+import java.io.File;
+
+/**
+ * What a streaming {@link BratUtils#saveAnnotation(java.util.Iterator, String, String, int, File, boolean)} wrote.
+ */
+@Data
+public class BratSaveSummary {
+
+    private final File outputDir;
+
+    private int documents;
+
+    private long sentences;
+}
@@ -0,0 +1,457 @@
+package org.annotation.brat;
+
+import lombok.NonNull;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Type statistics of brat documents, enough to write an {@link BratUtils#ANNO_CONFIG_FILE} without keeping the
+ * documents themselves.
+ * <p>
+ * Every annotation is visited once by {@link #add(BratDocument)}. Instances are not thread safe, but statistics of
+ * partitions can be collected separately and combined with {@link #merge(BratSchemaStatistics)}. All types are kept
+ * sorted, so the written config does not depend on the order of the documents.
+ */
+public class BratSchemaStatistics {
+
+    private static final String ENTITIES = "entities";
+    private static final String EVENTS = "events";
+    private static final String RELATIONS = "relations";
+    private static final String ATTRIBUTES = "attributes";
+
+    private static final String ATTRIBUTE_ARG = "Arg";
+
+    private final SortedSet<String> entityTypes = new TreeSet<>();
+
+    /**
+     * event type -> role -> argument types
+     */
+    private final SortedMap<String, SortedMap<String, SortedSet<String>>> eventTypes = new TreeMap<>();
+
+    /**
+     * relation type -> argument position -> argument types
+     */
+    private final SortedMap<String, List<SortedSet<String>>> relationTypes = new TreeMap<>();
+
+    /**
+     * attribute name -> types of the annotated events
+     */
+    private final SortedMap<String, SortedSet<String>> attributes = new TreeMap<>();
+
+    public static BratSchemaStatistics of(@NonNull final Collection<? extends BratDocument> documents) {
+        return documents.parallelStream()
+                .collect(BratSchemaStatistics::new, BratSchemaStatistics::add, BratSchemaStatistics::merge);
+    }
+
+    /**
+     * reads the statistics of an existing annotation config. Macros ({@code <ENTITY>=...}) and special keys such as
+     * {@code <REL-TYPE>} are skipped, as are the {@code Value} lists of attributes. The hierarchy, abstract types and
+     * role quantifiers are not kept, {@link #updateAnnotationConfig(File)} preserves them.
+     *
+     * @param configFile
+     * @return the statistics, empty if the file does not exist
+     * @throws IOException
+     */
+    public static BratSchemaStatistics read(@NonNull final File configFile) throws IOException {
+        BratSchemaStatistics statistics = new BratSchemaStatistics();
+        if (!configFile.exists()) {
+            return statistics;
+        }
+        String section = null;
+        for (String line : Files.readAllLines(configFile.toPath(), BratUtils.DEFAULT_CHARSET)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                section = trimmed.substring(1, trimmed.length() - 1).trim();
+                continue;
+            }
+            String name = getName(trimmed);
+            if (null == name) {
+                continue;
+            }
+            List<String> arguments = getArguments(trimmed);
+            if (ENTITIES.equals(section)) {
+                statistics.entityTypes.add(name);
+            } else if (EVENTS.equals(section)) {
+                Map<String, SortedSet<String>> roles = statistics.eventTypes.computeIfAbsent(name,
+                        k -> new TreeMap<>());
+                for (String argument : arguments) {
+                    roles.computeIfAbsent(getRole(argument), k -> new TreeSet<>()).addAll(getTypes(argument));
+                }
+            } else if (RELATIONS.equals(section)) {
+                List<SortedSet<String>> positions = statistics.relationTypes.computeIfAbsent(name,
+                        k -> new ArrayList<>());
+                for (int i = 0; i < arguments.size(); i++) {
+                    getPosition(positions, i).addAll(getTypes(arguments.get(i)));
+                }
+            } else if (ATTRIBUTES.equals(section)) {
+                Set<String> eventTypes = statistics.attributes.computeIfAbsent(name, k -> new TreeSet<>());
+                for (String argument : arguments) {
+                    if (ATTRIBUTE_ARG.equals(getRole(argument))) {
+                        eventTypes.addAll(getTypes(argument));
+                    }
+                }
+            }
+        }
+        return statistics;
+    }
+
+    public BratSchemaStatistics add(@NonNull final BratDocument document) {
+        if (null != document.getSentences()) {
+            for (BratSentence sentence : document.getSentences()) {
+                add(sentence.getEntities(), sentence.getEvents(), sentence.getRelations());
+            }
+        }
+        add(document.getEntities(), document.getEvents(), document.getRelations());
+        return this;
+    }
+
+    /**
+     * adds all types of the other statistics to this one
+     *
+     * @return this
+     */
+    public BratSchemaStatistics merge(@NonNull final BratSchemaStatistics other) {
+        entityTypes.addAll(other.entityTypes);
+        other.eventTypes.forEach((type, roles) -> {
+            Map<String, SortedSet<String>> merged = eventTypes.computeIfAbsent(type, k -> new TreeMap<>());
+            roles.forEach((role, types) -> merged.computeIfAbsent(role, k -> new TreeSet<>()).addAll(types));
+        });
+        other.relationTypes.forEach((type, positions) -> {
+            List<SortedSet<String>> merged = relationTypes.computeIfAbsent(type, k -> new ArrayList<>());
+            for (int i = 0; i < positions.size(); i++) {
+                getPosition(merged, i).addAll(positions.get(i));
+            }
+        });
+        other.attributes.forEach((name, types) -> attributes.computeIfAbsent(name, k -> new TreeSet<>())
+                .addAll(types));
+        return this;
+    }
+
+    private void add(final Collection<BratEntity> entities, final Collection<BratEvent> events,
+                     final Collection<BratBRelation> relations) {
+        for (BratEntity entity : entities) {
+            entityTypes.add(entity.getType());
+        }
+        for (BratEvent event : events) {
+            Map<String, SortedSet<String>> roles = eventTypes.computeIfAbsent(event.getType(), k -> new TreeMap<>());
+            event.getArgument()
+                    .forEach((role, argument) -> roles.computeIfAbsent(role, k -> new TreeSet<>())
+                            .add(argument.getType()));
+            for (String attribute : event.getAttribute()) {
+                attributes.computeIfAbsent(attribute, k -> new TreeSet<>()).add(event.getType());
+            }
+        }
+        for (BratBRelation relation : relations) {
+            List<SortedSet<String>> positions = relationTypes.computeIfAbsent(relation.getType(),
+                    k -> new ArrayList<>());
+            for (int i = 0; i < relation.getArguments().size(); i++) {
+                getPosition(positions, i).add(relation.getArguments().get(i).getType());
+            }
+        }
+    }
+
+    public String toConfigString() {
+        StringBuilder sb = new StringBuilder();
+
+        //event types are written in the [events] section only
+        startSection(sb, ENTITIES);
+        entityTypes.stream()
+                .filter(t -> !eventTypes.containsKey(t))
+                .forEach(t -> sb.append(t).append("\n"));
+
+        startSection(sb, EVENTS);
+        eventTypes.forEach((type, roles) -> writeArguments(sb, type, roles, role -> role + "?"));
+
+        startSection(sb, RELATIONS);
+        relationTypes.forEach((type, positions) -> {
+            Map<String, SortedSet<String>> arguments = new LinkedHashMap<>();
+            for (int i = 0; i < positions.size(); i++) {
+                arguments.put(BratBRelation.getArgName(i), positions.get(i));
+            }
+            writeArguments(sb, type, arguments, Function.identity());
+        });
+
+        startSection(sb, ATTRIBUTES);
+        attributes.forEach((name, types) -> writeArguments(sb, name, Map.of(ATTRIBUTE_ARG, types),
+                Function.identity()));
+
+        return sb.toString();
+    }
+
+    /**
+     * overwrites the annotation config in the directory
+     */
+    public void writeAnnotationConfig(@NonNull final File outputDir) throws IOException {
+        FileUtils.write(new File(outputDir, BratUtils.ANNO_CONFIG_FILE), toConfigString(), BratUtils.DEFAULT_CHARSET);
+    }
+
+    /**
+     * merges these statistics into the annotation config in the directory, as documents are appended to it. The
+     * existing lines are kept as they are, including comments, macros, the hierarchy, quantifiers and attribute
+     * values: missing argument types and roles are appended to the lines of declared types, and undeclared types are
+     * added at the end of their section. Arguments typed by a macro such as {@code <EVENT>} are left alone.
+     */
+    public void updateAnnotationConfig(@NonNull final File outputDir) throws IOException {
+        File configFile = new File(outputDir, BratUtils.ANNO_CONFIG_FILE);
+        if (!configFile.exists()) {
+            writeAnnotationConfig(outputDir);
+            return;
+        }
+        String config = FileUtils.readFileToString(configFile, BratUtils.DEFAULT_CHARSET);
+        String updated = updateConfigString(config);
+        if (!updated.equals(config)) {
+            FileUtils.write(configFile, updated, BratUtils.DEFAULT_CHARSET);
+        }
+    }
+
+    /**
+     * @return the config with the types of these statistics added, see {@link #updateAnnotationConfig(File)}
+     */
+    String updateConfigString(@NonNull final String config) {
+        List<String> lines = new ArrayList<>(Arrays.asList(config.split("\n", -1)));
+        Map<String, Set<String>> declared = new HashMap<>();
+        //section -> index of its header or last declaration
+        Map<String, Integer> ends = new LinkedHashMap<>();
+        String section = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String trimmed = lines.get(i).trim();
+            if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                section = trimmed.substring(1, trimmed.length() - 1).trim();
+                ends.put(section, i);
+                continue;
+            }
+            String name = trimmed.startsWith("#") ? null : getName(trimmed);
+            if (null == section || null == name) {
+                continue;
+            }
+            ends.put(section, i);
+            declared.computeIfAbsent(section, k -> new HashSet<>()).add(name);
+            Map<String, SortedSet<String>> arguments = getArguments(section, name);
+            if (null != arguments) {
+                lines.set(i, extendLine(lines.get(i), arguments, EVENTS.equals(section) ? "?" : ""));
+            }
+        }
+
+        //section -> lines of its undeclared types, event types are written in the [events] section only
+        Map<String, List<String>> added = new LinkedHashMap<>();
+        Set<String> events = declared.getOrDefault(EVENTS, Set.of());
+        Set<String> entities = declared.getOrDefault(ENTITIES, Set.of());
+        entityTypes.stream()
+                .filter(t -> !eventTypes.containsKey(t) && !events.contains(t) && !entities.contains(t))
+                .forEach(t -> added.computeIfAbsent(ENTITIES, k -> new ArrayList<>()).add(t));
+        for (String typeSection : List.of(EVENTS, RELATIONS, ATTRIBUTES)) {
+            Set<String> names = declared.getOrDefault(typeSection, Set.of());
+            for (String name : getNames(typeSection)) {
+                if (!names.contains(name)) {
+                    StringBuilder sb = new StringBuilder();
+                    writeArguments(sb, name, getArguments(typeSection, name),
+                            EVENTS.equals(typeSection) ? role -> role + "?" : Function.identity());
+                    added.computeIfAbsent(typeSection, k -> new ArrayList<>()).add(sb.toString().trim());
+                }
+            }
+        }
+
+        //insert from the last section on, so the indexes of the earlier ones stay valid
+        List<Map.Entry<String, Integer>> sections = new ArrayList<>(ends.entrySet());
+        sections.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        for (Map.Entry<String, Integer> end : sections) {
+            List<String> typeLines = added.remove(end.getKey());
+            if (null != typeLines) {
+                lines.addAll(end.getValue() + 1, typeLines);
+            }
+        }
+        StringBuilder result = new StringBuilder(String.join("\n", lines));
+        added.forEach((name, typeLines) -> {
+            startSection(result, name);
+            typeLines.forEach(l -> result.append(l).append("\n"));
+        });
+        return result.toString();
+    }
+
+    private Collection<String> getNames(final String section) {
+        switch (section) {
+            case EVENTS:
+                return eventTypes.keySet();
+            case RELATIONS:
+                return relationTypes.keySet();
+            default:
+                return attributes.keySet();
+        }
+    }
+
+    /**
+     * @return argument name -> types of the type in the section, null if it has none
+     */
+    private Map<String, SortedSet<String>> getArguments(final String section, final String name) {
+        if (EVENTS.equals(section)) {
+            return eventTypes.get(name);
+        }
+        if (RELATIONS.equals(section) && relationTypes.containsKey(name)) {
+            List<SortedSet<String>> positions = relationTypes.get(name);
+            Map<String, SortedSet<String>> arguments = new LinkedHashMap<>();
+            for (int i = 0; i < positions.size(); i++) {
+                arguments.put(BratBRelation.getArgName(i), positions.get(i));
+            }
+            return arguments;
+        }
+        if (ATTRIBUTES.equals(section) && attributes.containsKey(name)) {
+            return Map.of(ATTRIBUTE_ARG, attributes.get(name));
+        }
+        return null;
+    }
+
+    /**
+     * appends the missing types and arguments to a config line, the rest of the line is kept
+     *
+     * @param quantifier appended to the names of new arguments
+     */
+    private static String extendLine(final String line, final Map<String, SortedSet<String>> arguments,
+                                     final String quantifier) {
+        final String ending = line.endsWith("\r") ? "\r" : "";
+        final String content = line.substring(0, line.length() - ending.length());
+        String[] pieces = content.split(",", -1);
+        Set<String> seen = new HashSet<>();
+        boolean changed = false;
+        for (int p = 0; p < pieces.length; p++) {
+            String argument = p == 0 ? getArgumentOfFirst(pieces[0]) : pieces[p];
+            if (null == argument || argument.isBlank()) {
+                continue;
+            }
+            String role = getRole(argument);
+            seen.add(role);
+            SortedSet<String> types = arguments.get(role);
+            List<String> existing = getTypes(argument);
+            if (null == types || existing.stream().anyMatch(t -> t.startsWith("<"))) {
+                continue;
+            }
+            final String stripped = StringUtils.stripEnd(pieces[p], null);
+            StringBuilder piece = new StringBuilder(stripped);
+            for (String type : types) {
+                if (!existing.contains(type)) {
+                    piece.append(existing.isEmpty() && piece.charAt(piece.length() - 1) == ':' ? "" : "|")
+                            .append(type);
+                    changed = true;
+                }
+            }
+            pieces[p] = piece.append(pieces[p].substring(stripped.length())).toString();
+        }
+        StringBuilder sb = new StringBuilder(String.join(",", pieces));
+        boolean first = null == getArgumentOfFirst(pieces[0]);
+        for (Map.Entry<String, SortedSet<String>> argument : arguments.entrySet()) {
+            if (!seen.contains(argument.getKey())) {
+                sb.setLength(StringUtils.stripEnd(sb.toString(), null).length());
+                sb.append(first ? "\t" : ", ").append(argument.getKey()).append(quantifier).append(":")
+                        .append(String.join("|", argument.getValue()));
+                first = false;
+                changed = true;
+            }
+        }
+        return changed ? sb.append(ending).toString() : line;
+    }
+
+    private static void startSection(final StringBuilder sb, final String section) {
+        sb.append("\n\n[").append(section).append("]\n\n");
+    }
+
+    private static void writeArguments(final StringBuilder sb, final String type,
+                                       final Map<String, SortedSet<String>> arguments,
+                                       final Function<String, String> argumentName) {
+        sb.append(type).append("\t");
+        boolean first = true;
+        for (Map.Entry<String, SortedSet<String>> argument : arguments.entrySet()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(argumentName.apply(argument.getKey())).append(":")
+                    .append(String.join("|", argument.getValue()));
+        }
+        sb.append("\n");
+    }
+
+    /**
+     * @return the declared type of a trimmed config line without its abstract marker, null for macros and special
+     * definitions such as {@code <OVERLAP>}
+     */
+    private static String getName(final String trimmed) {
+        String name = StringUtils.removeStart(trimmed.split("\\s+", 2)[0], "!");
+        return name.isEmpty() || name.startsWith("<") ? null : name;
+    }
+
+    /**
+     * @return the first argument of a config line, null if the line declares no arguments
+     */
+    private static String getArgumentOfFirst(final String line) {
+        String[] fields = line.trim().split("\\s+", 2);
+        return fields.length > 1 ? fields[1] : null;
+    }
+
+    /**
+     * @return the arguments of a trimmed config line, without special keys such as {@code <REL-TYPE>}
+     */
+    private static List<String> getArguments(final String trimmed) {
+        List<String> arguments = new ArrayList<>();
+        String first = getArgumentOfFirst(trimmed);
+        if (null != first) {
+            for (String argument : first.split(",")) {
+                String role = getRole(argument);
+                if (!role.isEmpty() && !role.startsWith("<")) {
+                    arguments.add(argument);
+                }
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * @return the argument name without its quantifier, {@code Theme} for {@code Theme+} or {@code Theme{1-3}}
+     */
+    private static String getRole(final String argument) {
+        String key = StringUtils.substringBefore(argument, ":").trim();
+        if (key.endsWith("}") && key.contains("{")) {
+            key = key.substring(0, key.lastIndexOf('{'));
+        }
+        return StringUtils.stripEnd(key, "?*+");
+    }
+
+    private static List<String> getTypes(final String argument) {
+        List<String> types = new ArrayList<>();
+        if (!argument.contains(":")) {
+            return types;
+        }
+        for (String type : StringUtils.split(StringUtils.substringAfter(argument, ":"), '|')) {
+            if (!type.trim().isEmpty()) {
+                types.add(type.trim());
+            }
+        }
+        return types;
+    }
+
+    private static SortedSet<String> getPosition(final List<SortedSet<String>> positions, final int i) {
+        while (positions.size() <= i) {
+            positions.add(new TreeSet<>());
+        }
+        return positions.get(i);
+    }
+}
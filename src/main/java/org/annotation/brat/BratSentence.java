@@ -1,5 +1,6 @@
 package org.annotation.brat;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -8,6 +9,13 @@ import lombok.RequiredArgsConstructor;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A sentence of a brat document.
+ * <p>
+ * The text may be a view on the document text (see {@link org.utils.TextSlice}), which is only copied into a string
+ * by {@link #getText()}. Equality, hash code, toString and JSON still use the text content as string, so a sentence
+ * holding a view equals one holding the same text as string.
+ */
 @Data
 @RequiredArgsConstructor
 @AllArgsConstructor
@@ -21,7 +29,7 @@ public class BratSentence {
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
     private final List<BratEvent> events = new ArrayList<>();
 
-    private String text;
+    private CharSequence text;
 
 
     private int startPosition;
@@ -30,4 +38,28 @@ public class BratSentence {
 
 
     private String id;
-}
\ No newline at end of file
+
+    /**
+     * @return the text as a new string if the sentence holds a view
+     */
+    public String getText() {
+        return null == text ? null : text.toString();
+    }
+
+    public void setText(final String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return the text without copying it
+     */
+    @JsonIgnore
+    public CharSequence getTextView() {
+        return text;
+    }
+
+    @JsonIgnore
+    public void setTextView(final CharSequence text) {
+        this.text = text;
+    }
+}
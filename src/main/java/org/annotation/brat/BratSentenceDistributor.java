@@ -0,0 +1,142 @@
+package org.annotation.brat;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Moves document level annotations into the sentences that contain them.
+ * <p>
+ * The sentence boundaries are sorted once and every annotation is assigned with a binary search over them, so a
+ * document is distributed in O((sentences + annotations) log sentences). Assigned annotations are removed from the
+ * document in a single pass, by identity. Each annotation goes to the first sentence (in the order of the given
+ * collection) that contains it, annotations that fit in no sentence stay on the document.
+ */
+public final class BratSentenceDistributor {
+
+    private final BratSentence[] sentences;
+
+    private final int[] order;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private BratSentenceDistributor(@NonNull final Collection<BratSentence> sentences) {
+        this.sentences = sentences.toArray(new BratSentence[0]);
+        this.order = IntStream.range(0, this.sentences.length)
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> this.sentences[i].getStartPosition()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.starts = Arrays.stream(order).map(i -> this.sentences[i].getStartPosition()).toArray();
+        this.ends = Arrays.stream(order).map(i -> this.sentences[i].getEndPosition()).toArray();
+    }
+
+    /**
+     * @return the number of annotations that could not be assigned to any sentence
+     */
+    public static int distribute(@NonNull final BratDocument document,
+                                 @NonNull final Collection<BratSentence> sentences) {
+        if (sentences.isEmpty()) {
+            return document.getEntities().size() + document.getEvents().size() + document.getRelations().size();
+        }
+        BratSentenceDistributor distributor = new BratSentenceDistributor(sentences);
+        if (distributor.hasOverlaps()) {
+            return distributeOverlapping(document, sentences);
+        }
+
+        return distributor.assign(document.getEntities(), BratSentence::getEntities,
+                                  e -> distributor.find(e.getStartPosition(), e.getEndPosition()))
+                + distributor.assign(document.getEvents(), BratSentence::getEvents,
+                                     e -> distributor.find(e.getStartPosition(), e.getEndPosition()))
+                + distributor.assign(document.getRelations(), BratSentence::getRelations, distributor::find);
+    }
+
+    private boolean hasOverlaps() {
+        for (int i = 1; i < order.length; i++) {
+            if (starts[i] < ends[i - 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> int assign(final List<T> annotations, final Function<BratSentence, List<T>> target,
+                           final Function<T, BratSentence> locator) {
+        List<T> unassigned = new ArrayList<>();
+        for (T annotation : annotations) {
+            BratSentence sentence = locator.apply(annotation);
+            if (null == sentence) {
+                unassigned.add(annotation);
+            } else {
+                target.apply(sentence).add(annotation);
+            }
+        }
+        if (unassigned.size() != annotations.size()) {
+            annotations.clear();
+            annotations.addAll(unassigned);
+        }
+        return unassigned.size();
+    }
+
+    private BratSentence find(final BratBRelation relation) {
+        if (relation.getArguments().isEmpty()) {
+            return sentences[0];
+        }
+        int start = Integer.MAX_VALUE, end = Integer.MIN_VALUE;
+        for (BratEntity argument : relation.getArguments()) {
+            start = Math.min(start, argument.getStartPosition());
+            end = Math.max(end, argument.getEndPosition());
+        }
+        return find(start, end);
+    }
+
+    private BratSentence find(final int start, final int end) {
+        //last sentence starting at or before the annotation
+        int low = 0, high = starts.length - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= start) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        //sentences may only touch each other when they share a start (empty sentences), prefer the earliest one
+        int best = -1;
+        for (int i = found; i >= 0 && starts[i] == starts[found]; i--) {
+            if (end <= ends[i] && (best < 0 || order[i] < order[best])) {
+                best = i;
+            }
+        }
+        return best < 0 ? null : sentences[order[best]];
+    }
+
+    private static int distributeOverlapping(final BratDocument document, final Collection<BratSentence> sentences) {
+        List<BratEntity> entities = document.getEntities();
+        List<BratEvent> events = document.getEvents();
+        List<BratBRelation> relations = document.getRelations();
+        for (BratSentence sentence : sentences) {
+            entities.removeIf(e -> isIn(e.getStartPosition(), e.getEndPosition(), sentence)
+                    && sentence.getEntities().add(e));
+            events.removeIf(e -> isIn(e.getStartPosition(), e.getEndPosition(), sentence)
+                    && sentence.getEvents().add(e));
+            relations.removeIf(r -> r.getArguments().stream()
+                    .allMatch(a -> isIn(a.getStartPosition(), a.getEndPosition(), sentence))
+                    && sentence.getRelations().add(r));
+        }
+        return entities.size() + events.size() + relations.size();
+    }
+
+    private static boolean isIn(final int start, final int end, final BratSentence sentence) {
+        return start >= sentence.getStartPosition() && end <= sentence.getEndPosition();
+    }
+}
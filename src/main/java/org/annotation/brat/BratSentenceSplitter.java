@@ -0,0 +1,60 @@
+package org.annotation.brat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits the text of a brat document into sentences.
+ * <p>
+ * The sentences carry their offsets in the text, and their text is a view on the given text (see
+ * {@link org.utils.TextSlice}). Implementations are immutable and thread safe, and their {@code toString()} describes
+ * their configuration, so it can be used as a cache key.
+ */
+public interface BratSentenceSplitter {
+
+    /**
+     * @param text not copied, it must not change while the sentences are used
+     */
+    List<BratSentence> split(CharSequence text);
+
+    /**
+     * Splits the text read from the reader and hands every sentence to the consumer as soon as it is complete. The
+     * sentences hold their own strings. This implementation reads the whole text first.
+     */
+    default void split(final Reader in, final Consumer<? super BratSentence> consumer) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[1 << 16];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            text.append(buffer, 0, n);
+        }
+        for (BratSentence sentence : split(text)) {
+            sentence.setText(sentence.getText());
+            consumer.accept(sentence);
+        }
+    }
+
+    /**
+     * The splitter of a single delimiter, as used by the methods taking a {@code String} delimiter: sentences may be
+     * empty, and a text without the delimiter has no sentences at all.
+     */
+    static BratSentenceSplitter of(final String delimiter) {
+        return DelimiterSentenceSplitter.legacy(delimiter);
+    }
+
+    /**
+     * Splits at any of the delimiters in one scan, the longest delimiter wins where several match. Empty sentences are
+     * dropped, and a text without delimiters is one sentence.
+     */
+    static BratSentenceSplitter delimiters(final String... delimiters) {
+        return new DelimiterSentenceSplitter(delimiters);
+    }
+
+    /**
+     * Splits after sentence final punctuation and at blank lines, see {@link PunctuationSentenceSplitter}.
+     */
+    static BratSentenceSplitter punctuation() {
+        return new PunctuationSentenceSplitter();
+    }
+}
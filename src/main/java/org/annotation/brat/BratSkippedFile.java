@@ -0,0 +1,30 @@
+package org.annotation.brat;
+
+import lombok.Data;
+import lombok.NonNull;
+
+import java.io.File;
+
+/**
+ * An annotation file that was not loaded by {@link BratCorpusLoader}.
+ */
+@Data
+public class BratSkippedFile {
+
+    public enum Reason {
+        /** there is no ".txt" file next to the ".ann" file */
+        MISSING_TEXT,
+        /** some entities or events could not be mapped into a single sentence */
+        CROSS_SENTENCE_ANNOTATIONS,
+        /** the files could not be read */
+        READ_ERROR
+    }
+
+    @NonNull
+    private final File annoFile;
+
+    @NonNull
+    private final Reason reason;
+
+    private final String message;
+}
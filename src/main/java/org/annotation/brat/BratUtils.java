@@ -6,14 +6,20 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -33,12 +39,37 @@ public final class BratUtils {
 
     private static final String DEFAULT_ENCODING = "utf8";
 
+    static final Charset DEFAULT_CHARSET = Charset.forName(DEFAULT_ENCODING);
+
+    /**
+     * decoding buffers of up to this many chars (1 MiB) are kept per thread for the next annotation file, larger
+     * buffers are dropped after use so pool threads do not pin them
+     */
+    private static final int MAX_REUSED_BUFFER = 1 << 19;
+
+    private static final ThreadLocal<CharBuffer> ANNO_BUFFER = new ThreadLocal<>();
+
     public static List<BratDocument> saveAnnotation(@NonNull final List<BratSentence> bratSentences,
                                                     final String namePrefix,
                                                     final String lineDelimiter,
                                                     final int docSize,
                                                     @NonNull final File outputDir,
                                                     final boolean saveConfig) throws IOException {
+        return saveAnnotation(bratSentences, namePrefix, lineDelimiter, docSize, outputDir, saveConfig,
+                BratMetrics.getDefault());
+    }
+
+    /**
+     * Saves the sentences like {@link #saveAnnotation(List, String, String, int, File, boolean)}, and counts the
+     * written bytes and time in the given metrics.
+     */
+    public static List<BratDocument> saveAnnotation(@NonNull final List<BratSentence> bratSentences,
+                                                    final String namePrefix,
+                                                    final String lineDelimiter,
+                                                    final int docSize,
+                                                    @NonNull final File outputDir,
+                                                    final boolean saveConfig,
+                                                    @NonNull final BratMetrics metrics) throws IOException {
         if (!outputDir.exists()) {
             outputDir.mkdirs();
         }
@@ -54,7 +85,7 @@ public final class BratUtils {
             bratDocuments.add(
                     BratUtils.writeAnnotation(bratSentences.subList(start, end), lineDelimiter,
                             (StringUtils.isEmpty(namePrefix) ? "" : namePrefix + "_") + (start + 1) + "-" + end,
-                            outputDir));
+                            outputDir, metrics));
         }
         if (saveConfig) {
             writeAnnotationConfig(bratDocuments, outputDir);
@@ -62,118 +93,195 @@ public final class BratUtils {
         return bratDocuments;
     }
 
+    /**
+     * Writes the sentences into brat documents of {@code docSize} sentences each, as they come from the iterator.
+     * Only the current chunk and the type statistics for the annotation config are kept in memory.
+     */
+    public static BratSaveSummary saveAnnotation(@NonNull final Iterator<? extends BratSentence> bratSentences,
+                                                 final String namePrefix,
+                                                 final String lineDelimiter,
+                                                 final int docSize,
+                                                 @NonNull final File outputDir,
+                                                 final boolean saveConfig) throws IOException {
+        return saveAnnotation(bratSentences, namePrefix, lineDelimiter, docSize, outputDir, saveConfig,
+                BratMetrics.getDefault());
+    }
+
+    /**
+     * Saves the sentences like {@link #saveAnnotation(Iterator, String, String, int, File, boolean)}, and counts the
+     * written bytes and time in the given metrics.
+     */
+    public static BratSaveSummary saveAnnotation(@NonNull final Iterator<? extends BratSentence> bratSentences,
+                                                 final String namePrefix,
+                                                 final String lineDelimiter,
+                                                 final int docSize,
+                                                 @NonNull final File outputDir,
+                                                 final boolean saveConfig,
+                                                 @NonNull final BratMetrics metrics) throws IOException {
+        if (docSize < 1) {
+            throw new IllegalArgumentException("docSize must be positive: " + docSize);
+        }
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+
+        BratSaveSummary summary = new BratSaveSummary(outputDir);
+        BratSchemaStatistics statistics = saveConfig ? new BratSchemaStatistics() : null;
+        List<BratSentence> chunk = new ArrayList<>(docSize);
+        while (bratSentences.hasNext()) {
+            chunk.add(bratSentences.next());
+            if (chunk.size() == docSize || !bratSentences.hasNext()) {
+                long start = summary.getSentences();
+                long end = start + chunk.size();
+                BratDocument document = BratUtils.writeAnnotation(chunk, lineDelimiter,
+                        (StringUtils.isEmpty(namePrefix) ? "" : namePrefix + "_") + (start + 1) + "-" + end,
+                        outputDir, metrics);
+                if (null != statistics) {
+                    statistics.add(document);
+                }
+                summary.setDocuments(summary.getDocuments() + 1);
+                summary.setSentences(end);
+                chunk.clear();
+            }
+        }
+        if (null != statistics) {
+            statistics.writeAnnotationConfig(outputDir);
+        }
+        return summary;
+    }
+
+    public static BratSaveSummary saveAnnotation(@NonNull final Stream<? extends BratSentence> bratSentences,
+                                                 final String namePrefix,
+                                                 final String lineDelimiter,
+                                                 final int docSize,
+                                                 @NonNull final File outputDir,
+                                                 final boolean saveConfig) throws IOException {
+        return saveAnnotation(bratSentences.iterator(), namePrefix, lineDelimiter, docSize, outputDir, saveConfig);
+    }
+
+    public static BratSaveSummary saveAnnotation(@NonNull final Stream<? extends BratSentence> bratSentences,
+                                                 final String namePrefix,
+                                                 final String lineDelimiter,
+                                                 final int docSize,
+                                                 @NonNull final File outputDir,
+                                                 final boolean saveConfig,
+                                                 @NonNull final BratMetrics metrics) throws IOException {
+        return saveAnnotation(bratSentences.iterator(), namePrefix, lineDelimiter, docSize, outputDir, saveConfig,
+                metrics);
+    }
+
     public static BratDocument writeAnnotation(@NonNull final Collection<? extends BratSentence> sentences,
                                                @NonNull final String delimiter,
                                                @NonNull final String docId,
                                                @NonNull final File outputDir) throws IOException {
+        return writeAnnotation(sentences, delimiter, docId, outputDir, BratMetrics.getDefault());
+    }
+
+    public static BratDocument writeAnnotation(@NonNull final Collection<? extends BratSentence> sentences,
+                                               @NonNull final String delimiter,
+                                               @NonNull final String docId,
+                                               @NonNull final File outputDir,
+                                               @NonNull final BratMetrics metrics) throws IOException {
         BratDocument document = BratUtils.generateDocument(sentences, docId, delimiter);
-        writeAnnotation(document, docId, outputDir);
+        writeAnnotation(document, docId, outputDir, metrics);
         return document;
     }
 
     public static void writeAnnotation(@NonNull final BratDocument document,
                                        @NonNull final String docId,
                                        @NonNull final File outputDir) throws IOException {
+        writeAnnotation(document, docId, outputDir, BratMetrics.getDefault());
+    }
 
-
+    /**
+     * writes the text and annotation files of the document, and counts their bytes and the time as
+     * {@link BratMetrics.Stage#WRITE} in the given metrics
+     */
+    public static void writeAnnotation(@NonNull final BratDocument document,
+                                       @NonNull final String docId,
+                                       @NonNull final File outputDir,
+                                       @NonNull final BratMetrics metrics) throws IOException {
         File textFile = new File(outputDir, docId + BratUtils.TEXT_FILE_EXTENSION);
         File annoFile = new File(outputDir, docId + BratUtils.ANNO_FILE_EXTENSION);
 
-        FileUtils.write(textFile, document.getText() + "\n", "utf-8");
-        FileUtils.write(annoFile, document.toBratString() + "\n", "utf8");
+        final long start = System.nanoTime();
+        Files.createDirectories(outputDir.toPath());
+        try (Writer writer = Files.newBufferedWriter(textFile.toPath(), DEFAULT_CHARSET)) {
+            writer.write(document.getText());
+            writer.write('\n');
+        }
+        try (Writer writer = Files.newBufferedWriter(annoFile.toPath(), DEFAULT_CHARSET)) {
+            document.writeBrat(writer);
+            writer.write('\n');
+        }
+        metrics.recordSince(BratMetrics.Stage.WRITE, textFile.length() + annoFile.length(), start);
     }
 
     public static void writeAnnotationConfig(@NonNull final Collection<? extends BratDocument> collection,
                                              @NonNull final File outputDir) throws IOException {
+        BratSchemaStatistics.of(collection).writeAnnotationConfig(outputDir);
+    }
 
-        StringBuilder sb = new StringBuilder();
-
-        //get event infos
-        Map<String, Map<String, Set<String>>> eventTypeMap = new HashMap<>();
-        collection.stream().map(BratDocument::getAllEvents).flatMap(Collection::stream).forEach(event -> {
-            Map<String, Set<String>> argMap = eventTypeMap.computeIfAbsent(event.getType(), k -> new HashMap<>());
-            event.getArgument()
-                    .forEach((key, value) -> argMap.computeIfAbsent(key, k -> new HashSet<>()).add(value.getType()));
-        });
-
-
-        //add entity
-        sb.append("\n\n[entities]\n\n");
-        Set<String> entityTypes = getEntityTypes(collection);
-        entityTypes.removeAll(eventTypeMap.keySet());
-        entityTypes.stream().sorted().forEach(t -> sb.append(t).append("\n"));
-
-        sb.append("\n\n[events]\n\n");
-        eventTypeMap.forEach((key, value) -> {
-            sb.append(key).append("\t")
-                    .append(value.entrySet()
-                            .stream()
-                            .map(e -> e.getKey() + "?:"
-                                    + e.getValue().stream().sorted().collect(Collectors.joining("|")))
-                            .collect(Collectors.joining(", ")))
-                    .append("\n");
-        });
-
-        sb.append("\n\n[relations]\n\n");
-        Set<String> relationTypes = getRelationTypes(collection);
-        for (String relationType : relationTypes) {
-            sb.append(relationType).append("\t");
-            List<Set<String>> argumentTypes =
-                    collection.stream()
-                            .map(BratDocument::getAllRelations)
-                            .flatMap(Collection::stream)
-                            .filter(relation -> relationType.equalsIgnoreCase(relation.getType()))
-                            .map(r -> r.getArguments()
-                                    .stream()
-                                    .map(e -> Set.of(e.getType()))
-                                    .collect(Collectors.toList()))
-                            .reduce(BratUtils::mergeTypes).orElse(List.of());
-            sb.append(IntStream.range(0, argumentTypes.size())
-                    .mapToObj(i -> BratBRelation.DEFAULT_ARG + i + ":" +
-                            argumentTypes.get(i).stream().sorted().collect(Collectors.joining("|")))
-                    .collect(Collectors.joining(", ")));
-            sb.append("\n");
-        }
+    /**
+     * adds the types of the documents to an existing annotation config of the directory
+     */
+    public static void updateAnnotationConfig(@NonNull final Collection<? extends BratDocument> collection,
+                                              @NonNull final File outputDir) throws IOException {
+        BratSchemaStatistics.of(collection).updateAnnotationConfig(outputDir);
+    }
 
+    /**
+     * reads all brat documents in the directory tree, at any depth
+     */
+    public static List<BratDocument> readBratDirectoryR(@NonNull final File inputDir, final String lineDilimiter) throws IOException {
+        return new BratCorpusLoader(lineDilimiter).load(inputDir).getDocuments();
+    }
 
-        sb.append("\n\n[attributes]\n\n");
-        //TODO: add attribute
+    /**
+     * reads all brat documents in the directory tree, unchanged files are taken from the cache
+     */
+    public static List<BratDocument> readBratDirectoryR(@NonNull final File inputDir, final String lineDilimiter,
+                                                        final BratParseCache cache) throws IOException {
+        BratCorpusLoader loader = new BratCorpusLoader(lineDilimiter);
+        loader.setCache(cache);
+        return loader.load(inputDir).getDocuments();
+    }
 
-        FileUtils.write(new File(outputDir, ANNO_CONFIG_FILE), sb.toString(), "utf-8");
+    /**
+     * reads all brat documents in the directory tree, at any depth, split into sentences by the splitter
+     */
+    public static List<BratDocument> readBratDirectoryR(@NonNull final File inputDir,
+                                                        final BratSentenceSplitter splitter) throws IOException {
+        return new BratCorpusLoader(splitter).load(inputDir).getDocuments();
+    }
 
+    public static List<BratDocument> readBratDirectory(@NonNull final File inputDir, final String lineDilimiter) throws IOException {
+        return readBratDirectory(inputDir, lineDilimiter, null);
     }
 
-    public static List<BratDocument> readBratDirectoryR(@NonNull final File inputDir, final String lineDilimiter) throws IOException {
-        List<BratDocument> docs = new ArrayList<>(readBratDirectory(inputDir, lineDilimiter));
-        File[] subDirs = inputDir.listFiles(File::isDirectory);
-        if (null != subDirs) {
-            for (File subDir : subDirs) {
-                docs.addAll(readBratDirectory(subDir, lineDilimiter));
-            }
-        }
-        return docs;
+    /**
+     * reads the brat documents of the directory, split into sentences by the splitter
+     */
+    public static List<BratDocument> readBratDirectory(@NonNull final File inputDir,
+                                                       final BratSentenceSplitter splitter) throws IOException {
+        return readBratDirectory(inputDir, splitter, null);
     }
 
-    public static List<BratDocument> readBratDirectory(@NonNull final File inputDir, final String lineDilimiter) throws IOException {
-        List<BratDocument> docs = new ArrayList<>();
-        for (File f : inputDir.listFiles(ANNO_FILE_FILTER)) {
-            String docId = getBaseFilename(f, ANNO_FILE_EXTENSION);
-            File textF = new File(inputDir, docId + BratUtils.TEXT_FILE_EXTENSION);
-            if (!textF.exists()) {
-                log.warn("File " + textF.getName() + " does not exist!");
-                continue;
-            }
-            log.debug("Reading from " + f.getName());
+    /**
+     * reads the brat documents of the directory, unchanged files are taken from the cache
+     */
+    public static List<BratDocument> readBratDirectory(@NonNull final File inputDir, final String lineDilimiter,
+                                                       final BratParseCache cache) throws IOException {
+        return readBratDirectory(inputDir, toSplitter(lineDilimiter), cache);
+    }
 
-            BratDocument bratDocument = BratUtils.readAnnotation(textF, f, lineDilimiter);
-            if (!bratDocument.getEvents().isEmpty() || !bratDocument.getEntities().isEmpty()) {
-                log.warn("There are events or nes among sentences!");
-                continue;
-            }
-            log.debug("Get " + bratDocument.getSentences().size() + " sentences.");
-            docs.add(bratDocument);
-        }
-        return docs;
+    public static List<BratDocument> readBratDirectory(@NonNull final File inputDir,
+                                                       final BratSentenceSplitter splitter,
+                                                       final BratParseCache cache) throws IOException {
+        BratCorpusLoader loader = new BratCorpusLoader(splitter);
+        loader.setMaxDepth(1);
+        loader.setCache(cache);
+        return loader.load(inputDir).getDocuments();
     }
 
     public static BratDocument readAnnotation(@NonNull final File textFile,
@@ -183,10 +291,70 @@ public final class BratUtils {
 
     public static BratDocument readAnnotation(@NonNull final File textFile, @NonNull final File annoFile,
                                               final String delimiter) throws IOException {
-        String text = FileUtils.readFileToString(textFile, DEFAULT_ENCODING);
-        List<String> annoLines = FileUtils.readLines(annoFile, DEFAULT_ENCODING);
+        return readAnnotation(getBaseFilename(textFile, TEXT_FILE_EXTENSION), textFile.toPath(), annoFile.toPath(),
+                delimiter);
+    }
+
+    /**
+     * Reads a brat document from files. Large files are memory mapped, and the annotation lines are parsed straight
+     * from the decoded characters without creating a string per line.
+     */
+    public static BratDocument readAnnotation(@NonNull final String id, @NonNull final Path textFile,
+                                              @NonNull final Path annoFile,
+                                              final String delimiter) throws IOException {
+        return readAnnotation(id, textFile, annoFile, delimiter, BratLabelPool.getDefault());
+    }
+
+    /**
+     * Reads a brat document from files, with the labels taken from the given pool.
+     */
+    public static BratDocument readAnnotation(@NonNull final String id, @NonNull final Path textFile,
+                                              @NonNull final Path annoFile,
+                                              final String delimiter,
+                                              @NonNull final BratLabelPool labels) throws IOException {
+        return readAnnotation(id, textFile, annoFile, toSplitter(delimiter), labels);
+    }
+
+    /**
+     * Reads a brat document from files, split into sentences by the splitter, with the labels taken from the given
+     * pool.
+     *
+     * @param splitter null for a document without sentences
+     */
+    public static BratDocument readAnnotation(@NonNull final String id, @NonNull final Path textFile,
+                                              @NonNull final Path annoFile,
+                                              final BratSentenceSplitter splitter,
+                                              @NonNull final BratLabelPool labels) throws IOException {
+        return readAnnotation(id, textFile, annoFile, splitter, labels, BratMetrics.getDefault());
+    }
+
+    /**
+     * Reads a brat document from files like {@link #readAnnotation(String, Path, Path, BratSentenceSplitter,
+     * BratLabelPool)}, and counts lines, rejects, the document and the time per stage in the given metrics.
+     */
+    public static BratDocument readAnnotation(@NonNull final String id, @NonNull final Path textFile,
+                                              @NonNull final Path annoFile,
+                                              final BratSentenceSplitter splitter,
+                                              @NonNull final BratLabelPool labels,
+                                              @NonNull final BratMetrics metrics) throws IOException {
+        long start = System.nanoTime();
+        String text = org.utils.IOUtils.readString(textFile, DEFAULT_CHARSET);
+
+        CharBuffer buffer = org.utils.IOUtils.readChars(annoFile, DEFAULT_CHARSET, ANNO_BUFFER.get());
+        if (buffer.capacity() <= MAX_REUSED_BUFFER) {
+            ANNO_BUFFER.set(buffer);
+        }
+        final long annoChars = buffer.remaining();
+        metrics.recordSince(BratMetrics.Stage.READ, text.length() + annoChars, start);
 
-        return readAnnotation(getBaseFilename(textFile,TEXT_FILE_EXTENSION), text, annoLines, delimiter);
+        start = System.nanoTime();
+        BratAnnotationParser parser = new BratAnnotationParser(labels, metrics);
+        org.utils.IOUtils.forEachLine(buffer, parser::accept);
+        BratParseResult result = parser.finish();
+        metrics.recordSince(BratMetrics.Stage.PARSE, annoChars, start);
+        result.getDiagnostics().forEach(BratUtils::logDiagnostic);
+
+        return createDocument(id, text, result, splitter, metrics);
     }
 
     public static BratDocument readAnnotation(@NonNull final String id, @NonNull final String textFile,
@@ -195,11 +363,14 @@ public final class BratUtils {
         return readAnnotation(id, textFile, annoFile, DEFAULT_SENTENCE_DELIMITER);
     }
 
+    /**
+     * reads the files either from the CLASSPATH or from the file system. The CLASSPATH takes priority.
+     */
     public static BratDocument readAnnotation(@NonNull final String id, @NonNull final String textFile,
                                               @NonNull final String annoFile,
                                               @NonNull final String delimiter) throws IOException {
-        return readAnnotation(id, org.utils.IOUtils.openStream(textFile),
-                org.utils.IOUtils.openStream(annoFile), delimiter);
+        return readAnnotation(id, org.utils.IOUtils.getPath(textFile), org.utils.IOUtils.getPath(annoFile),
+                delimiter);
     }
 
     public static BratDocument readAnnotation(@NonNull final String id, @NonNull final InputStream textInput,
@@ -213,61 +384,87 @@ public final class BratUtils {
                                               @NonNull final String delimiter) throws IOException {
 
         String text = IOUtils.toString(textInput, DEFAULT_ENCODING);
-        List<String> annoLines = IOUtils.readLines(annoInput, DEFAULT_ENCODING);
-        return readAnnotation(id, text, annoLines, delimiter);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(annoInput, DEFAULT_CHARSET));
+        BratAnnotationParser parser = new BratAnnotationParser();
+        for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+            parser.accept(line);
+        }
+        BratParseResult result = parser.finish();
+        result.getDiagnostics().forEach(BratUtils::logDiagnostic);
+        return createDocument(id, text, result, delimiter);
     }
 
     public static BratDocument readAnnotation(@NonNull final String id, @NonNull final String text,
                                               @NonNull final List<String> annoLines, final String delimiter) {
-        BratDocument document = new BratDocument(id, text);
+        return readAnnotation(id, text, annoLines, delimiter, BratUtils::logDiagnostic);
+    }
+
+    /**
+     * Reads a brat document and reports every line that could not be (fully) read to the given consumer instead of
+     * the log.
+     */
+    public static BratDocument readAnnotation(@NonNull final String id, @NonNull final String text,
+                                              @NonNull final Iterable<? extends CharSequence> annoLines,
+                                              final String delimiter,
+                                              @NonNull final Consumer<? super BratParseDiagnostic> diagnostics) {
+        BratParseResult result = BratAnnotationParser.parse(annoLines);
+        result.getDiagnostics().forEach(diagnostics);
+        return createDocument(id, text, result, delimiter);
+    }
+
+    private static BratDocument createDocument(@NonNull final String id, @NonNull final String text,
+                                               @NonNull final BratParseResult result, final String delimiter) {
+        return createDocument(id, text, result, toSplitter(delimiter), BratMetrics.getDefault());
+    }
 
-        Map<String, BratEntity> entities = readEntities(annoLines);
-        document.getEntities().addAll(entities.values());
+    private static BratDocument createDocument(@NonNull final String id, @NonNull final String text,
+                                               @NonNull final BratParseResult result,
+                                               final BratSentenceSplitter splitter,
+                                               final BratMetrics metrics) {
+        BratDocument document = new BratDocument(id, text);
 
-        List<BratEvent> events = readEvents(annoLines, entities);
-        events.forEach(e -> e.setDocId(id));
-        document.getEvents().addAll(events);
+        document.getEntities().addAll(result.getEntities().values());
 
-        List<BratBRelation> relations = readRelations(annoLines, entities);
-        document.getRelations().addAll(relations);
+        result.getEvents().forEach(e -> e.setDocId(id));
+        document.getEvents().addAll(result.getEvents());
 
-        Map<String, Set<String>> attributes = readAttributes(annoLines);
-        document.getEvents().stream().filter(e -> attributes.containsKey(e.getId()))
-                .forEach(e -> e.getAttribute().addAll(attributes.get(e.getId())));
+        document.getRelations().addAll(result.getRelations());
 
         //generate sentences
-        if (null != delimiter) {
-            List<BratSentence> sentences = splitSentence(text, delimiter);
+        if (null != splitter) {
+            long start = System.nanoTime();
+            List<BratSentence> sentences = splitter.split(text);
             sentences.forEach(s -> s.setId(id + "_" + s.getStartPosition()));
             document.setSentences(sentences);
+            metrics.recordSince(BratMetrics.Stage.SPLIT, 0, start);
 
             //mapped annotation to sentences
+            start = System.nanoTime();
             distributeAnnotation(document, sentences);
-            if (sentences.stream().mapToInt(s -> s.getEntities().size()).sum() != entities.size()) {
-                log.warn("There are some entities can not be mapped into sentences!");
+            metrics.recordSince(BratMetrics.Stage.DISTRIBUTE, 0, start);
+            final int unmapped = document.getEntities().size();
+            if (unmapped > 0) {
+                metrics.addUnmappedEntities(unmapped);
+                log.warn("{} entities of {} can not be mapped into sentences!", unmapped, id);
             }
         }
-//        return sentences;
+        metrics.countDocument();
         return document;
     }
 
     public static void distributeAnnotation(@NonNull final BratDocument document, @NonNull final Collection<BratSentence> sentences) {
-        sentences.forEach(sentence -> distributeAnnotation(document, sentence));
+        BratSentenceDistributor.distribute(document, sentences);
     }
 
     public static void distributeAnnotation(@NonNull final BratDocument document, @NonNull final BratSentence sent) {
-        document.getEntities().stream().filter(e -> isIn(e, sent)).forEach(sent.getEntities()::add);
-        document.getEvents().stream().filter(e -> isIn(e, sent)).forEach(sent.getEvents()::add);
-        document.getRelations().stream().filter(r -> isIn(r, sent)).forEach(sent.getRelations()::add);
-
-        document.getEntities().removeAll(sent.getEntities());
-        document.getRelations().removeAll(sent.getRelations());
-        document.getEvents().removeAll(sent.getEvents());
+        BratSentenceDistributor.distribute(document, List.of(sent));
     }
 
     public static List<BratEntity> readEntities(File file) throws IOException {
         //TODO-2: to deal with the text with "\n"
-        return new ArrayList<>(readEntities(FileUtils.readLines(file, DEFAULT_ENCODING)).values());
+        BratParseResult result = BratAnnotationParser.parse(FileUtils.readLines(file, DEFAULT_ENCODING));
+        result.getDiagnostics().forEach(BratUtils::logDiagnostic);
+        return new ArrayList<>(result.getEntities().values());
     }
 
     public static String getAnnoFileName(@NonNull final String textFileName) {
@@ -307,11 +504,14 @@ public final class BratUtils {
 //            sentence.setStartPosition(startPos);
 //            sentence.setEndPosition(startPos + sentence.getText().length());
 
-            startPos += sentence.getText().length() + lineDelimiter.length();
+            startPos += sentence.getTextView().length() + lineDelimiter.length();
         }
 
+        //the arguments were moved
+        sentences.forEach(s -> s.getEvents().forEach(BratEvent::invalidateSpan));
+
         BratDocument document = new BratDocument(docId, sentences.stream()
-                .map(BratSentence::getText)
+                .map(BratSentence::getTextView)
                 .collect(Collectors.joining(lineDelimiter)));
 //        document.getSentences().addAll(sentences);
         sentences.forEach(s -> document.getEntities().addAll(s.getEntities()));
@@ -321,230 +521,16 @@ public final class BratUtils {
         return document;
     }
 
-    private static Map<String, Set<String>> readAttributes(@NonNull final List<String> annoLines) {
-        Map<String, Set<String>> map = new HashMap<>();
-
-        annoLines.stream()
-                .filter(StringUtils::isNoneEmpty)
-                .filter(l -> 'A' == l.charAt(0))
-                .map(BratUtils::readAttribute)
-                .filter(Objects::nonNull)
-                .forEach(a -> map.computeIfAbsent(a[1], k -> new HashSet<>()).add(a[0]));
-        return map;
+    private static void logDiagnostic(@NonNull final BratParseDiagnostic diagnostic) {
+        log.warn("Illegal brat annotation ({}) in line {}: \"{}\"", diagnostic.getReason(),
+                diagnostic.getLineNumber(), diagnostic.getLine());
     }
 
-    private static String[] readAttribute(@NonNull final String line) {
-        String[] tokens1 = line.split("\t");
-        if (tokens1.length != 2) {
-            log.warn("Illegal brat attribute format1: \"" + line + "\"");
-            return null;
-        }
-
-        String[] tokens2 = tokens1[1].split(" ");
-        if (tokens2.length != 2) {
-            log.warn("Illegal brat attribute format2: \"" + line + "\"");
-            return null;
-        }
-
-        return tokens2;
-    }
-
-    private static List<BratBRelation> readRelations(@NonNull final List<String> annoLines,
-                                                     @NonNull final Map<String, BratEntity> entities) {
-        List<BratBRelation> results = new ArrayList<>();
-
-        annoLines.stream()
-                .filter(StringUtils::isNoneEmpty)
-                .filter(l -> 'R' == l.charAt(0))
-                .map(l -> BratUtils.readRelation1(l, entities))
-                .filter(Objects::nonNull)
-                .forEach(results::add);
-        IntStream.range(0, annoLines.size())
-                .filter(i -> StringUtils.isNoneEmpty(annoLines.get(i)) && '*' == annoLines.get(i).charAt(0))
-                .mapToObj(i -> BratUtils.readRelation2(i, annoLines.get(i), entities))
-                .filter(Objects::nonNull)
-                .forEach(results::add);
-
-        return results;
-
-    }
-
-    private static BratBRelation readRelation1(@NonNull final String line,
-                                               @NonNull final Map<String, BratEntity> entities) {
-        String[] tokens1 = line.split("\t");
-        if (tokens1.length != 2) {
-            log.warn("Illegal brat relation * format1: \"" + line + "\"");
-            return null;
-        }
-        String[] tokens2 = tokens1[1].split(" ");
-        if (3 != tokens2.length || !tokens2[1].startsWith("Arg1:") || !tokens2[2].startsWith("Arg2:")) {
-            log.warn("Illegal brat relation * format2: \"" + line + "\"");
-            return null;
-        }
-        String key1 = tokens2[1].substring(5);
-        String key2 = tokens2[2].substring(5);
-        if (!entities.containsKey(key1) || !entities.containsKey(key2)) {
-            log.warn("Illegal brat relation * argument: \"" + line + "\"");
-            return null;
-        }
-        BratBRelation relation = new BratBRelation(tokens2[0]);
-        relation.setId(tokens1[0]);
-        relation.getArguments().addAll(List.of(entities.get(key1), entities.get(key2)));
-        return relation;
-    }
-
-    private static BratBRelation readRelation2(final int lineN, @NonNull final String line,
-                                               @NonNull final Map<String, BratEntity> entities) {
-        String[] tokens1 = line.split("\t");
-        if (tokens1.length != 2) {
-            log.warn("Illegal brat relation * format1: \"" + line + "\"");
-            return null;
-        }
-        String[] tokens2 = tokens1[1].split(" ");
-        if (tokens2.length < 3) {
-            log.warn("Illegal brat relation * format2: \"" + line + "\"");
-            return null;
-        }
-
-        BratBRelation relation = new BratBRelation(tokens2[0]);
-//        relation.setId("*:" + lineN);
-        relation.setId("*");
-        for (int i = 1; i < tokens2.length; i++) {
-            if (!entities.containsKey(tokens2[i])) {
-//                log.warn("Illegal brat relation * argument: \"" + line + "\"");
-                continue;
-            }
-            relation.getArguments().add(entities.get(tokens2[i]));
-        }
-        if (relation.getArguments().size() < 2) {
-            log.warn("Illegal brat relation * argument: \"" + line + "\"");
-            return null;
-        }
-        return relation;
-    }
-
-    private static List<BratEvent> readEvents(@NonNull final List<String> annoLines,
-                                              @NonNull final Map<String, BratEntity> entities) {
-        return annoLines.stream()
-                .filter(StringUtils::isNoneEmpty)
-                .filter(l -> 'E' == l.charAt(0))
-                .map(l -> BratUtils.readEvent(l, entities))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-    }
-
-    private static BratEvent readEvent(@NonNull final String line, @NonNull final Map<String, BratEntity> entities) {
-        String[] tokens1 = line.split("\t");
-        if (tokens1.length != 2) {
-            log.warn("Illegal brat event format1: \"" + line + "\"");
-            return null;
-        }
-
-        String[] args = tokens1[1].split(" ");
-        if (args.length < 1) {
-            log.warn("Illegal brat event format2: \"" + line + "\"");
-            return null;
-        }
-
-        String[] trigger = readEventArgument(args[0]);
-        if (null == trigger || !entities.containsKey(trigger[1])) {
-            log.warn("Illegal brat event format (illegal trigger!) \"" + line + "\"");
-            return null;
-        }
-
-        BratEvent bratEvent = new BratEvent(trigger[0], entities.get(trigger[1]));
-        bratEvent.setId(tokens1[0]);
-        IntStream.range(1, args.length)
-                .mapToObj(i -> readEventArgument(args[i]))
-                .filter(Objects::nonNull)
-                .filter(a -> entities.containsKey(a[1]))
-                .forEach(a -> bratEvent.getArgument().put(a[0], entities.get(a[1])));
-        return bratEvent;
-    }
-
-    private static String[] readEventArgument(@NonNull final String string) {
-        String[] array = string.split(":");
-        return 2 == array.length ? array : null;
-
-    }
-
-    private static Map<String, BratEntity> readEntities(@NonNull final Collection<? extends String> annoLines) {
-        return annoLines.stream()
-                .filter(StringUtils::isNoneEmpty)
-                .filter(s -> 'T' == s.charAt(0))
-                .map(BratUtils::readEntity)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toMap(BratEntity::getId, Function.identity()));
-    }
-
-    private static BratEntity readEntity(@NonNull final String line) {
-//        if ('T' != line.charAt(0)) {
-//            //not a entity
-//            return null;
-//        }
-        String[] tokens = line.split("\t");
-        if (tokens.length != 3) {
-            log.warn("Illegal brat entity format:\"" + line + "\"");
-            return null;
-        }
-
-
-        String[] tokens2 = tokens[1].split(" ");
-        if (tokens2.length < 3) {
-            // there are some special cases and the line looks like:
-            // T1	entityType 3804 3829;3831 3845  XXXX
-            log.warn("Illegal brat entity type/pos format." + line);
-            return null;
-        }
-        BratEntity be = new BratEntity(tokens2[0], tokens[2]);
-        be.setId(tokens[0]);
-        be.setStartPosition(Integer.parseInt(tokens2[1]));
-        be.setEndPosition(Integer.parseInt(tokens2[tokens2.length - 1]));
-        return be;
-    }
-
-    private static List<BratSentence> splitSentence(@NonNull final File file,
-                                                    @NonNull final String delimiter) throws IOException {
-        return splitSentence(FileUtils.readFileToString(file, DEFAULT_ENCODING), delimiter);
-    }
-
-    private static List<BratSentence> splitSentence(@NonNull final String text, @NonNull final String delimiter) {
-        List<BratSentence> sentences = new ArrayList<>();
-        int index = 0;
-        while (index < text.length()) {
-            int next = text.indexOf(delimiter, index);
-            if (next < 0) {
-                if (index == 0) {
-                    //found no delimiter in the text. No sentences will be added
-                    return sentences;
-                }
-                sentences.add(new BratSentence(text.substring(index), index, text.length(), ""));
-                break;
-            } else {
-                sentences.add(new BratSentence(text.substring(index, next), index, next, ""));
-                index = next + delimiter.length();
-            }
-        }
-        return sentences;
-    }
-
-    private static boolean isIn(@NonNull final BratEvent event, @NonNull final BratSentence sentence) {
-        return isIn(event.getStartPosition(), event.getEndPosition(), sentence.getStartPosition(),
-                sentence.getEndPosition());
-    }
-
-    private static boolean isIn(@NonNull final BratBRelation relation, @NonNull final BratSentence sentence) {
-        return relation.getArguments().stream().allMatch(a -> isIn(a, sentence));
-    }
-
-    private static boolean isIn(@NonNull final BratEntity entity, @NonNull final BratSentence sentence) {
-        return isIn(entity.getStartPosition(), entity.getEndPosition(), sentence.getStartPosition(),
-                sentence.getEndPosition());
-    }
-
-    private static boolean isIn(final int eStart, final int eEnd, final int sStart, final int sEnd) {
-        return eStart >= sStart && eEnd <= sEnd;
+    /**
+     * the legacy splitter of the methods taking a delimiter, null for none
+     */
+    private static BratSentenceSplitter toSplitter(final String delimiter) {
+        return null == delimiter ? null : BratSentenceSplitter.of(delimiter);
     }
 
     private static String getBaseFilename(@NonNull final File file, @NonNull final String extension){
@@ -566,36 +552,4 @@ public final class BratUtils {
     private static String toHexString(int i) {
         return (i < 16 ? "0" : "") + Integer.toHexString(i);
     }
-
-    private static Set<String> getEntityTypes(@NonNull final Collection<? extends BratDocument> collection) {
-        return collection.stream()
-                .map(BratDocument::getAllEntities)
-                .flatMap(Collection::stream)
-                .map(BratEntity::getType).collect(Collectors.toSet());
-    }
-
-    private static Set<String> getRelationTypes(Collection<? extends BratDocument> collection) {
-        return collection.stream()
-                .map(BratDocument::getAllRelations)
-                .flatMap(Collection::stream)
-                .map(BratBRelation::getType).collect(Collectors.toSet());
-    }
-
-    private static List<Set<String>> mergeTypes(@NonNull final List<Set<String>> list1,
-                                                @NonNull final List<Set<String>> list2) {
-        final int intersection = Math.min(list1.size(), list2.size());
-        List<Set<String>> result =
-                IntStream.range(0, intersection)
-                        .mapToObj(i -> Stream.concat(list1.get(i).stream(), list2.get(i).stream())
-                                .collect(Collectors.toSet()))
-                        .collect(Collectors.toList());
-        if (list1.size() == list2.size()) {
-            return result;
-        }
-        List<Set<String>> l = list1.size() > list2.size() ? list1 : list2;
-        IntStream.range(intersection, l.size()).forEach(i -> result.add(new HashSet<>(l.get(i))));
-        return result;
-    }
 }
-
-    
\ No newline at end of file
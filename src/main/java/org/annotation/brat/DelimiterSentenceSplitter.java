@@ -0,0 +1,183 @@
+package org.annotation.brat;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+import org.utils.TextSlice;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits a text at literal delimiters.
+ * <p>
+ * All delimiters are matched in a single scan: the first characters of the delimiters are kept in a bit set, so most
+ * positions are passed with one lookup, and only the delimiters starting with the current character are compared.
+ * Where several delimiters match, the longest one is taken, e.g. a blank line "\n\n" before "\n".
+ * {@link #split(Reader, Consumer)} scans the input chunk by chunk and only keeps the current sentence, so texts larger
+ * than the heap can be split.
+ */
+@ToString
+@EqualsAndHashCode
+public final class DelimiterSentenceSplitter implements BratSentenceSplitter {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * longest first
+     */
+    private final String[] delimiters;
+
+    /**
+     * empty sentences are kept, and a text without delimiters has no sentences
+     */
+    private final boolean legacy;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final BitSet firstChars = new BitSet();
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final int maxLength;
+
+    public DelimiterSentenceSplitter(@NonNull final String... delimiters) {
+        this(delimiters, false);
+    }
+
+    private DelimiterSentenceSplitter(final String[] delimiters, final boolean legacy) {
+        if (delimiters.length == 0) {
+            throw new IllegalArgumentException("No sentence delimiter given");
+        }
+        this.delimiters = Arrays.stream(delimiters)
+                .peek(d -> {
+                    if (null == d || d.isEmpty()) {
+                        throw new IllegalArgumentException("Empty sentence delimiter");
+                    }
+                })
+                .distinct()
+                .sorted(Comparator.comparingInt(String::length).reversed().thenComparing(Comparator.naturalOrder()))
+                .toArray(String[]::new);
+        this.legacy = legacy;
+        for (String delimiter : this.delimiters) {
+            firstChars.set(delimiter.charAt(0));
+        }
+        this.maxLength = this.delimiters[0].length();
+    }
+
+    static DelimiterSentenceSplitter legacy(@NonNull final String delimiter) {
+        return new DelimiterSentenceSplitter(new String[]{delimiter}, true);
+    }
+
+    @Override
+    public List<BratSentence> split(@NonNull final CharSequence text) {
+        List<BratSentence> sentences = new ArrayList<>();
+        final int n = text.length();
+        int start = 0;
+        boolean found = false;
+        for (int i = 0; i < n; ) {
+            final int length = matchLength(text, i, n);
+            if (length > 0) {
+                found = true;
+                add(sentences, text, start, i);
+                i += length;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (legacy && !found) {
+            return new ArrayList<>();
+        }
+        add(sentences, text, start, n);
+        return sentences;
+    }
+
+    private void add(final List<BratSentence> sentences, final CharSequence text, final int start, final int end) {
+        if (end > start || legacy && end < text.length()) {
+            sentences.add(new BratSentence(new TextSlice(text, start, end), start, end, ""));
+        }
+    }
+
+    @Override
+    public void split(@NonNull final Reader in, @NonNull final Consumer<? super BratSentence> consumer)
+            throws IOException {
+        StringBuilder pending = new StringBuilder();
+        char[] chunk = new char[CHUNK_SIZE];
+        //offset of pending in the text
+        int base = 0;
+        //start of the current sentence and next position to scan, in pending
+        int start = 0, i = 0;
+        boolean found = false, end = false;
+        while (!end) {
+            final int n = in.read(chunk);
+            if (n < 0) {
+                end = true;
+            } else {
+                pending.append(chunk, 0, n);
+            }
+            final int limit = pending.length();
+            //a match is only certain to be the longest one if the longest delimiter fits
+            final int scanLimit = end ? limit : limit - maxLength + 1;
+            while (i < scanLimit) {
+                final int length = matchLength(pending, i, limit);
+                if (length > 0) {
+                    found = true;
+                    emit(consumer, pending, base, start, i, false);
+                    i += length;
+                    start = i;
+                } else {
+                    i++;
+                }
+            }
+            if (start > 0 && !(legacy && !found)) {
+                pending.delete(0, start);
+                base += start;
+                i -= start;
+                start = 0;
+            }
+        }
+        if (legacy && !found) {
+            return;
+        }
+        emit(consumer, pending, base, start, pending.length(), true);
+    }
+
+    private void emit(final Consumer<? super BratSentence> consumer, final StringBuilder pending, final int base,
+                      final int start, final int end, final boolean last) {
+        if (end > start || legacy && !last) {
+            consumer.accept(new BratSentence(pending.substring(start, end), base + start, base + end, ""));
+        }
+    }
+
+    /**
+     * @return the length of the longest delimiter at i, or 0
+     */
+    private int matchLength(final CharSequence text, final int i, final int limit) {
+        final char c = text.charAt(i);
+        if (!firstChars.get(c)) {
+            return 0;
+        }
+        for (String delimiter : delimiters) {
+            if (delimiter.charAt(0) == c && i + delimiter.length() <= limit && matches(text, i, delimiter)) {
+                return delimiter.length();
+            }
+        }
+        return 0;
+    }
+
+    private static boolean matches(final CharSequence text, final int i, final String delimiter) {
+        for (int j = 1; j < delimiter.length(); j++) {
+            if (text.charAt(i + j) != delimiter.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
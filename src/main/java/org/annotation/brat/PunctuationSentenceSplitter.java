@@ -0,0 +1,135 @@
+package org.annotation.brat;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+import org.utils.TextSlice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Splits a text after sentence final punctuation and at blank lines, in one scan.
+ * <p>
+ * A sentence ends after a run of ".", "!" or "?" and any closing quotes or brackets, if whitespace or the end of the
+ * text follows. A single "." does not end a sentence after a known abbreviation or a single letter, or if the next word
+ * starts in lower case. The full width marks "。", "！" and "？" end a sentence without whitespace. Sentences do
+ * not include the whitespace around them.
+ */
+@ToString
+@EqualsAndHashCode
+public final class PunctuationSentenceSplitter implements BratSentenceSplitter {
+
+    public static final Set<String> DEFAULT_ABBREVIATIONS = Set.of("mr", "mrs", "ms", "dr", "prof", "st", "jr", "sr",
+            "vs", "etc", "e.g", "i.e", "inc", "ltd", "co", "corp", "no", "fig", "approx", "dept", "est");
+
+    private static final String CLOSING = "\"')]}»”’";
+
+    /**
+     * lower case, without the final "."
+     */
+    private final SortedSet<String> abbreviations;
+
+    public PunctuationSentenceSplitter() {
+        this(DEFAULT_ABBREVIATIONS);
+    }
+
+    public PunctuationSentenceSplitter(@NonNull final Collection<String> abbreviations) {
+        this.abbreviations = new TreeSet<>();
+        abbreviations.forEach(a -> this.abbreviations.add(a.toLowerCase(Locale.ROOT)));
+    }
+
+    @Override
+    public List<BratSentence> split(@NonNull final CharSequence text) {
+        List<BratSentence> sentences = new ArrayList<>();
+        final int n = text.length();
+        int start = 0;
+        for (int i = 0; i < n; ) {
+            final char c = text.charAt(i);
+            int end = -1, next = i + 1;
+            if (isFinal(c)) {
+                int j = i + 1;
+                while (j < n && isFinal(text.charAt(j))) {
+                    j++;
+                }
+                while (j < n && CLOSING.indexOf(text.charAt(j)) >= 0) {
+                    j++;
+                }
+                if (isFullWidth(c) || j == n || Character.isWhitespace(text.charAt(j))) {
+                    if (c != '.' || j - i > 1 || !isAbbreviation(text, i) && !continuesLowerCase(text, j)) {
+                        end = j;
+                    }
+                }
+                next = j;
+            } else if (c == '\n') {
+                int j = i + 1;
+                while (j < n && text.charAt(j) != '\n' && Character.isWhitespace(text.charAt(j))) {
+                    j++;
+                }
+                if (j < n && text.charAt(j) == '\n') {
+                    end = i;
+                    next = j + 1;
+                }
+            }
+            if (end >= 0) {
+                add(sentences, text, start, end);
+                start = next;
+            }
+            i = next;
+        }
+        add(sentences, text, start, n);
+        return sentences;
+    }
+
+    private static void add(final List<BratSentence> sentences, final CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end > start) {
+            sentences.add(new BratSentence(new TextSlice(text, start, end), start, end, ""));
+        }
+    }
+
+    private static boolean isFinal(final char c) {
+        return c == '.' || c == '!' || c == '?' || isFullWidth(c);
+    }
+
+    private static boolean isFullWidth(final char c) {
+        return c == '。' || c == '！' || c == '？';
+    }
+
+    /**
+     * @param dot position of a "."
+     */
+    private boolean isAbbreviation(final CharSequence text, final int dot) {
+        int from = dot;
+        while (from > 0 && !Character.isWhitespace(text.charAt(from - 1))) {
+            from--;
+        }
+        while (from < dot && !Character.isLetterOrDigit(text.charAt(from))) {
+            from++;
+        }
+        if (from == dot) {
+            return false;
+        }
+        if (dot - from == 1) {
+            return Character.isLetter(text.charAt(from));
+        }
+        return abbreviations.contains(text.subSequence(from, dot).toString().toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean continuesLowerCase(final CharSequence text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i < text.length() && Character.isLowerCase(text.charAt(i));
+    }
+}
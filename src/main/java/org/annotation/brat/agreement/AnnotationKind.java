@@ -0,0 +1,7 @@
+package org.annotation.brat.agreement;
+
+public enum AnnotationKind {
+    ENTITY,
+    RELATION,
+    EVENT
+}
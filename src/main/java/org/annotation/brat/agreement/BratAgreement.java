@@ -0,0 +1,338 @@
+package org.annotation.brat.agreement;
+
+import lombok.NonNull;
+import org.annotation.brat.BratAnnotation;
+import org.annotation.brat.BratBRelation;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratEvent;
+import org.annotation.brat.BratEventArguments;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the annotations of documents with the same text, e.g. of two annotators.
+ * <p>
+ * Entities, relations and events are reduced to units of (start, end, type): the entity span, the span of the first
+ * relation argument, or the trigger span. The units of both sides are sorted and aligned by merging, first on equal
+ * spans and types, then on equal spans only, and with {@link MatchMode#OVERLAP} by sweeping the remaining units in
+ * start order, so a document takes O(n log n) for n annotations plus the overlaps of each unit. Relations and events
+ * only agree if their arguments also match. Corpora are compared document by document in parallel.
+ */
+public class BratAgreement {
+
+    private static final Comparator<Unit> BY_SPAN = Comparator.<Unit>comparingInt(u -> u.start)
+            .thenComparingInt(u -> u.end);
+
+    private static final Comparator<Unit> BY_SPAN_AND_TYPE = BY_SPAN.thenComparing(u -> u.type);
+
+    private final MatchMode mode;
+
+    public BratAgreement(@NonNull final MatchMode mode) {
+        this.mode = mode;
+    }
+
+    public MatchMode getMode() {
+        return mode;
+    }
+
+    /**
+     * compares the candidate annotation of a document with the reference annotation
+     */
+    public BratAgreementResult compare(@NonNull final BratDocument reference, @NonNull final BratDocument candidate) {
+        if (!reference.getText().equals(candidate.getText())) {
+            throw new IllegalArgumentException("The annotated texts of " + reference.getId() + " and "
+                    + candidate.getId() + " differ");
+        }
+        BratAgreementResult result = new BratAgreementResult();
+        result.addDocument();
+        final String id = reference.getId();
+        align(id, AnnotationKind.ENTITY, units(reference.getAllEntities(), this::entityUnit),
+                units(candidate.getAllEntities(), this::entityUnit), result);
+        align(id, AnnotationKind.RELATION, units(reference.getAllRelations(), this::relationUnit),
+                units(candidate.getAllRelations(), this::relationUnit), result);
+        align(id, AnnotationKind.EVENT, units(reference.getAllEvents(), this::eventUnit),
+                units(candidate.getAllEvents(), this::eventUnit), result);
+        return result;
+    }
+
+    /**
+     * compares every pair of annotations of one document: (0, 1), (0, 2), ..., (1, 2), ..., the first one being the
+     * reference
+     */
+    public List<BratAgreementResult> comparePairs(@NonNull final List<? extends BratDocument> annotations) {
+        List<BratAgreementResult> results = new ArrayList<>();
+        for (int i = 0; i < annotations.size(); i++) {
+            for (int j = i + 1; j < annotations.size(); j++) {
+                results.add(compare(annotations.get(i), annotations.get(j)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compares the documents with the same id in parallel, and merges the results in the order of the reference
+     * documents.
+     */
+    public BratAgreementResult compareCorpus(@NonNull final Collection<? extends BratDocument> reference,
+                                             @NonNull final Collection<? extends BratDocument> candidate) {
+        Map<String, BratDocument> candidates = candidate.stream()
+                .collect(Collectors.toMap(BratDocument::getId, d -> d, (a, b) -> {
+                    throw new IllegalArgumentException("Duplicate document " + a.getId());
+                }, LinkedHashMap::new));
+        BratAgreementResult result = reference.parallelStream()
+                .map(document -> {
+                    BratDocument other = candidates.get(document.getId());
+                    if (null != other) {
+                        return compare(document, other);
+                    }
+                    BratAgreementResult unpaired = new BratAgreementResult();
+                    unpaired.addUnpairedDocument(document.getId());
+                    return unpaired;
+                })
+                .collect(BratAgreementResult::new, BratAgreementResult::merge, BratAgreementResult::merge);
+        Set<String> ids = reference.stream().map(BratDocument::getId).collect(Collectors.toSet());
+        candidates.keySet().stream().filter(id -> !ids.contains(id)).forEach(result::addUnpairedDocument);
+        return result;
+    }
+
+    private static <T> List<Unit> units(final List<T> annotations, final Function<T, Unit> unit) {
+        List<Unit> units = new ArrayList<>(annotations.size());
+        annotations.forEach(a -> units.add(unit.apply(a)));
+        return units;
+    }
+
+    private Unit entityUnit(final BratEntity entity) {
+        return new Unit(entity.getStartPosition(), entity.getEndPosition(), entity.getType(), entity);
+    }
+
+    private Unit relationUnit(final BratBRelation relation) {
+        BratEntity first = relation.getArguments().isEmpty() ? null : relation.getArguments().get(0);
+        return null == first ? new Unit(-1, -1, relation.getType(), relation) :
+                new Unit(first.getStartPosition(), first.getEndPosition(), relation.getType(), relation);
+    }
+
+    private Unit eventUnit(final BratEvent event) {
+        BratEntity trigger = event.getTrigger();
+        return null == trigger ? new Unit(event.getStartPosition(), event.getEndPosition(), event.getType(), event) :
+                new Unit(trigger.getStartPosition(), trigger.getEndPosition(), event.getType(), event);
+    }
+
+    private void align(final String documentId, final AnnotationKind kind, final List<Unit> reference,
+                       final List<Unit> candidate, final BratAgreementResult result) {
+        //exact spans and types, matching arguments first
+        reference.sort(BY_SPAN_AND_TYPE);
+        candidate.sort(BY_SPAN_AND_TYPE);
+        mergeJoin(reference, candidate, BY_SPAN_AND_TYPE, true);
+        mergeJoin(reference, candidate, BY_SPAN_AND_TYPE, false);
+        //exact spans with other types
+        List<Unit> unmatchedReference = unmatched(reference);
+        List<Unit> unmatchedCandidate = unmatched(candidate);
+        mergeJoin(unmatchedReference, unmatchedCandidate, BY_SPAN, false);
+        if (mode == MatchMode.OVERLAP) {
+            unmatchedReference = unmatched(unmatchedReference);
+            unmatchedCandidate = unmatched(unmatchedCandidate);
+            sweep(unmatchedReference, unmatchedCandidate, true);
+            sweep(unmatchedReference, unmatchedCandidate, false);
+        }
+
+        for (Unit unit : reference) {
+            count(documentId, kind, unit, unit.partner, result);
+        }
+        for (Unit unit : candidate) {
+            if (null == unit.partner) {
+                count(documentId, kind, null, unit, result);
+            }
+        }
+    }
+
+    private static List<Unit> unmatched(final List<Unit> units) {
+        return units.stream().filter(u -> null == u.partner).collect(Collectors.toList());
+    }
+
+    /**
+     * pairs the unmatched units with equal keys, both lists sorted by the key
+     */
+    private void mergeJoin(final List<Unit> reference, final List<Unit> candidate, final Comparator<Unit> key,
+                           final boolean argumentsMustMatch) {
+        int i = 0, j = 0;
+        while (i < reference.size() && j < candidate.size()) {
+            final int c = key.compare(reference.get(i), candidate.get(j));
+            if (c < 0) {
+                i++;
+            } else if (c > 0) {
+                j++;
+            } else {
+                //runs of equal keys, usually of length one
+                int iEnd = i, jEnd = j;
+                while (iEnd < reference.size() && key.compare(reference.get(iEnd), candidate.get(j)) == 0) {
+                    iEnd++;
+                }
+                while (jEnd < candidate.size() && key.compare(reference.get(i), candidate.get(jEnd)) == 0) {
+                    jEnd++;
+                }
+                for (int r = i; r < iEnd; r++) {
+                    Unit ref = reference.get(r);
+                    for (int k = j; k < jEnd && null == ref.partner; k++) {
+                        Unit cand = candidate.get(k);
+                        if (null == cand.partner && (!argumentsMustMatch || argumentsMatch(ref, cand))) {
+                            ref.partner = cand;
+                            cand.partner = ref;
+                        }
+                    }
+                }
+                i = iEnd;
+                j = jEnd;
+            }
+        }
+    }
+
+    /**
+     * pairs overlapping unmatched units, both lists sorted by start
+     */
+    private void sweep(final List<Unit> reference, final List<Unit> candidate, final boolean sameType) {
+        Deque<Unit> active = new ArrayDeque<>();
+        int next = 0;
+        for (Unit ref : reference) {
+            if (null != ref.partner) {
+                continue;
+            }
+            while (next < candidate.size() && candidate.get(next).start < ref.end) {
+                active.add(candidate.get(next++));
+            }
+            //later references start at or after this one
+            active.removeIf(c -> c.end <= ref.start || null != c.partner);
+            for (Iterator<Unit> it = active.iterator(); it.hasNext(); ) {
+                Unit cand = it.next();
+                if (overlaps(ref, cand) && (!sameType || ref.type.equals(cand.type))) {
+                    ref.partner = cand;
+                    cand.partner = ref;
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean overlaps(final Unit a, final Unit b) {
+        return a.start < b.end && b.start < a.end || a.start == b.start && a.end == b.end;
+    }
+
+    private void count(final String documentId, final AnnotationKind kind, final Unit reference,
+                       final Unit candidate, final BratAgreementResult result) {
+        if (null == candidate) {
+            result.get(kind, reference.type).countFalseNegative();
+            result.addUnits(kind, 1);
+            result.addDiff(new BratAgreementDiff(documentId, kind, BratAgreementDiff.Kind.MISSING,
+                    reference.annotation, null));
+        } else if (null == reference) {
+            result.get(kind, candidate.type).countFalsePositive();
+            result.addUnits(kind, 1);
+            result.addDiff(new BratAgreementDiff(documentId, kind, BratAgreementDiff.Kind.SPURIOUS,
+                    null, candidate.annotation));
+        } else if (!reference.type.equals(candidate.type)) {
+            result.get(kind, reference.type).countFalseNegative();
+            result.get(kind, candidate.type).countFalsePositive();
+            result.addUnits(kind, 1);
+            result.addDiff(new BratAgreementDiff(documentId, kind, BratAgreementDiff.Kind.TYPE_MISMATCH,
+                    reference.annotation, candidate.annotation));
+        } else if (!argumentsMatch(reference, candidate)) {
+            //counted as if they were not aligned
+            result.get(kind, reference.type).countFalseNegative();
+            result.get(kind, reference.type).countFalsePositive();
+            result.addUnits(kind, 2);
+            result.addDiff(new BratAgreementDiff(documentId, kind, BratAgreementDiff.Kind.ARGUMENT_MISMATCH,
+                    reference.annotation, candidate.annotation));
+        } else {
+            result.get(kind, reference.type).countTruePositive();
+            result.addUnits(kind, 1);
+            if (reference.start != candidate.start || reference.end != candidate.end) {
+                result.addDiff(new BratAgreementDiff(documentId, kind, BratAgreementDiff.Kind.SPAN_MISMATCH,
+                        reference.annotation, candidate.annotation));
+            }
+        }
+    }
+
+    private boolean argumentsMatch(final Unit reference, final Unit candidate) {
+        if (reference.annotation instanceof BratBRelation) {
+            List<BratEntity> a = ((BratBRelation) reference.annotation).getArguments();
+            List<BratEntity> b = ((BratBRelation) candidate.annotation).getArguments();
+            if (a.size() != b.size()) {
+                return false;
+            }
+            for (int i = 0; i < a.size(); i++) {
+                if (!entitiesMatch(a.get(i), b.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (reference.annotation instanceof BratEvent) {
+            BratEventArguments a = ((BratEvent) reference.annotation).getArgument();
+            BratEventArguments b = ((BratEvent) candidate.annotation).getArgument();
+            if (a.size() != b.size()) {
+                return false;
+            }
+            //few arguments: pair them greedily by role
+            boolean[] used = new boolean[b.size()];
+            for (int i = 0; i < a.size(); i++) {
+                boolean found = false;
+                for (int k = 0; k < b.size() && !found; k++) {
+                    if (!used[k] && a.getRole(i).equals(b.getRole(k))
+                            && entitiesMatch(a.getEntity(i), b.getEntity(k))) {
+                        used[k] = true;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return true;
+    }
+
+    private boolean entitiesMatch(final BratEntity a, final BratEntity b) {
+        if (null == a || null == b) {
+            return a == b;
+        }
+        if (!Objects.equals(a.getType(), b.getType())) {
+            return false;
+        }
+        return mode == MatchMode.EXACT ?
+                a.getStartPosition() == b.getStartPosition() && a.getEndPosition() == b.getEndPosition() :
+                a.getStartPosition() < b.getEndPosition() && b.getStartPosition() < a.getEndPosition()
+                        || a.getStartPosition() == b.getStartPosition() && a.getEndPosition() == b.getEndPosition();
+    }
+
+    /**
+     * an annotation reduced to a span and a type
+     */
+    private static final class Unit {
+        private final int start;
+        private final int end;
+        private final String type;
+        private final BratAnnotation annotation;
+        private Unit partner;
+
+        private Unit(final int start, final int end, final String type, final BratAnnotation annotation) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.annotation = annotation;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.annotation.brat.agreement;
+
+import lombok.Data;
+import lombok.NonNull;
+import org.annotation.brat.BratAnnotation;
+
+/**
+ * A disagreement between the reference and the candidate annotation of a document.
+ */
+@Data
+public class BratAgreementDiff {
+
+    public enum Kind {
+        /** only in the reference */
+        MISSING,
+        /** only in the candidate */
+        SPURIOUS,
+        /** aligned spans with different types */
+        TYPE_MISMATCH,
+        /** same type on overlapping but different spans, still counted as agreement */
+        SPAN_MISMATCH,
+        /** aligned relations or events whose arguments differ */
+        ARGUMENT_MISMATCH
+    }
+
+    @NonNull
+    private final String documentId;
+
+    @NonNull
+    private final AnnotationKind annotationKind;
+
+    @NonNull
+    private final Kind kind;
+
+    /**
+     * null if {@link Kind#SPURIOUS}
+     */
+    private final BratAnnotation reference;
+
+    /**
+     * null if {@link Kind#MISSING}
+     */
+    private final BratAnnotation candidate;
+}
@@ -0,0 +1,123 @@
+package org.annotation.brat.agreement;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Agreement of a candidate with a reference annotation, for one document or merged over many.
+ */
+public class BratAgreementResult {
+
+    private final Map<AnnotationKind, SortedMap<String, BratTypeAgreement>> types = new EnumMap<>(AnnotationKind.class);
+
+    private final long[] units = new long[AnnotationKind.values().length];
+
+    private final List<BratAgreementDiff> diffs = new ArrayList<>();
+
+    private final List<String> unpairedDocuments = new ArrayList<>();
+
+    private int documents;
+
+    BratTypeAgreement get(final AnnotationKind kind, final String type) {
+        return types.computeIfAbsent(kind, k -> new TreeMap<>()).computeIfAbsent(type, t -> new BratTypeAgreement());
+    }
+
+    void addUnits(final AnnotationKind kind, final long count) {
+        units[kind.ordinal()] += count;
+    }
+
+    void addDiff(final BratAgreementDiff diff) {
+        diffs.add(diff);
+    }
+
+    void addDocument() {
+        documents++;
+    }
+
+    void addUnpairedDocument(final String id) {
+        unpairedDocuments.add(id);
+    }
+
+    /**
+     * @return the counts by type
+     */
+    public SortedMap<String, BratTypeAgreement> getTypes(@NonNull final AnnotationKind kind) {
+        return Collections.unmodifiableSortedMap(types.getOrDefault(kind, Collections.emptySortedMap()));
+    }
+
+    /**
+     * @return the number of aligned units of the kind, see {@link BratTypeAgreement}
+     */
+    public long getUnits(@NonNull final AnnotationKind kind) {
+        return units[kind.ordinal()];
+    }
+
+    /**
+     * @return the counts of all types of the kind, summed (micro average)
+     */
+    public BratTypeAgreement getTotal(@NonNull final AnnotationKind kind) {
+        BratTypeAgreement total = new BratTypeAgreement();
+        getTypes(kind).values().forEach(total::merge);
+        return total;
+    }
+
+    public double getKappa(@NonNull final AnnotationKind kind, @NonNull final String type) {
+        BratTypeAgreement agreement = getTypes(kind).get(type);
+        return null == agreement ? Double.NaN : agreement.getKappa(getUnits(kind));
+    }
+
+    /**
+     * @return Cohen's kappa over all types of the kind, where "no annotation" is one more category
+     */
+    public double getKappa(@NonNull final AnnotationKind kind) {
+        final double n = getUnits(kind);
+        if (n <= 0) {
+            return Double.NaN;
+        }
+        double agreed = 0, expected = 0, referenceNone = n, candidateNone = n;
+        for (BratTypeAgreement agreement : getTypes(kind).values()) {
+            final double reference = agreement.getTruePositives() + agreement.getFalseNegatives();
+            final double candidate = agreement.getTruePositives() + agreement.getFalsePositives();
+            agreed += agreement.getTruePositives();
+            expected += reference * candidate;
+            referenceNone -= reference;
+            candidateNone -= candidate;
+        }
+        expected = (expected + referenceNone * candidateNone) / (n * n);
+        final double observed = agreed / n;
+        return expected >= 1 ? (observed >= 1 ? 1 : 0) : (observed - expected) / (1 - expected);
+    }
+
+    public List<BratAgreementDiff> getDiffs() {
+        return Collections.unmodifiableList(diffs);
+    }
+
+    /**
+     * @return ids of the documents that are only in one of the compared corpora
+     */
+    public List<String> getUnpairedDocuments() {
+        return Collections.unmodifiableList(unpairedDocuments);
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    public BratAgreementResult merge(@NonNull final BratAgreementResult other) {
+        other.types.forEach((kind, byType) -> byType.forEach((type, agreement) -> get(kind, type).merge(agreement)));
+        for (int i = 0; i < units.length; i++) {
+            units[i] += other.units[i];
+        }
+        diffs.addAll(other.diffs);
+        unpairedDocuments.addAll(other.unpairedDocuments);
+        documents += other.documents;
+        return this;
+    }
+}
@@ -0,0 +1,80 @@
+package org.annotation.brat.agreement;
+
+import lombok.Data;
+
+/**
+ * Agreement counts of one annotation type.
+ * <p>
+ * Kappa is computed over the aligned units of the annotation kind: a unit is an aligned pair or an annotation without
+ * partner, and it is positive for a side if that side has the type. Units where neither side has the type are the
+ * true negatives, so the kappa of a type depends on the other types of the kind.
+ */
+@Data
+public class BratTypeAgreement {
+
+    /**
+     * matches of the type, on both sides
+     */
+    private long truePositives;
+
+    /**
+     * candidate annotations of the type without matching reference
+     */
+    private long falsePositives;
+
+    /**
+     * reference annotations of the type without matching candidate
+     */
+    private long falseNegatives;
+
+    public double getPrecision() {
+        return ratio(truePositives, truePositives + falsePositives);
+    }
+
+    public double getRecall() {
+        return ratio(truePositives, truePositives + falseNegatives);
+    }
+
+    public double getF1() {
+        return ratio(2 * truePositives, 2 * truePositives + falsePositives + falseNegatives);
+    }
+
+    /**
+     * @param units all aligned units of the annotation kind
+     * @return Cohen's kappa of the type against all other types
+     */
+    public double getKappa(final long units) {
+        final double n = units;
+        if (n <= 0) {
+            return Double.NaN;
+        }
+        final double a = truePositives, b = falseNegatives, c = falsePositives;
+        final double d = n - a - b - c;
+        final double observed = (a + d) / n;
+        final double expected = ((a + b) * (a + c) + (c + d) * (b + d)) / (n * n);
+        return expected >= 1 ? (observed >= 1 ? 1 : 0) : (observed - expected) / (1 - expected);
+    }
+
+    void countTruePositive() {
+        truePositives++;
+    }
+
+    void countFalsePositive() {
+        falsePositives++;
+    }
+
+    void countFalseNegative() {
+        falseNegatives++;
+    }
+
+    public BratTypeAgreement merge(final BratTypeAgreement other) {
+        truePositives += other.truePositives;
+        falsePositives += other.falsePositives;
+        falseNegatives += other.falseNegatives;
+        return this;
+    }
+
+    private static double ratio(final long numerator, final long denominator) {
+        return denominator == 0 ? Double.NaN : (double) numerator / denominator;
+    }
+}
@@ -0,0 +1,11 @@
+package org.annotation.brat.agreement;
+
+/**
+ * When two annotations are aligned.
+ */
+public enum MatchMode {
+    /** same start and end */
+    EXACT,
+    /** at least one shared character; exact matches are still preferred */
+    OVERLAP
+}
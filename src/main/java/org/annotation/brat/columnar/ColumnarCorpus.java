@@ -0,0 +1,459 @@
+package org.annotation.brat.columnar;
+
+import lombok.NonNull;
+import org.annotation.brat.BratBRelation;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratEvent;
+import org.annotation.brat.BratSentence;
+import org.utils.TextSlice;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An append only, column oriented copy of brat documents for analytics over many annotations.
+ * <p>
+ * Every annotation is a row index into primitive columns: offsets are ints, types, roles, attribute names and ids are
+ * codes of a {@link StringDictionary}, the arguments of events and relations are entity row indices, stored in
+ * compressed row form. The text of an entity is not stored when it equals the covered document text. The annotations
+ * of a document occupy consecutive rows, in the order of {@link BratDocument#getAllEntities()} and the like.
+ * <p>
+ * Rows are read through the reusable {@link EntityView}, {@link EventView} and {@link RelationView} flyweights, or
+ * converted back with {@link #toDocument(int)}, which returns a document equal to the one that was added.
+ */
+public class ColumnarCorpus {
+
+    /**
+     * sentence of annotations on the document level
+     */
+    public static final int DOCUMENT_LEVEL = -1;
+
+    /**
+     * sentence of entities that are only used as arguments, but are not annotations of the document
+     */
+    public static final int DETACHED = -2;
+
+    final StringDictionary labels = new StringDictionary();
+
+    final StringDictionary ids = new StringDictionary();
+
+    //documents
+    final List<String> documentIds = new ArrayList<>();
+    final List<String> texts = new ArrayList<>();
+    final BitSet withSentences = new BitSet();
+    final IntColumn documentSentences = new IntColumn();
+    final IntColumn documentEntities = new IntColumn();
+    final IntColumn documentEvents = new IntColumn();
+    final IntColumn documentRelations = new IntColumn();
+
+    //sentences
+    final IntColumn sentenceStarts = new IntColumn();
+    final IntColumn sentenceEnds = new IntColumn();
+    final IntColumn sentenceIds = new IntColumn();
+    final Map<Integer, String> sentenceTexts = new HashMap<>();
+
+    //entities
+    final IntColumn entityTypes = new IntColumn();
+    final IntColumn entityIds = new IntColumn();
+    final IntColumn entityStarts = new IntColumn();
+    final IntColumn entityEnds = new IntColumn();
+    final IntColumn entitySentences = new IntColumn();
+    final Map<Integer, String> entityTexts = new HashMap<>();
+
+    //events
+    final IntColumn eventTypes = new IntColumn();
+    final IntColumn eventIds = new IntColumn();
+    final IntColumn eventTriggers = new IntColumn();
+    final IntColumn eventSentences = new IntColumn();
+    final IntColumn eventDocIds = new IntColumn();
+    final IntColumn eventAnnotators = new IntColumn();
+    final IntColumn eventArguments = new IntColumn();
+    final IntColumn eventRoles = new IntColumn();
+    final IntColumn eventArgumentEntities = new IntColumn();
+    final IntColumn eventAttributes = new IntColumn();
+    final IntColumn eventAttributeNames = new IntColumn();
+
+    //relations
+    final IntColumn relationTypes = new IntColumn();
+    final IntColumn relationIds = new IntColumn();
+    final IntColumn relationSentences = new IntColumn();
+    final IntColumn relationArguments = new IntColumn();
+    final IntColumn relationArgumentEntities = new IntColumn();
+
+    public static ColumnarCorpus of(@NonNull final Iterable<? extends BratDocument> documents) {
+        ColumnarCorpus corpus = new ColumnarCorpus();
+        documents.forEach(corpus::add);
+        return corpus;
+    }
+
+    /**
+     * appends a copy of the document
+     *
+     * @return the index of the document
+     */
+    public int add(@NonNull final BratDocument document) {
+        final int doc = documentIds.size();
+        final String text = document.getText();
+        documentIds.add(document.getId());
+        texts.add(text);
+        documentSentences.add(sentenceStarts.size());
+        documentEntities.add(entityTypes.size());
+        documentEvents.add(eventTypes.size());
+        documentRelations.add(relationTypes.size());
+
+        List<BratSentence> sentences = document.getSentences();
+        final int firstSentence = sentenceStarts.size();
+        if (null != sentences) {
+            withSentences.set(doc);
+            for (BratSentence sentence : sentences) {
+                int row = sentenceStarts.size();
+                sentenceStarts.add(sentence.getStartPosition());
+                sentenceEnds.add(sentence.getEndPosition());
+                sentenceIds.add(ids.encode(sentence.getId()));
+                CharSequence sentenceText = sentence.getTextView();
+                if (!covers(text, sentence.getStartPosition(), sentence.getEndPosition(), sentenceText)) {
+                    sentenceTexts.put(row, null == sentenceText ? null : sentenceText.toString());
+                }
+            }
+        }
+
+        Map<BratEntity, Integer> rows = new IdentityHashMap<>();
+        if (null != sentences) {
+            for (int s = 0; s < sentences.size(); s++) {
+                for (BratEntity entity : sentences.get(s).getEntities()) {
+                    rows.put(entity, addEntity(entity, firstSentence + s, text));
+                }
+            }
+        }
+        for (BratEntity entity : document.getEntities()) {
+            rows.put(entity, addEntity(entity, DOCUMENT_LEVEL, text));
+        }
+
+        if (null != sentences) {
+            for (int s = 0; s < sentences.size(); s++) {
+                for (BratEvent event : sentences.get(s).getEvents()) {
+                    addEvent(event, firstSentence + s, rows, text);
+                }
+            }
+        }
+        for (BratEvent event : document.getEvents()) {
+            addEvent(event, DOCUMENT_LEVEL, rows, text);
+        }
+
+        if (null != sentences) {
+            for (int s = 0; s < sentences.size(); s++) {
+                for (BratBRelation relation : sentences.get(s).getRelations()) {
+                    addRelation(relation, firstSentence + s, rows, text);
+                }
+            }
+        }
+        for (BratBRelation relation : document.getRelations()) {
+            addRelation(relation, DOCUMENT_LEVEL, rows, text);
+        }
+        return doc;
+    }
+
+    private int addEntity(final BratEntity entity, final int sentence, final String text) {
+        int row = entityTypes.size();
+        entityTypes.add(labels.encode(entity.getType()));
+        entityIds.add(ids.encode(entity.getId()));
+        entityStarts.add(entity.getStartPosition());
+        entityEnds.add(entity.getEndPosition());
+        entitySentences.add(sentence);
+        if (!covers(text, entity.getStartPosition(), entity.getEndPosition(), entity.getText())) {
+            entityTexts.put(row, entity.getText());
+        }
+        return row;
+    }
+
+    private int getRow(final BratEntity entity, final Map<BratEntity, Integer> rows, final String text) {
+        if (null == entity) {
+            return -1;
+        }
+        Integer row = rows.get(entity);
+        if (null == row) {
+            row = addEntity(entity, DETACHED, text);
+            rows.put(entity, row);
+        }
+        return row;
+    }
+
+    private void addEvent(final BratEvent event, final int sentence, final Map<BratEntity, Integer> rows,
+                          final String text) {
+        eventTypes.add(labels.encode(event.getType()));
+        eventIds.add(ids.encode(event.getId()));
+        eventTriggers.add(getRow(event.getTrigger(), rows, text));
+        eventSentences.add(sentence);
+        eventDocIds.add(ids.encode(event.getDocId()));
+        eventAnnotators.add(ids.encode(event.getAnnotator()));
+        eventArguments.add(eventRoles.size());
+        event.getArgument().forEach((role, entity) -> {
+            eventRoles.add(labels.encode(role));
+            eventArgumentEntities.add(getRow(entity, rows, text));
+        });
+        eventAttributes.add(eventAttributeNames.size());
+        for (String attribute : event.getAttribute()) {
+            eventAttributeNames.add(labels.encode(attribute));
+        }
+    }
+
+    private void addRelation(final BratBRelation relation, final int sentence, final Map<BratEntity, Integer> rows,
+                             final String text) {
+        relationTypes.add(labels.encode(relation.getType()));
+        relationIds.add(ids.encode(relation.getId()));
+        relationSentences.add(sentence);
+        relationArguments.add(relationArgumentEntities.size());
+        for (BratEntity argument : relation.getArguments()) {
+            relationArgumentEntities.add(getRow(argument, rows, text));
+        }
+    }
+
+    private static boolean covers(final String text, final int start, final int end, final CharSequence covered) {
+        if (null == covered || start < 0 || start > end || end > text.length() || covered.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < covered.length(); i++) {
+            if (text.charAt(start + i) != covered.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * frees the spare capacity of the columns, typically when no more documents are added. Documents can still be
+     * added afterwards
+     */
+    public void trim() {
+        for (IntColumn column : new IntColumn[]{documentSentences, documentEntities, documentEvents,
+                documentRelations, sentenceStarts, sentenceEnds, sentenceIds, entityTypes, entityIds, entityStarts,
+                entityEnds, entitySentences, eventTypes, eventIds, eventTriggers, eventSentences, eventDocIds,
+                eventAnnotators, eventArguments, eventRoles, eventArgumentEntities, eventAttributes,
+                eventAttributeNames, relationTypes, relationIds, relationSentences, relationArguments,
+                relationArgumentEntities}) {
+            column.trim();
+        }
+    }
+
+    /**
+     * @return a copy of the document, equal to the one that was added
+     */
+    public BratDocument toDocument(final int doc) {
+        final String text = texts.get(doc);
+        BratDocument document = new BratDocument(documentIds.get(doc), text);
+
+        final int firstSentence = documentSentences.get(doc);
+        List<BratSentence> sentences = null;
+        if (withSentences.get(doc)) {
+            sentences = new ArrayList<>();
+            for (int s = firstSentence; s < limit(documentSentences, doc, sentenceStarts); s++) {
+                BratSentence sentence = new BratSentence();
+                sentence.setTextView(getSentenceText(doc, s));
+                sentence.setStartPosition(sentenceStarts.get(s));
+                sentence.setEndPosition(sentenceEnds.get(s));
+                sentence.setId(ids.decode(sentenceIds.get(s)));
+                sentences.add(sentence);
+            }
+            document.setSentences(sentences);
+        }
+
+        final int firstEntity = documentEntities.get(doc);
+        BratEntity[] entities = new BratEntity[limit(documentEntities, doc, entityTypes) - firstEntity];
+        for (int e = 0; e < entities.length; e++) {
+            entities[e] = toEntity(firstEntity + e, text);
+            addTo(sentences, toLocal(entitySentences.get(firstEntity + e), firstSentence),
+                    BratSentence::getEntities, document.getEntities(), entities[e]);
+        }
+
+        for (int e = documentEvents.get(doc); e < limit(documentEvents, doc, eventTypes); e++) {
+            int trigger = eventTriggers.get(e);
+            BratEvent event = new BratEvent(labels.decode(eventTypes.get(e)),
+                    trigger < 0 ? null : entities[trigger - firstEntity]);
+            event.setId(ids.decode(eventIds.get(e)));
+            event.setDocId(ids.decode(eventDocIds.get(e)));
+            event.setAnnotator(ids.decode(eventAnnotators.get(e)));
+            for (int a = eventArguments.get(e); a < limit(eventArguments, e, eventRoles); a++) {
+                int argument = eventArgumentEntities.get(a);
+                event.getArgument().add(labels.decode(eventRoles.get(a)),
+                        argument < 0 ? null : entities[argument - firstEntity]);
+            }
+            for (int a = eventAttributes.get(e); a < limit(eventAttributes, e, eventAttributeNames); a++) {
+                event.getAttribute().add(labels.decode(eventAttributeNames.get(a)));
+            }
+            addTo(sentences, toLocal(eventSentences.get(e), firstSentence),
+                    BratSentence::getEvents, document.getEvents(), event);
+        }
+
+        for (int r = documentRelations.get(doc); r < limit(documentRelations, doc, relationTypes); r++) {
+            BratBRelation relation = new BratBRelation(labels.decode(relationTypes.get(r)));
+            relation.setId(ids.decode(relationIds.get(r)));
+            for (int a = relationArguments.get(r); a < limit(relationArguments, r, relationArgumentEntities); a++) {
+                int argument = relationArgumentEntities.get(a);
+                relation.getArguments().add(argument < 0 ? null : entities[argument - firstEntity]);
+            }
+            addTo(sentences, toLocal(relationSentences.get(r), firstSentence),
+                    BratSentence::getRelations, document.getRelations(), relation);
+        }
+        return document;
+    }
+
+    /**
+     * adds the annotation to the list of its sentence or the document, detached ones to none
+     */
+    private static <T> void addTo(final List<BratSentence> sentences, final int sentence,
+                                  final Function<BratSentence, List<T>> sentenceAnnotations,
+                                  final List<T> documentAnnotations, final T annotation) {
+        if (sentence >= 0) {
+            sentenceAnnotations.apply(sentences.get(sentence)).add(annotation);
+        } else if (sentence == DOCUMENT_LEVEL) {
+            documentAnnotations.add(annotation);
+        }
+    }
+
+    private BratEntity toEntity(final int e, final String text) {
+        BratEntity entity = new BratEntity(labels.decode(entityTypes.get(e)),
+                entityTexts.containsKey(e) ? entityTexts.get(e) :
+                        text.substring(entityStarts.get(e), entityEnds.get(e)));
+        entity.setId(ids.decode(entityIds.get(e)));
+        entity.setStartPosition(entityStarts.get(e));
+        entity.setEndPosition(entityEnds.get(e));
+        return entity;
+    }
+
+    private static int toLocal(final int sentence, final int firstSentence) {
+        return sentence < 0 ? sentence : sentence - firstSentence;
+    }
+
+    /**
+     * @return the end of the rows of the i-th element of an compressed row column
+     */
+    private static int limit(final IntColumn firstRows, final int i, final IntColumn rows) {
+        return i + 1 < firstRows.size() ? firstRows.get(i + 1) : rows.size();
+    }
+
+    public Stream<BratDocument> stream() {
+        return IntStream.range(0, getDocumentCount()).mapToObj(this::toDocument);
+    }
+
+    public List<BratDocument> toDocuments() {
+        List<BratDocument> documents = new ArrayList<>(getDocumentCount());
+        for (int doc = 0; doc < getDocumentCount(); doc++) {
+            documents.add(toDocument(doc));
+        }
+        return documents;
+    }
+
+    public StringDictionary getLabels() {
+        return labels;
+    }
+
+    public StringDictionary getIds() {
+        return ids;
+    }
+
+    public int getDocumentCount() {
+        return documentIds.size();
+    }
+
+    public int getEntityCount() {
+        return entityTypes.size();
+    }
+
+    public int getEventCount() {
+        return eventTypes.size();
+    }
+
+    public int getRelationCount() {
+        return relationTypes.size();
+    }
+
+    public String getDocumentId(final int doc) {
+        return documentIds.get(doc);
+    }
+
+    public String getText(final int doc) {
+        return texts.get(doc);
+    }
+
+    public int getFirstEntity(final int doc) {
+        return documentEntities.get(doc);
+    }
+
+    public int getEntityLimit(final int doc) {
+        return limit(documentEntities, doc, entityTypes);
+    }
+
+    public int getFirstEvent(final int doc) {
+        return documentEvents.get(doc);
+    }
+
+    public int getEventLimit(final int doc) {
+        return limit(documentEvents, doc, eventTypes);
+    }
+
+    public int getFirstRelation(final int doc) {
+        return documentRelations.get(doc);
+    }
+
+    public int getRelationLimit(final int doc) {
+        return limit(documentRelations, doc, relationTypes);
+    }
+
+    /**
+     * visits the entity rows of the document with one reused view
+     */
+    public void forEachEntity(final int doc, @NonNull final Consumer<? super EntityView> consumer) {
+        EntityView view = new EntityView(this);
+        for (int e = getFirstEntity(doc); e < getEntityLimit(doc); e++) {
+            consumer.accept(view.moveTo(e));
+        }
+    }
+
+    public void forEachEvent(final int doc, @NonNull final Consumer<? super EventView> consumer) {
+        EventView view = new EventView(this);
+        for (int e = getFirstEvent(doc); e < getEventLimit(doc); e++) {
+            consumer.accept(view.moveTo(e));
+        }
+    }
+
+    public void forEachRelation(final int doc, @NonNull final Consumer<? super RelationView> consumer) {
+        RelationView view = new RelationView(this);
+        for (int r = getFirstRelation(doc); r < getRelationLimit(doc); r++) {
+            consumer.accept(view.moveTo(r));
+        }
+    }
+
+    CharSequence getSentenceText(final int doc, final int sentence) {
+        if (sentenceTexts.containsKey(sentence)) {
+            return sentenceTexts.get(sentence);
+        }
+        return new TextSlice(texts.get(doc), sentenceStarts.get(sentence), sentenceEnds.get(sentence));
+    }
+
+    //row access for the views
+
+    int getEntityDocument(final int entity) {
+        Objects.checkIndex(entity, entityTypes.size());
+        return documentEntities.floor(entity);
+    }
+
+    int getEventDocument(final int event) {
+        Objects.checkIndex(event, eventTypes.size());
+        return documentEvents.floor(event);
+    }
+
+    int getRelationDocument(final int relation) {
+        Objects.checkIndex(relation, relationTypes.size());
+        return documentRelations.floor(relation);
+    }
+}
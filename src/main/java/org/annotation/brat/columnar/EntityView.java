@@ -0,0 +1,83 @@
+package org.annotation.brat.columnar;
+
+import lombok.NonNull;
+import org.annotation.brat.BratEntity;
+import org.utils.TextSlice;
+
+import java.util.Objects;
+
+/**
+ * A reusable view of one entity row of a {@link ColumnarCorpus}, moved with {@link #moveTo(int)}.
+ */
+public final class EntityView {
+
+    private final ColumnarCorpus corpus;
+
+    private int row = -1;
+
+    public EntityView(@NonNull final ColumnarCorpus corpus) {
+        this.corpus = corpus;
+    }
+
+    public EntityView moveTo(final int row) {
+        this.row = Objects.checkIndex(row, corpus.getEntityCount());
+        return this;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getDocument() {
+        return corpus.getEntityDocument(row);
+    }
+
+    public int getTypeCode() {
+        return corpus.entityTypes.get(row);
+    }
+
+    public String getType() {
+        return corpus.labels.decode(getTypeCode());
+    }
+
+    public String getId() {
+        return corpus.ids.decode(corpus.entityIds.get(row));
+    }
+
+    public int getStartPosition() {
+        return corpus.entityStarts.get(row);
+    }
+
+    public int getEndPosition() {
+        return corpus.entityEnds.get(row);
+    }
+
+    /**
+     * @return the sentence row, {@link ColumnarCorpus#DOCUMENT_LEVEL} or {@link ColumnarCorpus#DETACHED}
+     */
+    public int getSentence() {
+        return corpus.entitySentences.get(row);
+    }
+
+    /**
+     * @return the text, as a view on the document text when it equals the covered text
+     */
+    public CharSequence getText() {
+        if (corpus.entityTexts.containsKey(row)) {
+            return corpus.entityTexts.get(row);
+        }
+        return new TextSlice(corpus.getText(getDocument()), getStartPosition(), getEndPosition());
+    }
+
+    /**
+     * @return a new entity with the values of the row
+     */
+    public BratEntity toEntity() {
+        CharSequence text = getText();
+        BratEntity entity = new BratEntity(getType(), null == text ? null : text.toString());
+        entity.setId(getId());
+        entity.setStartPosition(getStartPosition());
+        entity.setEndPosition(getEndPosition());
+        return entity;
+    }
+}
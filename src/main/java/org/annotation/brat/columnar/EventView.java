@@ -0,0 +1,113 @@
+package org.annotation.brat.columnar;
+
+import lombok.NonNull;
+
+/**
+ * A reusable view of one event row of a {@link ColumnarCorpus}, moved with {@link #moveTo(int)}. Triggers and
+ * arguments are entity rows, to be read with an {@link EntityView}.
+ */
+public final class EventView {
+
+    private final ColumnarCorpus corpus;
+
+    private int row = -1;
+
+    private int firstArgument;
+
+    private int argumentLimit;
+
+    private int firstAttribute;
+
+    private int attributeLimit;
+
+    public EventView(@NonNull final ColumnarCorpus corpus) {
+        this.corpus = corpus;
+    }
+
+    public EventView moveTo(final int row) {
+        firstArgument = corpus.eventArguments.get(row);
+        argumentLimit = row + 1 < corpus.getEventCount() ? corpus.eventArguments.get(row + 1)
+                : corpus.eventRoles.size();
+        firstAttribute = corpus.eventAttributes.get(row);
+        attributeLimit = row + 1 < corpus.getEventCount() ? corpus.eventAttributes.get(row + 1)
+                : corpus.eventAttributeNames.size();
+        this.row = row;
+        return this;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getDocument() {
+        return corpus.getEventDocument(row);
+    }
+
+    public int getTypeCode() {
+        return corpus.eventTypes.get(row);
+    }
+
+    public String getType() {
+        return corpus.labels.decode(getTypeCode());
+    }
+
+    public String getId() {
+        return corpus.ids.decode(corpus.eventIds.get(row));
+    }
+
+    /**
+     * @return the entity row of the trigger, -1 if there is none
+     */
+    public int getTrigger() {
+        return corpus.eventTriggers.get(row);
+    }
+
+    public int getSentence() {
+        return corpus.eventSentences.get(row);
+    }
+
+    public String getDocId() {
+        return corpus.ids.decode(corpus.eventDocIds.get(row));
+    }
+
+    public String getAnnotator() {
+        return corpus.ids.decode(corpus.eventAnnotators.get(row));
+    }
+
+    public int getArgumentCount() {
+        return argumentLimit - firstArgument;
+    }
+
+    public int getRoleCode(final int argument) {
+        return corpus.eventRoles.get(firstArgument + checkArgument(argument));
+    }
+
+    public String getRole(final int argument) {
+        return corpus.labels.decode(getRoleCode(argument));
+    }
+
+    /**
+     * @return the entity row of the argument
+     */
+    public int getArgument(final int argument) {
+        return corpus.eventArgumentEntities.get(firstArgument + checkArgument(argument));
+    }
+
+    public int getAttributeCount() {
+        return attributeLimit - firstAttribute;
+    }
+
+    public String getAttribute(final int attribute) {
+        if (attribute < 0 || attribute >= getAttributeCount()) {
+            throw new IndexOutOfBoundsException(attribute);
+        }
+        return corpus.labels.decode(corpus.eventAttributeNames.get(firstAttribute + attribute));
+    }
+
+    private int checkArgument(final int argument) {
+        if (argument < 0 || argument >= getArgumentCount()) {
+            throw new IndexOutOfBoundsException(argument);
+        }
+        return argument;
+    }
+}
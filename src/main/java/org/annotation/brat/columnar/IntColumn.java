@@ -0,0 +1,55 @@
+package org.annotation.brat.columnar;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A growable column of primitive ints.
+ */
+final class IntColumn {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    void add(final int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        values[size++] = value;
+    }
+
+    int get(final int index) {
+        return values[Objects.checkIndex(index, size)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the last index whose value is at most the given one, for columns of non decreasing values
+     */
+    int floor(final int value) {
+        int low = 0, high = size - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= value) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * frees the spare capacity, the column still grows on the next {@link #add(int)}, also when it is empty
+     */
+    void trim() {
+        values = Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,68 @@
+package org.annotation.brat.columnar;
+
+import lombok.NonNull;
+
+/**
+ * A reusable view of one relation row of a {@link ColumnarCorpus}, moved with {@link #moveTo(int)}. Arguments are
+ * entity rows, to be read with an {@link EntityView}.
+ */
+public final class RelationView {
+
+    private final ColumnarCorpus corpus;
+
+    private int row = -1;
+
+    private int firstArgument;
+
+    private int argumentLimit;
+
+    public RelationView(@NonNull final ColumnarCorpus corpus) {
+        this.corpus = corpus;
+    }
+
+    public RelationView moveTo(final int row) {
+        firstArgument = corpus.relationArguments.get(row);
+        argumentLimit = row + 1 < corpus.getRelationCount() ? corpus.relationArguments.get(row + 1)
+                : corpus.relationArgumentEntities.size();
+        this.row = row;
+        return this;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getDocument() {
+        return corpus.getRelationDocument(row);
+    }
+
+    public int getTypeCode() {
+        return corpus.relationTypes.get(row);
+    }
+
+    public String getType() {
+        return corpus.labels.decode(getTypeCode());
+    }
+
+    public String getId() {
+        return corpus.ids.decode(corpus.relationIds.get(row));
+    }
+
+    public int getSentence() {
+        return corpus.relationSentences.get(row);
+    }
+
+    public int getArgumentCount() {
+        return argumentLimit - firstArgument;
+    }
+
+    /**
+     * @return the entity row of the argument
+     */
+    public int getArgument(final int argument) {
+        if (argument < 0 || argument >= getArgumentCount()) {
+            throw new IndexOutOfBoundsException(argument);
+        }
+        return corpus.relationArgumentEntities.get(firstArgument + argument);
+    }
+}
@@ -0,0 +1,47 @@
+package org.annotation.brat.columnar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes strings as dense int codes, in the order they are first seen. {@code null} is encoded as -1.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @return the code of the value, a new one if it was not seen before
+     */
+    public int encode(final String value) {
+        if (null == value) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        if (null == code) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * @return the code of the value, or -1 if it is unknown
+     */
+    public int getCode(final String value) {
+        return null == value ? -1 : codes.getOrDefault(value, -1);
+    }
+
+    public String decode(final int code) {
+        return code < 0 ? null : values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,314 @@
+package org.annotation.brat.conll;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratSentence;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Writes brat sentences as token level BIO tags in the CoNLL format: one token per line, the token text and its tag
+ * separated by {@link #getSeparator()}, and a blank line after every sentence.
+ * <p>
+ * The sentence text is tokenized with offsets, the entities are reduced to disjoint spans by the {@link NestingPolicy}
+ * and mapped onto the tokens by a linear merge of both, sorted by start. A token overlapping an entity gets its tag,
+ * entities covering no token are dropped. Sentences are formatted in batches of {@link #getBatchSize()} on the
+ * configured executor (a fixed pool of {@link #getParallelism()} threads when none is set) with at most
+ * {@code 4 * parallelism} batches in flight, and written in input order on the calling thread.
+ */
+@Getter
+@Setter
+public class BratConllWriter {
+
+    public static final String OUTSIDE = "O";
+
+    public static final String BEGIN = "B-";
+
+    public static final String INSIDE = "I-";
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final BratTokenizer tokenizer;
+
+    private final NestingPolicy policy;
+
+    private String separator = "\t";
+
+    /**
+     * if set, the document offsets of every token are written as two more columns
+     */
+    private boolean offsets;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * executor used for formatting, it is not shut down by the writer. If null, a pool is created for each write.
+     */
+    private ExecutorService executor;
+
+    public BratConllWriter() {
+        this(BratTokenizer.simple(), NestingPolicy.LONGEST);
+    }
+
+    public BratConllWriter(@NonNull final BratTokenizer tokenizer, @NonNull final NestingPolicy policy) {
+        this.tokenizer = tokenizer;
+        this.policy = policy;
+    }
+
+    /**
+     * @return the tokens of the sentence text, none if it has no text
+     */
+    public List<ConllToken> tokenize(@NonNull final BratSentence sentence) {
+        return null == sentence.getTextView() ? List.of() : tokenizer.tokenize(sentence.getTextView());
+    }
+
+    /**
+     * @param tokens tokens of the sentence, by start
+     * @return the BIO tag of every token
+     */
+    public String[] tag(@NonNull final BratSentence sentence, @NonNull final List<ConllToken> tokens) {
+        final List<BratEntity> entities = select(sentence);
+        final int offset = sentence.getStartPosition();
+        String[] tags = new String[tokens.size()];
+        int e = 0;
+        int tagged = -1;
+        for (int t = 0; t < tokens.size(); t++) {
+            ConllToken token = tokens.get(t);
+            while (e < entities.size() && entities.get(e).getEndPosition() - offset <= token.getStart()) {
+                e++;
+            }
+            if (e < entities.size() && entities.get(e).getStartPosition() - offset < token.getEnd()) {
+                tags[t] = (tagged == e ? INSIDE : BEGIN) + entities.get(e).getType();
+                tagged = e;
+            } else {
+                tags[t] = OUTSIDE;
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * @return the entities of the sentence kept by the policy, disjoint and by start. Entities outside the sentence
+     * text or with empty spans are ignored.
+     */
+    List<BratEntity> select(final BratSentence sentence) {
+        final int offset = sentence.getStartPosition();
+        final int length = null == sentence.getTextView() ? 0 : sentence.getTextView().length();
+        List<BratEntity> entities = sentence.getEntities();
+        BratEntity[] spans = new BratEntity[entities.size()];
+        int n = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            BratEntity entity = entities.get(i);
+            final int start = entity.getStartPosition() - offset;
+            final int end = entity.getEndPosition() - offset;
+            if (start >= 0 && end <= length && start < end) {
+                spans[n++] = entity;
+            }
+        }
+        spans = Arrays.copyOf(spans, n);
+        Arrays.sort(spans, Comparator.comparingInt(BratEntity::getStartPosition)
+                .thenComparing(Comparator.comparingInt(BratEntity::getEndPosition).reversed()));
+
+        List<BratEntity> selected = new ArrayList<>(n);
+        switch (policy) {
+            case OUTERMOST:
+                sweep(spans, null, selected);
+                break;
+            case INNERMOST:
+                //a span contains another one iff some later span in start order ends no later
+                boolean[] innermost = new boolean[n];
+                int minEnd = Integer.MAX_VALUE;
+                for (int i = n - 1; i >= 0; i--) {
+                    innermost[i] = minEnd > spans[i].getEndPosition();
+                    minEnd = Math.min(minEnd, spans[i].getEndPosition());
+                }
+                sweep(spans, innermost, selected);
+                break;
+            case LONGEST:
+                BratEntity[] byLength = spans.clone();
+                Arrays.sort(byLength, Comparator.comparingInt((BratEntity s) -> s.getStartPosition()
+                        - s.getEndPosition()).thenComparingInt(BratEntity::getStartPosition));
+                BitSet covered = new BitSet(length);
+                for (BratEntity span : byLength) {
+                    final int start = span.getStartPosition() - offset;
+                    final int end = span.getEndPosition() - offset;
+                    final int next = covered.nextSetBit(start);
+                    if (next < 0 || next >= end) {
+                        covered.set(start, end);
+                        selected.add(span);
+                    }
+                }
+                selected.sort(Comparator.comparingInt(BratEntity::getStartPosition));
+                break;
+            default:
+                throw new IllegalStateException("Unknown nesting policy " + policy);
+        }
+        return selected;
+    }
+
+    /**
+     * keeps every candidate starting at or after the end of the last kept one
+     */
+    private static void sweep(final BratEntity[] spans, final boolean[] candidates, final List<BratEntity> selected) {
+        int end = Integer.MIN_VALUE;
+        for (int i = 0; i < spans.length; i++) {
+            if ((null == candidates || candidates[i]) && spans[i].getStartPosition() >= end) {
+                selected.add(spans[i]);
+                end = spans[i].getEndPosition();
+            }
+        }
+    }
+
+    /**
+     * appends the lines of the sentence and a blank line, nothing if it has no tokens
+     *
+     * @return whether the sentence had tokens
+     */
+    public boolean format(@NonNull final BratSentence sentence, @NonNull final StringBuilder out) {
+        List<ConllToken> tokens = tokenize(sentence);
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        String[] tags = tag(sentence, tokens);
+        for (int t = 0; t < tokens.size(); t++) {
+            ConllToken token = tokens.get(t);
+            out.append(token.getText());
+            if (offsets) {
+                out.append(separator).append(sentence.getStartPosition() + token.getStart())
+                   .append(separator).append(sentence.getStartPosition() + token.getEnd());
+            }
+            out.append(separator).append(tags[t]).append('\n');
+        }
+        out.append('\n');
+        return true;
+    }
+
+    public String format(@NonNull final BratSentence sentence) {
+        StringBuilder sb = new StringBuilder();
+        format(sentence, sb);
+        return sb.toString();
+    }
+
+    /**
+     * writes the sentences in order, the writer is flushed but not closed
+     *
+     * @return the number of sentences written, sentences without tokens are skipped
+     */
+    public long write(@NonNull final Iterator<? extends BratSentence> sentences, @NonNull final Writer writer)
+            throws IOException {
+        ExecutorService service = null == executor ?
+                Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+                    Thread thread = new Thread(runnable, "brat-conll");
+                    thread.setDaemon(true);
+                    return thread;
+                }) : executor;
+        long written = 0;
+        try {
+            final int window = Math.max(1, parallelism) * 4;
+            Deque<Future<Batch>> inFlight = new ArrayDeque<>(window);
+            while (sentences.hasNext() || !inFlight.isEmpty()) {
+                while (sentences.hasNext() && inFlight.size() < window) {
+                    List<BratSentence> batch = new ArrayList<>(Math.max(1, batchSize));
+                    while (sentences.hasNext() && batch.size() < Math.max(1, batchSize)) {
+                        batch.add(sentences.next());
+                    }
+                    inFlight.add(CompletableFuture.supplyAsync(() -> format(batch), service));
+                }
+                Batch batch = await(inFlight.poll());
+                writer.append(batch.text);
+                written += batch.sentences;
+            }
+        } finally {
+            if (service != executor) {
+                service.shutdownNow();
+            }
+        }
+        writer.flush();
+        return written;
+    }
+
+    public long write(@NonNull final Stream<? extends BratSentence> sentences, @NonNull final Writer writer)
+            throws IOException {
+        return write(sentences.iterator(), writer);
+    }
+
+    /**
+     * writes the sentences of the documents, a document without sentences is written as one sentence. Entities not
+     * assigned to any sentence are not written.
+     *
+     * @return the number of sentences written
+     */
+    public long writeDocuments(@NonNull final Iterable<? extends BratDocument> documents,
+                               @NonNull final Writer writer) throws IOException {
+        return write(StreamSupport.stream(documents.spliterator(), false).flatMap(BratConllWriter::sentences), writer);
+    }
+
+    private static Stream<BratSentence> sentences(final BratDocument document) {
+        if (null != document.getSentences()) {
+            return document.getSentences().stream();
+        }
+        BratSentence sentence = new BratSentence();
+        sentence.setTextView(document.getText());
+        sentence.setEndPosition(null == document.getText() ? 0 : document.getText().length());
+        sentence.setId(document.getId());
+        sentence.getEntities().addAll(document.getEntities());
+        return Stream.of(sentence);
+    }
+
+    private Batch format(final List<BratSentence> sentences) {
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        for (BratSentence sentence : sentences) {
+            if (format(sentence, sb)) {
+                count++;
+            }
+        }
+        return new Batch(sb.toString(), count);
+    }
+
+    private static Batch await(final Future<Batch> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing CoNLL lines", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class Batch {
+        private final String text;
+        private final int sentences;
+
+        private Batch(final String text, final int sentences) {
+            this.text = text;
+            this.sentences = sentences;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.annotation.brat.conll;
+
+import java.util.List;
+
+/**
+ * Splits the text of a sentence into tokens with offsets. Implementations are immutable and thread safe.
+ */
+public interface BratTokenizer {
+
+    /**
+     * @return the tokens, by start
+     */
+    List<ConllToken> tokenize(CharSequence text);
+
+    /**
+     * Tokens are the runs of non whitespace characters.
+     */
+    static BratTokenizer whitespace() {
+        return new SimpleTokenizer(false);
+    }
+
+    /**
+     * Tokens are the runs of letters and digits, every other non whitespace character is a token of its own.
+     */
+    static BratTokenizer simple() {
+        return new SimpleTokenizer(true);
+    }
+}
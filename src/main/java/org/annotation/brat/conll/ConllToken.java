@@ -0,0 +1,18 @@
+package org.annotation.brat.conll;
+
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * A token of a sentence, its offsets are relative to the sentence text and half open, [start, end).
+ */
+@Data
+public class ConllToken {
+
+    @NonNull
+    private final String text;
+
+    private final int start;
+
+    private final int end;
+}
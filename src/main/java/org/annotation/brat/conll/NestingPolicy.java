@@ -0,0 +1,19 @@
+package org.annotation.brat.conll;
+
+/**
+ * Which entities are kept when entity spans are nested or overlap, BIO tags can only express disjoint spans.
+ */
+public enum NestingPolicy {
+    /**
+     * longest spans first, then every span that does not overlap a kept one
+     */
+    LONGEST,
+    /**
+     * spans not inside another one; of crossing spans the one starting first
+     */
+    OUTERMOST,
+    /**
+     * spans without another one inside; of crossing spans the one starting first
+     */
+    INNERMOST
+}
@@ -0,0 +1,61 @@
+package org.annotation.brat.conll;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits at whitespace and, if enabled, around every character that is neither a letter nor a digit, in one scan
+ * over the code points.
+ */
+@ToString
+@EqualsAndHashCode
+final class SimpleTokenizer implements BratTokenizer {
+
+    private final boolean splitPunctuation;
+
+    SimpleTokenizer(final boolean splitPunctuation) {
+        this.splitPunctuation = splitPunctuation;
+    }
+
+    @Override
+    public List<ConllToken> tokenize(final CharSequence text) {
+        List<ConllToken> tokens = new ArrayList<>();
+        final int length = text.length();
+        int start = -1;
+        for (int i = 0; i < length; ) {
+            final int c = Character.codePointAt(text, i);
+            final int next = i + Character.charCount(c);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                start = add(tokens, text, start, i);
+            } else if (splitPunctuation && !isWordCharacter(c)) {
+                add(tokens, text, start, i);
+                add(tokens, text, i, next);
+                start = -1;
+            } else if (start < 0) {
+                start = i;
+            }
+            i = next;
+        }
+        add(tokens, text, start, length);
+        return tokens;
+    }
+
+    private static boolean isWordCharacter(final int c) {
+        final int type = Character.getType(c);
+        return Character.isLetterOrDigit(c) || type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    /**
+     * @return -1, no token is open any more
+     */
+    private static int add(final List<ConllToken> tokens, final CharSequence text, final int start, final int end) {
+        if (start >= 0 && end > start) {
+            tokens.add(new ConllToken(text.subSequence(start, end).toString(), start, end));
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,196 @@
+package org.annotation.brat.index;
+
+import lombok.NonNull;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratEvent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Type and span index over the entities and events of loaded documents.
+ * <p>
+ * Every document gets {@link SpanTree}s over its entity and event spans, one for all annotations and one per type, and
+ * the postings map every type to the documents having annotations of that type. Documents are indexed independently,
+ * so {@link #of(Collection)} indexes them in parallel, and {@link #add(BratDocument)} may be called concurrently with
+ * queries. Adding a document with an indexed id replaces it.
+ */
+public class BratSpanIndex {
+
+    private final ConcurrentMap<String, DocumentSpans> documents = new ConcurrentHashMap<>();
+
+    /**
+     * type -> ids of the documents with entities or events of the type
+     */
+    private final ConcurrentMap<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    public static BratSpanIndex of(@NonNull final Collection<? extends BratDocument> documents) {
+        BratSpanIndex index = new BratSpanIndex();
+        documents.parallelStream().forEach(index::add);
+        return index;
+    }
+
+    public void add(@NonNull final BratDocument document) {
+        final DocumentSpans spans = new DocumentSpans(document);
+        documents.compute(document.getId(), (id, old) -> {
+            if (null != old) {
+                old.getTypes().stream()
+                        .filter(t -> !spans.getTypes().contains(t))
+                        .forEach(t -> postings.computeIfPresent(t, (type, ids) -> {
+                            ids.remove(id);
+                            return ids.isEmpty() ? null : ids;
+                        }));
+            }
+            //inserted inside compute, so a concurrent removal can not unmap the set in between
+            spans.getTypes().forEach(t -> postings.compute(t, (type, ids) -> {
+                Set<String> result = null == ids ? ConcurrentHashMap.newKeySet() : ids;
+                result.add(id);
+                return result;
+            }));
+            return spans;
+        });
+    }
+
+    public boolean remove(@NonNull final String documentId) {
+        AtomicBoolean removed = new AtomicBoolean();
+        documents.computeIfPresent(documentId, (id, old) -> {
+            removed.set(true);
+            old.getTypes().forEach(t -> postings.computeIfPresent(t, (type, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            }));
+            return null;
+        });
+        return removed.get();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public Set<String> getDocumentIds() {
+        return Collections.unmodifiableSet(documents.keySet());
+    }
+
+    public Set<String> getTypes() {
+        return Collections.unmodifiableSet(postings.keySet());
+    }
+
+    /**
+     * @return the ids of the documents with entities or events of the type
+     */
+    public Set<String> getDocumentIds(@NonNull final String type) {
+        Set<String> ids = postings.get(type);
+        return null == ids ? Set.of() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * @return all entities of the type, document by document
+     */
+    public Stream<BratEntity> getEntities(@NonNull final String type) {
+        return getDocumentIds(type).stream()
+                .map(id -> getEntityTree(id, type))
+                .flatMap(tree -> tree.toList().stream());
+    }
+
+    /**
+     * @return all events of the type, document by document
+     */
+    public Stream<BratEvent> getEvents(@NonNull final String type) {
+        return getDocumentIds(type).stream()
+                .map(id -> getEventTree(id, type))
+                .flatMap(tree -> tree.toList().stream());
+    }
+
+    /**
+     * @param type the entity type, or null for all entities
+     * @return the tree over the entities of the document, empty if the document is not indexed
+     */
+    public SpanTree<BratEntity> getEntityTree(@NonNull final String documentId, final String type) {
+        DocumentSpans spans = documents.get(documentId);
+        return null == spans ? SpanTree.empty() : spans.getEntities(type);
+    }
+
+    /**
+     * @param type the event type, or null for all events
+     * @return the tree over the events of the document, empty if the document is not indexed
+     */
+    public SpanTree<BratEvent> getEventTree(@NonNull final String documentId, final String type) {
+        DocumentSpans spans = documents.get(documentId);
+        return null == spans ? SpanTree.empty() : spans.getEvents(type);
+    }
+
+    public List<BratEntity> getOverlappingEntities(@NonNull final String documentId, final String type,
+                                                   final int start, final int end) {
+        return getEntityTree(documentId, type).getOverlapping(start, end);
+    }
+
+    public List<BratEntity> getContainedEntities(@NonNull final String documentId, final String type,
+                                                 final int start, final int end) {
+        return getEntityTree(documentId, type).getContained(start, end);
+    }
+
+    public List<BratEntity> getContainingEntities(@NonNull final String documentId, final String type,
+                                                  final int start, final int end) {
+        return getEntityTree(documentId, type).getContaining(start, end);
+    }
+
+    public BratEntity getNearestEntity(@NonNull final String documentId, final String type,
+                                       final int start, final int end) {
+        return getEntityTree(documentId, type).getNearest(start, end);
+    }
+
+    public List<BratEvent> getOverlappingEvents(@NonNull final String documentId, final String type,
+                                                final int start, final int end) {
+        return getEventTree(documentId, type).getOverlapping(start, end);
+    }
+
+    /**
+     * the trees of one document
+     */
+    private static final class DocumentSpans {
+        private final SpanTree<BratEntity> entities;
+        private final SpanTree<BratEvent> events;
+        private final Map<String, SpanTree<BratEntity>> entitiesByType;
+        private final Map<String, SpanTree<BratEvent>> eventsByType;
+
+        private DocumentSpans(final BratDocument document) {
+            List<BratEntity> allEntities = document.getAllEntities();
+            List<BratEvent> allEvents = document.getAllEvents();
+            entities = new SpanTree<>(allEntities, BratEntity::getStartPosition, BratEntity::getEndPosition);
+            events = new SpanTree<>(allEvents, BratEvent::getStartPosition, BratEvent::getEndPosition);
+            entitiesByType = allEntities.stream()
+                    .collect(Collectors.groupingBy(BratEntity::getType, Collectors.collectingAndThen(
+                            Collectors.toList(),
+                            l -> new SpanTree<>(l, BratEntity::getStartPosition, BratEntity::getEndPosition))));
+            eventsByType = allEvents.stream()
+                    .collect(Collectors.groupingBy(BratEvent::getType, Collectors.collectingAndThen(
+                            Collectors.toList(),
+                            l -> new SpanTree<>(l, BratEvent::getStartPosition, BratEvent::getEndPosition))));
+        }
+
+        private Set<String> getTypes() {
+            Set<String> types = new HashSet<>(entitiesByType.keySet());
+            types.addAll(eventsByType.keySet());
+            return types;
+        }
+
+        private SpanTree<BratEntity> getEntities(final String type) {
+            return null == type ? entities : entitiesByType.getOrDefault(type, SpanTree.empty());
+        }
+
+        private SpanTree<BratEvent> getEvents(final String type) {
+            return null == type ? events : eventsByType.getOrDefault(type, SpanTree.empty());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.annotation.brat.index;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable interval tree over the spans of some annotations.
+ * <p>
+ * The spans are kept in arrays sorted by start. The tree is implicit: the middle of every range of the array is the
+ * root of the subtree over that range, and stores the largest end in the subtree, so queries skip every subtree that
+ * ends too early. Spans are half open, [start, end), as in brat. Overlap and containing queries take
+ * O(log n + k) for k results, nearest queries O(log n).
+ *
+ * @param <T> the annotation type
+ */
+public final class SpanTree<T> {
+
+    private static final SpanTree<?> EMPTY = new SpanTree<>(List.of(), t -> 0, t -> 0);
+
+    private final Object[] items;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    /**
+     * largest end of the subtree rooted at the index
+     */
+    private final int[] maxEnds;
+
+    /**
+     * index of the largest end among the first i + 1 spans
+     */
+    private final int[] prefixMaxEnds;
+
+    public SpanTree(@NonNull final Collection<? extends T> annotations,
+                    @NonNull final ToIntFunction<? super T> start,
+                    @NonNull final ToIntFunction<? super T> end) {
+        final int n = annotations.size();
+        Object[] unsorted = annotations.toArray();
+        int[] unsortedStarts = new int[n];
+        int[] unsortedEnds = new int[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked")
+            T annotation = (T) unsorted[i];
+            unsortedStarts[i] = start.applyAsInt(annotation);
+            unsortedEnds[i] = end.applyAsInt(annotation);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> unsortedStarts[i])
+                .thenComparingInt(i -> unsortedEnds[i]));
+
+        items = new Object[n];
+        starts = new int[n];
+        ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            items[i] = unsorted[order[i]];
+            starts[i] = unsortedStarts[order[i]];
+            ends[i] = unsortedEnds[order[i]];
+        }
+        maxEnds = new int[n];
+        buildMaxEnds(0, n);
+        prefixMaxEnds = new int[n];
+        for (int i = 0; i < n; i++) {
+            prefixMaxEnds[i] = i > 0 && ends[prefixMaxEnds[i - 1]] >= ends[i] ? prefixMaxEnds[i - 1] : i;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> SpanTree<T> empty() {
+        return (SpanTree<T>) EMPTY;
+    }
+
+    private int buildMaxEnds(final int low, final int high) {
+        if (low >= high) {
+            return Integer.MIN_VALUE;
+        }
+        final int mid = (low + high) >>> 1;
+        maxEnds[mid] = Math.max(ends[mid], Math.max(buildMaxEnds(low, mid), buildMaxEnds(mid + 1, high)));
+        return maxEnds[mid];
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * @return the i-th annotation in the order of the spans
+     */
+    @SuppressWarnings("unchecked")
+    public T get(final int i) {
+        return (T) items[i];
+    }
+
+    /**
+     * @return all annotations, by start
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        return (List<T>) Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    /**
+     * @return the annotations that share at least one character with [start, end), by start
+     */
+    public List<T> getOverlapping(final int start, final int end) {
+        List<T> result = new ArrayList<>();
+        forEachOverlapping(start, end, result::add);
+        return result;
+    }
+
+    public void forEachOverlapping(final int start, final int end, @NonNull final Consumer<? super T> consumer) {
+        overlapping(0, items.length, start, end, consumer);
+    }
+
+    private void overlapping(final int low, final int high, final int start, final int end,
+                             final Consumer<? super T> consumer) {
+        if (low >= high) {
+            return;
+        }
+        final int mid = (low + high) >>> 1;
+        if (maxEnds[mid] <= start) {
+            return;
+        }
+        overlapping(low, mid, start, end, consumer);
+        if (starts[mid] < end) {
+            if (ends[mid] > start) {
+                consumer.accept(get(mid));
+            }
+            overlapping(mid + 1, high, start, end, consumer);
+        }
+    }
+
+    /**
+     * @return the annotations inside [start, end), by start
+     */
+    public List<T> getContained(final int start, final int end) {
+        List<T> result = new ArrayList<>();
+        for (int i = lowerBound(start); i < items.length && starts[i] <= end; i++) {
+            if (ends[i] <= end) {
+                result.add(get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the annotations that cover all of [start, end), by start
+     */
+    public List<T> getContaining(final int start, final int end) {
+        List<T> result = new ArrayList<>();
+        containing(0, items.length, start, end, result);
+        return result;
+    }
+
+    private void containing(final int low, final int high, final int start, final int end, final List<T> result) {
+        if (low >= high) {
+            return;
+        }
+        final int mid = (low + high) >>> 1;
+        if (maxEnds[mid] < end) {
+            return;
+        }
+        containing(low, mid, start, end, result);
+        if (starts[mid] <= start) {
+            if (ends[mid] >= end) {
+                result.add(get(mid));
+            }
+            containing(mid + 1, high, start, end, result);
+        }
+    }
+
+    /**
+     * @return an annotation with the smallest gap to [start, end), an overlapping one if there is any, or null if the
+     * tree is empty
+     */
+    public T getNearest(final int start, final int end) {
+        if (items.length == 0) {
+            return null;
+        }
+        //spans starting before the end of the query: the one ending last is the closest of them
+        final int after = lowerBound(end);
+        final int before = after > 0 ? prefixMaxEnds[after - 1] : -1;
+        final long beforeGap = before < 0 ? Long.MAX_VALUE : Math.max(0, (long) start - ends[before]);
+        final long afterGap = after < items.length ? (long) starts[after] - end : Long.MAX_VALUE;
+        return get(beforeGap <= afterGap ? before : after);
+    }
+
+    /**
+     * @return the first index whose start is at least the given value
+     */
+    private int lowerBound(final int value) {
+        int low = 0, high = items.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (starts[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,60 @@
+package org.annotation.brat.snapshot;
+
+import lombok.NonNull;
+import org.annotation.brat.BratDocument;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary format for parsed brat documents, including their sentences and the distribution of the
+ * annotations into them.
+ * <pre>
+ * file     := MAGIC VERSION record* END footer footerOffset:int64 MAGIC
+ * record   := DOCUMENT length:varint document
+ * footer   := labelCount:varint string* documentCount:varint (recordOffset delta:varint)*
+ * </pre>
+ * Texts are length prefixed UTF-8, offsets are zig-zag varints. Types, roles, attribute names and id prefixes are
+ * labels: a label is written inline the first time it occurs and as its code afterwards, so the file can be read
+ * sequentially. The footer repeats all labels and has the offset of every record, so that
+ * {@link MappedBratSnapshot} can decode document N alone. Ids of the form prefix + number are stored as label code
+ * and number. Entity and sentence texts that equal the covered document text are not stored.
+ */
+public final class BratSnapshot {
+
+    static final byte[] MAGIC = {'B', 'R', 'S', 'N'};
+
+    /**
+     * the format version written by {@link BratSnapshotWriter}
+     */
+    public static final int VERSION = 1;
+
+    static final int DOCUMENT = 1;
+
+    static final int END = 0;
+
+    private BratSnapshot() {
+
+    }
+
+    public static void write(@NonNull final Iterable<? extends BratDocument> documents, @NonNull final Path file)
+            throws IOException {
+        try (BratSnapshotWriter writer = new BratSnapshotWriter(file)) {
+            for (BratDocument document : documents) {
+                writer.write(document);
+            }
+        }
+    }
+
+    public static List<BratDocument> read(@NonNull final Path file) throws IOException {
+        List<BratDocument> documents = new ArrayList<>();
+        try (BratSnapshotReader reader = new BratSnapshotReader(file)) {
+            for (BratDocument document = reader.read(); null != document; document = reader.read()) {
+                documents.add(document);
+            }
+        }
+        return documents;
+    }
+}
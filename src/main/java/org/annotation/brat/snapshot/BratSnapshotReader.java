@@ -0,0 +1,107 @@
+package org.annotation.brat.snapshot;
+
+import lombok.NonNull;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratLabelPool;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads the documents of a {@link BratSnapshot} sequentially from a stream, see {@link MappedBratSnapshot} for random
+ * access.
+ */
+public class BratSnapshotReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private final SnapshotDecoder decoder;
+
+    private byte[] record = new byte[1 << 12];
+
+    private boolean finished;
+
+    public BratSnapshotReader(@NonNull final Path file) throws IOException {
+        this(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    /**
+     * @param in the stream is closed by {@link #close()}
+     */
+    public BratSnapshotReader(@NonNull final InputStream in) throws IOException {
+        this(in, null);
+    }
+
+    /**
+     * @param in        the stream is closed by {@link #close()}
+     * @param labelPool pool for the types, roles and attribute names, may be null
+     */
+    public BratSnapshotReader(@NonNull final InputStream in, final BratLabelPool labelPool) throws IOException {
+        this.in = new DataInputStream(in);
+        this.decoder = new SnapshotDecoder(labelPool);
+        checkHeader(this.in);
+    }
+
+    static void checkHeader(final DataInputStream in) throws IOException {
+        byte[] magic = new byte[BratSnapshot.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, BratSnapshot.MAGIC)) {
+            throw new IOException("Not a brat snapshot");
+        }
+        final int version = in.readUnsignedByte();
+        if (version > BratSnapshot.VERSION) {
+            throw new IOException("Unsupported brat snapshot version " + version);
+        }
+    }
+
+    /**
+     * @return the next document, or null after the last one
+     */
+    public BratDocument read() throws IOException {
+        if (finished) {
+            return null;
+        }
+        final int tag = readVarint();
+        if (tag == BratSnapshot.END) {
+            finished = true;
+            return null;
+        }
+        if (tag != BratSnapshot.DOCUMENT) {
+            throw new IOException("Unknown brat snapshot record " + tag);
+        }
+        final int length = readVarint();
+        if (length > record.length) {
+            record = new byte[Math.max(length, record.length * 2)];
+        }
+        in.readFully(record, 0, length);
+        return decoder.decode(ByteBuffer.wrap(record, 0, length));
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated brat snapshot");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
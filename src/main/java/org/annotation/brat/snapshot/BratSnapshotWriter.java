@@ -0,0 +1,99 @@
+package org.annotation.brat.snapshot;
+
+import lombok.NonNull;
+import org.annotation.brat.BratDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes documents into a {@link BratSnapshot}, one record at a time. The footer is written by {@link #close()}.
+ */
+public class BratSnapshotWriter implements Closeable {
+
+    private final DataOutputStream out;
+
+    private final SnapshotEncoder encoder = new SnapshotEncoder();
+
+    private final SnapshotEncoder header = new SnapshotEncoder();
+
+    /**
+     * offsets of the records, as deltas
+     */
+    private final SnapshotEncoder offsets = new SnapshotEncoder();
+
+    private long position;
+
+    private long lastOffset;
+
+    private int documents;
+
+    private boolean closed;
+
+    public BratSnapshotWriter(@NonNull final Path file) throws IOException {
+        this(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    /**
+     * @param out the stream is closed by {@link #close()}
+     */
+    public BratSnapshotWriter(@NonNull final OutputStream out) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.write(BratSnapshot.MAGIC);
+        this.out.writeByte(BratSnapshot.VERSION);
+        position = BratSnapshot.MAGIC.length + 1;
+    }
+
+    public void write(@NonNull final BratDocument document) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The snapshot writer is closed");
+        }
+        //the record is encoded first to know its length, labels are registered by the encoder
+        encoder.reset();
+        encoder.encode(document);
+
+        offsets.writeVarlong(position - lastOffset);
+        lastOffset = position;
+
+        header.reset();
+        header.writeVarint(BratSnapshot.DOCUMENT);
+        header.writeVarint(encoder.size());
+        header.writeTo(out);
+        encoder.writeTo(out);
+        position += header.size() + encoder.size();
+        documents++;
+    }
+
+    public int getDocumentCount() {
+        return documents;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (DataOutputStream stream = out) {
+            stream.writeByte(BratSnapshot.END);
+            final long footerOffset = position + 1;
+
+            SnapshotEncoder footer = new SnapshotEncoder();
+            footer.writeVarint(encoder.getLabels().size());
+            for (String label : encoder.getLabels()) {
+                footer.writeString(label);
+            }
+            footer.writeVarint(documents);
+            footer.writeTo(stream);
+            offsets.writeTo(stream);
+
+            stream.writeLong(footerOffset);
+            stream.write(BratSnapshot.MAGIC);
+        }
+    }
+}
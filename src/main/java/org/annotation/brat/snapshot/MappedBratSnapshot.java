@@ -0,0 +1,191 @@
+package org.annotation.brat.snapshot;
+
+import lombok.NonNull;
+import org.annotation.brat.BratDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Random access to the documents of a {@link BratSnapshot} file.
+ * <p>
+ * The file is memory mapped in segments of at most {@link #MAX_SEGMENT_SIZE} bytes, cut at record boundaries, and the
+ * offset table of the footer is loaded when the snapshot is opened. {@link #get(int)} decodes only the requested
+ * document and may be called from several threads.
+ */
+public class MappedBratSnapshot implements Closeable {
+
+    public static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    private static final int TRAILER_SIZE = Long.BYTES + 4;
+
+    private final Path file;
+
+    private final long[] offsets;
+
+    private final ByteBuffer[] segments;
+
+    private final long[] segmentOffsets;
+
+    /**
+     * first document of every segment
+     */
+    private final int[] segmentDocuments;
+
+    private final SnapshotDecoder decoder;
+
+    public MappedBratSnapshot(@NonNull final Path file) throws IOException {
+        this(file, MAX_SEGMENT_SIZE);
+    }
+
+    MappedBratSnapshot(final Path file, final int maxSegmentSize) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < BratSnapshot.MAGIC.length + 1 + TRAILER_SIZE) {
+                throw new IOException("Not a brat snapshot: " + file);
+            }
+            ByteBuffer head = read(channel, 0, BratSnapshot.MAGIC.length + 1);
+            BratSnapshotReader.checkHeader(new DataInputStream(new ByteArrayInputStream(head.array())));
+
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            final long footerOffset = trailer.getLong();
+            byte[] magic = new byte[BratSnapshot.MAGIC.length];
+            trailer.get(magic);
+            if (!Arrays.equals(magic, BratSnapshot.MAGIC) || footerOffset <= 0
+                    || footerOffset > size - TRAILER_SIZE) {
+                throw new IOException("Incomplete brat snapshot: " + file);
+            }
+
+            final long footerSize = size - TRAILER_SIZE - footerOffset;
+            if (footerSize > Integer.MAX_VALUE) {
+                throw new IOException("Footer of brat snapshot too large: " + file);
+            }
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, footerSize);
+            List<String> labels = new ArrayList<>();
+            try {
+                final int labelCount = SnapshotDecoder.readVarint(footer);
+                for (int i = 0; i < labelCount; i++) {
+                    labels.add(SnapshotDecoder.readString(footer));
+                }
+                final int documents = SnapshotDecoder.readVarint(footer);
+                offsets = new long[documents + 1];
+                for (int i = 0; i < documents; i++) {
+                    offsets[i] = (i == 0 ? 0 : offsets[i - 1]) + SnapshotDecoder.readVarlong(footer);
+                }
+                //the END tag follows the last record
+                offsets[documents] = footerOffset - 1;
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt footer of brat snapshot: " + file, e);
+            }
+            decoder = new SnapshotDecoder(labels);
+
+            List<ByteBuffer> segmentList = new ArrayList<>();
+            List<Long> offsetList = new ArrayList<>();
+            List<Integer> documentList = new ArrayList<>();
+            int first = 0;
+            while (first < getDocumentCount()) {
+                int limit = first + 1;
+                while (limit < getDocumentCount() && offsets[limit + 1] - offsets[first] <= maxSegmentSize) {
+                    limit++;
+                }
+                if (offsets[limit] - offsets[first] > Integer.MAX_VALUE) {
+                    throw new IOException("Record " + first + " of brat snapshot too large: " + file);
+                }
+                segmentList.add(channel.map(FileChannel.MapMode.READ_ONLY, offsets[first],
+                        offsets[limit] - offsets[first]));
+                offsetList.add(offsets[first]);
+                documentList.add(first);
+                first = limit;
+            }
+            segments = segmentList.toArray(new ByteBuffer[0]);
+            segmentOffsets = offsetList.stream().mapToLong(Long::longValue).toArray();
+            segmentDocuments = documentList.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static ByteBuffer read(final FileChannel channel, final long position, final int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getDocumentCount() {
+        return offsets.length - 1;
+    }
+
+    int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * decodes the n-th document
+     */
+    public BratDocument get(final int n) throws IOException {
+        Objects.checkIndex(n, getDocumentCount());
+        int segment = Arrays.binarySearch(segmentDocuments, n);
+        segment = segment >= 0 ? segment : -segment - 2;
+
+        ByteBuffer mapped = segments[segment];
+        if (null == mapped) {
+            throw new IllegalStateException("The brat snapshot is closed: " + file);
+        }
+        ByteBuffer record = mapped.duplicate();
+        record.position((int) (offsets[n] - segmentOffsets[segment]));
+        record.limit((int) (offsets[n + 1] - segmentOffsets[segment]));
+        try {
+            if (SnapshotDecoder.readVarint(record) != BratSnapshot.DOCUMENT) {
+                throw new IOException("Document " + n + " is not a document record");
+            }
+            final int length = SnapshotDecoder.readVarint(record);
+            record.limit(record.position() + length);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt record " + n + " of brat snapshot " + file, e);
+        }
+        return decoder.decode(record.slice());
+    }
+
+    /**
+     * decodes the documents lazily, in file order
+     */
+    public Stream<BratDocument> stream() {
+        return IntStream.range(0, getDocumentCount()).mapToObj(n -> {
+            try {
+                return get(n);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * the mappings are released by the garbage collector, the documents can not be read any more
+     */
+    @Override
+    public void close() {
+        Arrays.fill(segments, null);
+    }
+}
@@ -0,0 +1,263 @@
+package org.annotation.brat.snapshot;
+
+import org.annotation.brat.BratBRelation;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratEvent;
+import org.annotation.brat.BratLabelPool;
+import org.annotation.brat.BratSentence;
+import org.utils.TextSlice;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes documents written by {@link SnapshotEncoder}.
+ * <p>
+ * A sequential decoder learns the labels as they occur. A decoder created with all labels of the footer does not
+ * change, so it may decode records concurrently.
+ */
+final class SnapshotDecoder {
+
+    //tags of optional values
+    static final int NULL = 0;
+    static final int DERIVED = 1;
+    static final int LITERAL = 2;
+
+    //label references
+    static final int NULL_LABEL = 0;
+    static final int NEW_LABEL = 1;
+    static final int FIRST_CODE = 2;
+
+    //sentence of annotations
+    private static final int DOCUMENT_LEVEL = 0;
+    private static final int DETACHED = 1;
+    private static final int FIRST_SENTENCE = 2;
+
+    private final List<String> labels;
+
+    private final boolean sequential;
+
+    private final BratLabelPool labelPool;
+
+    /**
+     * a sequential decoder
+     *
+     * @param labelPool pool of the labels that are read, may be null
+     */
+    SnapshotDecoder(final BratLabelPool labelPool) {
+        this.labels = new ArrayList<>();
+        this.sequential = true;
+        this.labelPool = labelPool;
+    }
+
+    /**
+     * a decoder for random access with all labels of the file
+     */
+    SnapshotDecoder(final List<String> labels) {
+        this.labels = labels;
+        this.sequential = false;
+        this.labelPool = null;
+    }
+
+    BratDocument decode(final ByteBuffer in) throws IOException {
+        try {
+            return readDocument(in);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt brat snapshot record", e);
+        }
+    }
+
+    private BratDocument readDocument(final ByteBuffer in) throws IOException {
+        final String id = readString(in);
+        final String text = readString(in);
+        BratDocument document = new BratDocument(id, text);
+
+        List<BratSentence> sentences = null;
+        final int sentenceCount = readVarint(in) - 1;
+        if (sentenceCount >= 0) {
+            sentences = new ArrayList<>(sentenceCount);
+            for (int s = 0; s < sentenceCount; s++) {
+                BratSentence sentence = new BratSentence();
+                final int start = readSigned(in);
+                final int end = start + readSigned(in);
+                sentence.setStartPosition(start);
+                sentence.setEndPosition(end);
+                switch (readVarint(in)) {
+                    case NULL:
+                        break;
+                    case DERIVED:
+                        sentence.setId(id + "_" + start);
+                        break;
+                    default:
+                        sentence.setId(readString(in));
+                }
+                sentence.setTextView(readText(in, text, start, end));
+                sentences.add(sentence);
+            }
+            document.setSentences(sentences);
+        }
+
+        final int entityCount = readVarint(in);
+        BratEntity[] entities = new BratEntity[entityCount];
+        for (int e = 0; e < entityCount; e++) {
+            final int sentence = readVarint(in);
+            final String type = readLabel(in);
+            final String entityId = readId(in);
+            final int start = readSigned(in);
+            final int end = start + readSigned(in);
+            CharSequence entityText = readText(in, text, start, end);
+            BratEntity entity = new BratEntity(type, null == entityText ? null : entityText.toString());
+            entity.setId(entityId);
+            entity.setStartPosition(start);
+            entity.setEndPosition(end);
+            entities[e] = entity;
+            if (sentence == DOCUMENT_LEVEL) {
+                document.getEntities().add(entity);
+            } else if (sentence != DETACHED) {
+                getSentence(sentences, sentence).getEntities().add(entity);
+            }
+        }
+
+        final int eventCount = readVarint(in);
+        for (int e = 0; e < eventCount; e++) {
+            final int sentence = readVarint(in);
+            final String type = readLabel(in);
+            final String eventId = readId(in);
+            BratEvent event = new BratEvent(type, readEntity(in, entities));
+            event.setId(eventId);
+            switch (readVarint(in)) {
+                case NULL:
+                    break;
+                case DERIVED:
+                    event.setDocId(id);
+                    break;
+                default:
+                    event.setDocId(readString(in));
+            }
+            event.setAnnotator(readVarint(in) == NULL ? null : readString(in));
+            final int arguments = readVarint(in);
+            for (int a = 0; a < arguments; a++) {
+                String role = readLabel(in);
+                event.getArgument().add(role, readEntity(in, entities));
+            }
+            final int attributes = readVarint(in);
+            for (int a = 0; a < attributes; a++) {
+                event.getAttribute().add(readLabel(in));
+            }
+            (sentence == DOCUMENT_LEVEL ? document.getEvents() : getSentence(sentences, sentence).getEvents())
+                    .add(event);
+        }
+
+        final int relationCount = readVarint(in);
+        for (int r = 0; r < relationCount; r++) {
+            final int sentence = readVarint(in);
+            BratBRelation relation = new BratBRelation(readLabel(in));
+            relation.setId(readId(in));
+            final int arguments = readVarint(in);
+            for (int a = 0; a < arguments; a++) {
+                relation.getArguments().add(readEntity(in, entities));
+            }
+            (sentence == DOCUMENT_LEVEL ? document.getRelations() : getSentence(sentences, sentence).getRelations())
+                    .add(relation);
+        }
+        return document;
+    }
+
+    private static BratSentence getSentence(final List<BratSentence> sentences, final int sentence)
+            throws IOException {
+        if (null == sentences || sentence < FIRST_SENTENCE || sentence - FIRST_SENTENCE >= sentences.size()) {
+            throw new IOException("Invalid sentence reference " + sentence);
+        }
+        return sentences.get(sentence - FIRST_SENTENCE);
+    }
+
+    private static BratEntity readEntity(final ByteBuffer in, final BratEntity[] entities) {
+        final int row = readVarint(in);
+        return row == 0 ? null : entities[row - 1];
+    }
+
+    private static CharSequence readText(final ByteBuffer in, final String text, final int start, final int end) {
+        switch (readVarint(in)) {
+            case NULL:
+                return null;
+            case DERIVED:
+                return new TextSlice(text, start, end);
+            default:
+                return readString(in);
+        }
+    }
+
+    private String readId(final ByteBuffer in) throws IOException {
+        switch (readVarint(in)) {
+            case NULL:
+                return null;
+            case DERIVED:
+                String prefix = readLabel(in);
+                return prefix + readVarint(in);
+            default:
+                return readString(in);
+        }
+    }
+
+    String readLabel(final ByteBuffer in) throws IOException {
+        final int code = readVarint(in);
+        if (code == NULL_LABEL) {
+            return null;
+        }
+        if (code == NEW_LABEL) {
+            String label = readString(in);
+            if (null != labelPool) {
+                label = labelPool.intern(label);
+            }
+            if (sequential) {
+                labels.add(label);
+            }
+            return label;
+        }
+        if (code - FIRST_CODE >= labels.size()) {
+            throw new IOException("Unknown label " + (code - FIRST_CODE));
+        }
+        return labels.get(code - FIRST_CODE);
+    }
+
+    static String readString(final ByteBuffer in) {
+        final int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int readSigned(final ByteBuffer in) {
+        final int value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int readVarint(final ByteBuffer in) {
+        return (int) readVarlong(in);
+    }
+
+    static long readVarlong(final ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,282 @@
+package org.annotation.brat.snapshot;
+
+import org.annotation.brat.BratBRelation;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratEvent;
+import org.annotation.brat.BratSentence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes documents into a reused byte buffer, keeping the labels seen so far. Not thread safe.
+ */
+final class SnapshotEncoder {
+
+    private byte[] buffer = new byte[1 << 12];
+
+    private int size;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    private final List<String> labels = new ArrayList<>();
+
+    List<String> getLabels() {
+        return labels;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    void writeTo(final OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    void encode(final BratDocument document) {
+        final String text = document.getText();
+        writeString(document.getId());
+        writeString(text);
+
+        List<BratSentence> sentences = document.getSentences();
+        writeVarint(null == sentences ? 0 : sentences.size() + 1);
+        if (null != sentences) {
+            for (BratSentence sentence : sentences) {
+                writeSigned(sentence.getStartPosition());
+                writeSigned(sentence.getEndPosition() - sentence.getStartPosition());
+                String id = sentence.getId();
+                if (null == id) {
+                    writeVarint(SnapshotDecoder.NULL);
+                } else if (id.equals(document.getId() + "_" + sentence.getStartPosition())) {
+                    writeVarint(SnapshotDecoder.DERIVED);
+                } else {
+                    writeVarint(SnapshotDecoder.LITERAL);
+                    writeString(id);
+                }
+                writeText(text, sentence.getStartPosition(), sentence.getEndPosition(), sentence.getTextView());
+            }
+        }
+
+        //entity table: the annotations of the lists, then entities that are only referenced
+        List<BratEntity> entities = new ArrayList<>();
+        List<Integer> entitySentences = new ArrayList<>();
+        Map<BratEntity, Integer> rows = new IdentityHashMap<>();
+        if (null != sentences) {
+            for (int s = 0; s < sentences.size(); s++) {
+                for (BratEntity entity : sentences.get(s).getEntities()) {
+                    addEntity(entity, s + 2, entities, entitySentences, rows);
+                }
+            }
+        }
+        for (BratEntity entity : document.getEntities()) {
+            addEntity(entity, 0, entities, entitySentences, rows);
+        }
+        for (BratEvent event : document.getAllEvents()) {
+            addEntity(event.getTrigger(), 1, entities, entitySentences, rows);
+            event.getArgument().getEntities().forEach(e -> addEntity(e, 1, entities, entitySentences, rows));
+        }
+        for (BratBRelation relation : document.getAllRelations()) {
+            relation.getArguments().forEach(e -> addEntity(e, 1, entities, entitySentences, rows));
+        }
+
+        writeVarint(entities.size());
+        for (int e = 0; e < entities.size(); e++) {
+            BratEntity entity = entities.get(e);
+            writeVarint(entitySentences.get(e));
+            writeLabel(entity.getType());
+            writeId(entity.getId());
+            writeSigned(entity.getStartPosition());
+            writeSigned(entity.getEndPosition() - entity.getStartPosition());
+            writeText(text, entity.getStartPosition(), entity.getEndPosition(), entity.getText());
+        }
+
+        writeVarint(document.getEvents().size() + count(sentences, BratSentence::getEvents));
+        if (null != sentences) {
+            for (int s = 0; s < sentences.size(); s++) {
+                for (BratEvent event : sentences.get(s).getEvents()) {
+                    writeEvent(document, event, s + 2, rows);
+                }
+            }
+        }
+        for (BratEvent event : document.getEvents()) {
+            writeEvent(document, event, 0, rows);
+        }
+
+        writeVarint(document.getRelations().size() + count(sentences, BratSentence::getRelations));
+        if (null != sentences) {
+            for (int s = 0; s < sentences.size(); s++) {
+                for (BratBRelation relation : sentences.get(s).getRelations()) {
+                    writeRelation(relation, s + 2, rows);
+                }
+            }
+        }
+        for (BratBRelation relation : document.getRelations()) {
+            writeRelation(relation, 0, rows);
+        }
+    }
+
+    private static int count(final List<BratSentence> sentences,
+                             final java.util.function.Function<BratSentence, List<?>> annotations) {
+        return null == sentences ? 0 : sentences.stream().mapToInt(s -> annotations.apply(s).size()).sum();
+    }
+
+    private static void addEntity(final BratEntity entity, final int sentence, final List<BratEntity> entities,
+                                  final List<Integer> entitySentences, final Map<BratEntity, Integer> rows) {
+        if (null != entity && !rows.containsKey(entity)) {
+            rows.put(entity, entities.size());
+            entities.add(entity);
+            entitySentences.add(sentence);
+        }
+    }
+
+    private void writeEvent(final BratDocument document, final BratEvent event, final int sentence,
+                            final Map<BratEntity, Integer> rows) {
+        writeVarint(sentence);
+        writeLabel(event.getType());
+        writeId(event.getId());
+        writeEntity(event.getTrigger(), rows);
+        if (null == event.getDocId()) {
+            writeVarint(SnapshotDecoder.NULL);
+        } else if (event.getDocId().equals(document.getId())) {
+            writeVarint(SnapshotDecoder.DERIVED);
+        } else {
+            writeVarint(SnapshotDecoder.LITERAL);
+            writeString(event.getDocId());
+        }
+        writeNullableString(event.getAnnotator());
+        writeVarint(event.getArgument().size());
+        event.getArgument().forEach((role, entity) -> {
+            writeLabel(role);
+            writeEntity(entity, rows);
+        });
+        writeVarint(event.getAttribute().size());
+        event.getAttribute().forEach(this::writeLabel);
+    }
+
+    private void writeRelation(final BratBRelation relation, final int sentence,
+                               final Map<BratEntity, Integer> rows) {
+        writeVarint(sentence);
+        writeLabel(relation.getType());
+        writeId(relation.getId());
+        writeVarint(relation.getArguments().size());
+        relation.getArguments().forEach(e -> writeEntity(e, rows));
+    }
+
+    private void writeEntity(final BratEntity entity, final Map<BratEntity, Integer> rows) {
+        writeVarint(null == entity ? 0 : rows.get(entity) + 1);
+    }
+
+    private void writeText(final String text, final int start, final int end, final CharSequence covered) {
+        if (null == covered) {
+            writeVarint(SnapshotDecoder.NULL);
+        } else if (covers(text, start, end, covered)) {
+            writeVarint(SnapshotDecoder.DERIVED);
+        } else {
+            writeVarint(SnapshotDecoder.LITERAL);
+            writeString(covered.toString());
+        }
+    }
+
+    private static boolean covers(final String text, final int start, final int end, final CharSequence covered) {
+        if (start < 0 || start > end || end > text.length() || covered.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < covered.length(); i++) {
+            if (text.charAt(start + i) != covered.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * "T12" is written as the label "T" and 12, other ids as strings
+     */
+    private void writeId(final String id) {
+        if (null == id) {
+            writeVarint(SnapshotDecoder.NULL);
+            return;
+        }
+        int digits = id.length();
+        while (digits > 0 && Character.isDigit(id.charAt(digits - 1)) && id.charAt(digits - 1) < 128) {
+            digits--;
+        }
+        final int numberLength = id.length() - digits;
+        if (numberLength == 0 || numberLength > 9 || (numberLength > 1 && id.charAt(digits) == '0')) {
+            writeVarint(SnapshotDecoder.LITERAL);
+            writeString(id);
+            return;
+        }
+        writeVarint(SnapshotDecoder.DERIVED);
+        writeLabel(id.substring(0, digits));
+        writeVarint(Integer.parseInt(id, digits, id.length(), 10));
+    }
+
+    void writeLabel(final String label) {
+        if (null == label) {
+            writeVarint(SnapshotDecoder.NULL_LABEL);
+            return;
+        }
+        Integer code = codes.get(label);
+        if (null == code) {
+            writeVarint(SnapshotDecoder.NEW_LABEL);
+            writeString(label);
+            codes.put(label, labels.size());
+            labels.add(label);
+        } else {
+            writeVarint(code + SnapshotDecoder.FIRST_CODE);
+        }
+    }
+
+    void writeString(final String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeNullableString(final String s) {
+        if (null == s) {
+            writeVarint(SnapshotDecoder.NULL);
+        } else {
+            writeVarint(SnapshotDecoder.LITERAL);
+            writeString(s);
+        }
+    }
+
+    void writeSigned(final int value) {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    void writeVarint(final int value) {
+        writeVarlong(value & 0xFFFFFFFFL);
+    }
+
+    void writeVarlong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void ensure(final int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.annotation.brat.stats;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import org.annotation.brat.BratBRelation;
+import org.annotation.brat.BratCorpusLoader;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratEvent;
+import org.annotation.brat.BratSentence;
+import org.utils.JsonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Profile of a corpus: counts per entity, event and relation type, argument roles and attributes, and histograms of
+ * span, sentence and document lengths and of the annotation density.
+ * <p>
+ * Every document is visited once by {@link #add(BratDocument)}, walking the annotation lists of the document and its
+ * sentences in place. Counters are primitive arrays and histograms, so statistics of partitions are cheap to collect
+ * separately and to combine with {@link #merge(BratCorpusStatistics)}; {@link #of(List)} does so in one fork-join
+ * pass. Instances are not thread safe.
+ */
+@Getter
+public class BratCorpusStatistics {
+
+    /**
+     * documents per fork-join leaf
+     */
+    static final int THRESHOLD = 32;
+
+    private long documents;
+
+    private long sentences;
+
+    private long characters;
+
+    private long entities;
+
+    private long events;
+
+    private long relations;
+
+    /**
+     * files skipped by {@link #read(File, BratCorpusLoader)}
+     */
+    private long skippedFiles;
+
+    private final LabelCounter entityTypes = new LabelCounter();
+
+    private final LabelCounter eventTypes = new LabelCounter();
+
+    private final LabelCounter relationTypes = new LabelCounter();
+
+    private final LabelCounter argumentRoles = new LabelCounter();
+
+    private final LabelCounter eventAttributes = new LabelCounter();
+
+    private final Histogram entitySpanLengths = new Histogram();
+
+    /**
+     * indexed by the codes of {@link #entityTypes}
+     */
+    @Getter(AccessLevel.NONE)
+    private final List<Histogram> spanLengthsByType = new ArrayList<>();
+
+    private final Histogram eventArguments = new Histogram();
+
+    private final Histogram sentenceLengths = new Histogram();
+
+    private final Histogram sentencesPerDocument = new Histogram();
+
+    private final Histogram documentLengths = new Histogram();
+
+    private final Histogram annotationsPerDocument = new Histogram();
+
+    /**
+     * annotations per 1000 characters of every document
+     */
+    private final Histogram documentDensity = new Histogram();
+
+    public static BratCorpusStatistics of(@NonNull final List<? extends BratDocument> documents) {
+        return of(documents, ForkJoinPool.commonPool());
+    }
+
+    public static BratCorpusStatistics of(@NonNull final List<? extends BratDocument> documents,
+                                          @NonNull final ForkJoinPool pool) {
+        return pool.invoke(new Task(documents, 0, documents.size()));
+    }
+
+    /**
+     * streams the documents of the directory through the statistics, the documents are not kept. Parsing runs in
+     * parallel as configured in the loader.
+     */
+    public static BratCorpusStatistics read(@NonNull final File inputDir, @NonNull final BratCorpusLoader loader)
+            throws IOException {
+        BratCorpusStatistics statistics = new BratCorpusStatistics();
+        statistics.skippedFiles = loader.load(inputDir, statistics::add).size();
+        return statistics;
+    }
+
+    public void add(@NonNull final BratDocument document) {
+        final long before = entities + events + relations;
+        final int length = null == document.getText() ? 0 : document.getText().length();
+        documents++;
+        characters += length;
+        documentLengths.add(length);
+
+        addEntities(document.getEntities());
+        addEvents(document.getEvents());
+        addRelations(document.getRelations());
+        final List<BratSentence> documentSentences = document.getSentences();
+        if (null != documentSentences) {
+            sentences += documentSentences.size();
+            sentencesPerDocument.add(documentSentences.size());
+            for (BratSentence sentence : documentSentences) {
+                sentenceLengths.add(sentence.getEndPosition() - sentence.getStartPosition());
+                addEntities(sentence.getEntities());
+                addEvents(sentence.getEvents());
+                addRelations(sentence.getRelations());
+            }
+        } else {
+            sentencesPerDocument.add(0);
+        }
+
+        final long annotations = entities + events + relations - before;
+        annotationsPerDocument.add(annotations);
+        if (length > 0) {
+            documentDensity.add(Math.round(annotations * 1000.0 / length));
+        }
+    }
+
+    private void addEntities(final List<BratEntity> list) {
+        for (int i = 0; i < list.size(); i++) {
+            BratEntity entity = list.get(i);
+            final int code = entityTypes.add(entity.getType());
+            final int length = entity.getEndPosition() - entity.getStartPosition();
+            entitySpanLengths.add(length);
+            spanLengths(code).add(length);
+        }
+        entities += list.size();
+    }
+
+    private void addEvents(final List<BratEvent> list) {
+        for (int i = 0; i < list.size(); i++) {
+            BratEvent event = list.get(i);
+            eventTypes.add(event.getType());
+            final int arguments = event.getArgument().size();
+            eventArguments.add(arguments);
+            for (int a = 0; a < arguments; a++) {
+                argumentRoles.add(event.getArgument().getRole(a));
+            }
+            for (String attribute : event.getAttribute()) {
+                eventAttributes.add(attribute);
+            }
+        }
+        events += list.size();
+    }
+
+    private void addRelations(final List<BratBRelation> list) {
+        for (int i = 0; i < list.size(); i++) {
+            relationTypes.add(list.get(i).getType());
+        }
+        relations += list.size();
+    }
+
+    private Histogram spanLengths(final int code) {
+        while (spanLengthsByType.size() <= code) {
+            spanLengthsByType.add(new Histogram());
+        }
+        return spanLengthsByType.get(code);
+    }
+
+    public BratCorpusStatistics merge(@NonNull final BratCorpusStatistics other) {
+        documents += other.documents;
+        sentences += other.sentences;
+        characters += other.characters;
+        entities += other.entities;
+        events += other.events;
+        relations += other.relations;
+        skippedFiles += other.skippedFiles;
+        for (int i = 0; i < other.spanLengthsByType.size(); i++) {
+            spanLengths(entityTypes.add(other.entityTypes.getLabel(i), 0)).merge(other.spanLengthsByType.get(i));
+        }
+        entityTypes.merge(other.entityTypes);
+        eventTypes.merge(other.eventTypes);
+        relationTypes.merge(other.relationTypes);
+        argumentRoles.merge(other.argumentRoles);
+        eventAttributes.merge(other.eventAttributes);
+        entitySpanLengths.merge(other.entitySpanLengths);
+        eventArguments.merge(other.eventArguments);
+        sentenceLengths.merge(other.sentenceLengths);
+        sentencesPerDocument.merge(other.sentencesPerDocument);
+        documentLengths.merge(other.documentLengths);
+        annotationsPerDocument.merge(other.annotationsPerDocument);
+        documentDensity.merge(other.documentDensity);
+        return this;
+    }
+
+    /**
+     * @return entity type -> lengths of its spans, sorted by type
+     */
+    public SortedMap<String, Histogram> getEntitySpanLengthsByType() {
+        SortedMap<String, Histogram> map = new TreeMap<>();
+        for (int i = 0; i < spanLengthsByType.size(); i++) {
+            map.put(entityTypes.getLabel(i), spanLengthsByType.get(i));
+        }
+        return map;
+    }
+
+    /**
+     * @return annotations per 1000 characters of the whole corpus
+     */
+    public double getDensity() {
+        return characters == 0 ? 0 : (entities + events + relations) * 1000.0 / characters;
+    }
+
+    public void write(@NonNull final File file) throws IOException {
+        JsonUtils.write(file, this, true);
+    }
+
+    public void write(@NonNull final Writer writer) throws IOException {
+        JsonUtils.write(writer, this, true);
+    }
+
+    private static final class Task extends RecursiveTask<BratCorpusStatistics> {
+        private final List<? extends BratDocument> documents;
+        private final int from;
+        private final int to;
+
+        private Task(final List<? extends BratDocument> documents, final int from, final int to) {
+            this.documents = documents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BratCorpusStatistics compute() {
+            if (to - from <= THRESHOLD) {
+                BratCorpusStatistics statistics = new BratCorpusStatistics();
+                for (int i = from; i < to; i++) {
+                    statistics.add(documents.get(i));
+                }
+                return statistics;
+            }
+            final int mid = (from + to) >>> 1;
+            Task left = new Task(documents, from, mid);
+            left.fork();
+            BratCorpusStatistics right = new Task(documents, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.annotation.brat.stats;
+
+import lombok.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Histogram of non-negative longs in power of two buckets: 0, 1, 2-3, 4-7, ... Negative values are counted as 0.
+ * <p>
+ * Instances are not thread safe, histograms of partitions are combined with {@link #merge(Histogram)}.
+ */
+public final class Histogram {
+
+    private static final int BUCKETS = Long.SIZE;
+
+    private final long[] counts = new long[BUCKETS];
+
+    private long count;
+
+    private long sum;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    public void add(final long value) {
+        final long v = Math.max(0, value);
+        counts[bucket(v)]++;
+        count++;
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    public Histogram merge(@NonNull final Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    private static int bucket(final long value) {
+        return BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the smallest value, 0 if empty
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return the largest value, 0 if empty
+     */
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return an upper bound of the quantile: the end of its bucket, but at most the largest value
+     */
+    public long getQuantile(final double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    public long getMedian() {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * @return range -> count of the non-empty buckets, ascending
+     */
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                buckets.put(label(i), counts[i]);
+            }
+        }
+        return buckets;
+    }
+
+    private static String label(final int bucket) {
+        if (bucket <= 1) {
+            return Integer.toString(bucket);
+        }
+        final long low = 1L << (bucket - 1);
+        return low + "-" + (bucket == BUCKETS - 1 ? Long.MAX_VALUE : (low << 1) - 1);
+    }
+}
@@ -0,0 +1,91 @@
+package org.annotation.brat.stats;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.NonNull;
+import org.annotation.brat.columnar.StringDictionary;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Counts per label, in a {@code long[]} indexed by the code of a {@link StringDictionary}. {@code null} labels are
+ * ignored.
+ * <p>
+ * Instances are not thread safe, counters of partitions are combined with {@link #merge(LabelCounter)}.
+ */
+public final class LabelCounter {
+
+    private final StringDictionary labels = new StringDictionary();
+
+    private long[] counts = new long[16];
+
+    /**
+     * @return the code of the label, -1 for null
+     */
+    public int add(final String label) {
+        return add(label, 1);
+    }
+
+    /**
+     * @return the code of the label, -1 for null
+     */
+    public int add(final String label, final long n) {
+        final int code = labels.encode(label);
+        if (code >= 0) {
+            if (code >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(code + 1, counts.length * 2));
+            }
+            counts[code] += n;
+        }
+        return code;
+    }
+
+    public long get(final String label) {
+        final int code = labels.getCode(label);
+        return code < 0 ? 0 : counts[code];
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    /**
+     * @return the label of a code returned by {@link #add(String)}
+     */
+    public String getLabel(final int code) {
+        return labels.decode(code);
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < labels.size(); i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    public LabelCounter merge(@NonNull final LabelCounter other) {
+        for (int i = 0; i < other.labels.size(); i++) {
+            add(other.labels.decode(i), other.counts[i]);
+        }
+        return this;
+    }
+
+    /**
+     * @return label -> count, sorted by label
+     */
+    @JsonValue
+    public SortedMap<String, Long> toMap() {
+        SortedMap<String, Long> map = new TreeMap<>();
+        for (int i = 0; i < labels.size(); i++) {
+            map.put(labels.decode(i), counts[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -2,10 +2,31 @@ package org.utils;
 
 import lombok.NonNull;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.function.Consumer;
 
 /**
  * Provides some IO utility methods: (a) methods to write from and to streams;
@@ -16,6 +37,11 @@ public final class IOUtils {
 
  public static final String DEFAULT_ENCODING = "UTF-8";
 
+    /**
+     * files of at least this size are memory mapped by {@link #readChars(Path, Charset, CharBuffer)}
+     */
+    public static final long MAPPED_THRESHOLD = 1 << 20;
+
     /**
      * locates file either in the CLASSPATH or in the file system. The CLASSPATH
      * takes priority.
@@ -30,4 +56,166 @@ public final class IOUtils {
         return (is = IOUtils.class.getClassLoader().getResourceAsStream(file)) == null ?
                 org.apache.commons.io.FileUtils.openInputStream(new File(file)) : is;
     }
+
+    /**
+     * @param path
+     * @return a buffered input stream of the path
+     * @throws IOException
+     */
+    public static InputStream openStream(@NonNull final Path path) throws IOException {
+        return new BufferedInputStream(Files.newInputStream(path));
+    }
+
+    /**
+     * locates file either in the CLASSPATH or in the file system, like {@link #openStream(String)}. Resources inside
+     * a jar are returned as paths of a zip file system.
+     *
+     * @param file
+     * @return the path of the file
+     * @throws IOException
+     */
+    public static Path getPath(@NonNull final String file) throws IOException {
+        URL url = IOUtils.class.getClassLoader().getResource(file);
+        if (null == url) {
+            return Paths.get(file);
+        }
+        try {
+            URI uri = url.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try {
+                    FileSystems.newFileSystem(uri, Collections.emptyMap());
+                } catch (FileSystemAlreadyExistsException e) {
+                    //already opened by an earlier call
+                }
+            }
+            return Paths.get(uri);
+        } catch (URISyntaxException | FileSystemNotFoundException e) {
+            throw new IOException("Can not resolve " + url, e);
+        }
+    }
+
+    /**
+     * Decodes a whole file. Files of the default file system with at least {@link #MAPPED_THRESHOLD} bytes are memory
+     * mapped and decoded straight from the mapping, smaller files are read into a heap buffer first. Malformed input
+     * is replaced, as {@link String#String(byte[], Charset)} does.
+     *
+     * @param path
+     * @param charset
+     * @param reuse   a buffer to decode into, may be null. A new buffer is allocated if it is too small.
+     * @return the decoded characters, flipped for reading
+     * @throws IOException
+     */
+    public static CharBuffer readChars(@NonNull final Path path, @NonNull final Charset charset,
+                                       final CharBuffer reuse) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        if (path.getFileSystem() != FileSystems.getDefault() || Files.size(path) < MAPPED_THRESHOLD) {
+            return decode(decoder, ByteBuffer.wrap(Files.readAllBytes(path)), reuse);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to be decoded at once: " + path);
+            }
+            return decode(decoder, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), reuse);
+        }
+    }
+
+    /**
+     * @param path
+     * @param charset
+     * @return the content of the file as string
+     * @throws IOException
+     */
+    public static String readString(@NonNull final Path path, @NonNull final Charset charset) throws IOException {
+        if (path.getFileSystem() != FileSystems.getDefault() || Files.size(path) < MAPPED_THRESHOLD) {
+            return new String(Files.readAllBytes(path), charset);
+        }
+        return readChars(path, charset, null).toString();
+    }
+
+    /**
+     * Splits the characters into lines as {@link java.io.BufferedReader#readLine()} does, and hands every line to the
+     * consumer without its terminator. The same {@link CharSequence} instance is reused for all lines, it is only
+     * valid during the call of the consumer.
+     *
+     * @param chars
+     * @param consumer
+     */
+    public static void forEachLine(@NonNull final CharSequence chars, @NonNull final Consumer<CharSequence> consumer) {
+        LineView line = new LineView(chars);
+        final int length = chars.length();
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = chars.charAt(i);
+            if (c == '\n' || c == '\r') {
+                consumer.accept(line.set(start, i));
+                i += c == '\r' && i + 1 < length && chars.charAt(i + 1) == '\n' ? 2 : 1;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (start < length) {
+            consumer.accept(line.set(start, length));
+        }
+    }
+
+    private static CharBuffer decode(final CharsetDecoder decoder, final ByteBuffer bytes, final CharBuffer reuse)
+            throws CharacterCodingException {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(bytes.remaining() * (double) decoder.maxCharsPerByte()));
+        CharBuffer out = null != reuse && reuse.capacity() >= capacity ? reuse : CharBuffer.allocate(capacity);
+        out.clear();
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        result = decoder.flush(out);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        out.flip();
+        return out;
+    }
+
+    private static final class LineView implements CharSequence {
+        private final CharSequence chars;
+        private int start;
+        private int end;
+
+        private LineView(final CharSequence chars) {
+            this.chars = chars;
+        }
+
+        private LineView set(final int start, final int end) {
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int to) {
+            return chars.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return chars.subSequence(start, end).toString();
+        }
+    }
 }
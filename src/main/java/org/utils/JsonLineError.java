@@ -0,0 +1,19 @@
+package org.utils;
+
+import lombok.Data;
+
+/**
+ * A line of a JSON-lines input that could not be read.
+ */
+@Data
+public class JsonLineError {
+
+    /**
+     * 1-based line number
+     */
+    private final long lineNumber;
+
+    private final String line;
+
+    private final String message;
+}
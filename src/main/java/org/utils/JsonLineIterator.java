@@ -0,0 +1,122 @@
+package org.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.NonNull;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Lazily reads one JSON value per line. Blank lines are skipped, lines that can not be read are handled according
+ * to the {@link JsonUtils.ErrorPolicy}. A line holding the JSON literal {@code null} is valid and returned as a
+ * {@code null} value. Only the current line is kept in memory.
+ *
+ * @param <T> type of the values
+ */
+public final class JsonLineIterator<T> implements Iterator<T>, Closeable {
+
+    private final BufferedReader reader;
+
+    private final ObjectReader objectReader;
+
+    private final JsonUtils.ErrorPolicy policy;
+
+    private final Consumer<? super JsonLineError> onError;
+
+    private final List<JsonLineError> errors = new ArrayList<>();
+
+    private long lineNumber;
+
+    private T next;
+
+    /**
+     * whether {@link #next} holds a value not returned yet, it may be null
+     */
+    private boolean hasNext;
+
+    private boolean done;
+
+    /**
+     * @param onError called for every skipped line, may be null
+     */
+    JsonLineIterator(@NonNull final BufferedReader reader, @NonNull final ObjectReader objectReader,
+                     @NonNull final JsonUtils.ErrorPolicy policy, final Consumer<? super JsonLineError> onError) {
+        this.reader = reader;
+        this.objectReader = objectReader;
+        this.policy = policy;
+        this.onError = onError;
+    }
+
+    /**
+     * @return the lines skipped so far, only filled with {@link JsonUtils.ErrorPolicy#COLLECT}
+     */
+    public List<JsonLineError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    next = objectReader.readValue(line);
+                    hasNext = true;
+                    return true;
+                } catch (JsonProcessingException e) {
+                    if (policy == JsonUtils.ErrorPolicy.FAIL) {
+                        throw new UncheckedIOException("Can not read line " + lineNumber, e);
+                    }
+                    JsonLineError error = new JsonLineError(lineNumber, line, e.getOriginalMessage());
+                    if (policy == JsonUtils.ErrorPolicy.COLLECT) {
+                        errors.add(error);
+                    }
+                    if (null != onError) {
+                        onError.accept(error);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        done = true;
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T t = next;
+        next = null;
+        hasNext = false;
+        return t;
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        next = null;
+        hasNext = false;
+        reader.close();
+    }
+}
@@ -1,29 +1,72 @@
 package org.utils;
 
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.IteratorUtils;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * This class ...
  */
-
+@Slf4j
 public final class JsonUtils {
     private static final String LINE = "\n";
 
+    /**
+     * How lines that can not be read are handled by the lazy JSON-lines readers.
+     */
+    public enum ErrorPolicy {
+        /** throw an {@link UncheckedIOException} */
+        FAIL,
+        /** skip the line */
+        SKIP,
+        /** skip the line and remember it, see {@link JsonLineIterator#getErrors()} */
+        COLLECT
+    }
+
+    /**
+     * configured once and shared, it is thread safe as long as nobody reconfigures it
+     */
+    private static final ObjectMapper MAPPER = getJsonMapper();
+
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    private static final ObjectWriter PRETTY_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String GZIP_EXTENSION = ".gz";
+
     private JsonUtils() {
 
     }
 
+    /**
+     * @return a new mapper, which the caller may configure further
+     */
     public static ObjectMapper getJsonMapper() {
         return getJsonMapper(false);
     }
@@ -43,52 +86,136 @@ public final class JsonUtils {
 
     public static <T> void writeList(@NonNull final OutputStream stream,
                                      @NonNull final Collection<T> list) throws IOException {
-        stream.write(toString(list).getBytes(IOUtils.DEFAULT_ENCODING));
+        logFailures(writeLines(stream, list.iterator()));
     }
 
     public static <T> void writeList(@NonNull final Writer writer,
                                      @NonNull final Collection<T> list) throws IOException {
-        writer.write(toString(list));
+        logFailures(writeLines(writer, list.iterator()));
     }
 
     public static <T> void writeList(@NonNull final File file,
                                      @NonNull final Collection<T> list) throws IOException {
+        logFailures(writeLines(file, list.iterator(), false));
+    }
 
-        try (FileOutputStream outputStream = org.apache.commons.io.FileUtils.openOutputStream(file)) {
-            writeList(outputStream, list);
+    /**
+     * Writes one value per line. Every record is serialized into a reused buffer first, so a record that can not be
+     * serialized leaves no partial line behind; it is reported in the result instead. The stream is flushed but not
+     * closed.
+     */
+    public static <T> JsonWriteResult writeLines(@NonNull final OutputStream stream,
+                                                 @NonNull final Iterator<T> records) throws IOException {
+        OutputStream out = stream instanceof BufferedOutputStream || stream instanceof ByteArrayOutputStream ?
+                stream : new BufferedOutputStream(stream, BUFFER_SIZE);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        JsonWriteResult result = new JsonWriteResult();
+        for (long i = 0; records.hasNext(); i++) {
+            T record = records.next();
+            buffer.reset();
+            try {
+                WRITER.writeValue(buffer, record);
+            } catch (JsonProcessingException e) {
+                result.getFailures().add(new JsonWriteResult.Failure(i, e.getOriginalMessage()));
+                continue;
+            }
+            buffer.writeTo(out);
+            out.write('\n');
+            result.setWritten(result.getWritten() + 1);
         }
+        out.flush();
+        return result;
     }
 
-    public static <T> String toString(@NonNull final Collection<T> list) {
-        ObjectMapper mapper = getJsonMapper();
-        StringBuilder sb = new StringBuilder();
-        list.forEach(t -> {
+    public static <T> JsonWriteResult writeLines(@NonNull final OutputStream stream,
+                                                 @NonNull final Stream<T> records) throws IOException {
+        return writeLines(stream, records.iterator());
+    }
+
+    /**
+     * writes one value per line, the writer is flushed but not closed
+     */
+    public static <T> JsonWriteResult writeLines(@NonNull final Writer writer,
+                                                 @NonNull final Iterator<T> records) throws IOException {
+        JsonWriteResult result = new JsonWriteResult();
+        for (long i = 0; records.hasNext(); i++) {
+            String json;
             try {
-                sb.append(mapper.writeValueAsString(t)).append(LINE);
+                json = WRITER.writeValueAsString(records.next());
             } catch (JsonProcessingException e) {
-//                e.printStackTrace();
-//                log.warn(e.getMessage());
+                result.getFailures().add(new JsonWriteResult.Failure(i, e.getOriginalMessage()));
+                continue;
             }
-        });
-        return sb.toString();
+            writer.write(json);
+            writer.write(LINE);
+            result.setWritten(result.getWritten() + 1);
+        }
+        writer.flush();
+        return result;
+    }
+
+    /**
+     * writes one value per line into the file, optionally gzip compressed
+     */
+    public static <T> JsonWriteResult writeLines(@NonNull final File file,
+                                                 @NonNull final Iterator<T> records,
+                                                 final boolean gzip) throws IOException {
+        try (OutputStream out = openOutputStream(file, gzip)) {
+            return writeLines(out, records);
+        }
+    }
+
+    public static <T> JsonWriteResult writeLines(@NonNull final File file,
+                                                 @NonNull final Stream<T> records,
+                                                 final boolean gzip) throws IOException {
+        return writeLines(file, records.iterator(), gzip);
+    }
+
+    /**
+     * writes a single value, e.g. a report, as one JSON document. The writer is flushed but not closed.
+     */
+    public static void write(@NonNull final Writer writer, @NonNull final Object value,
+                             final boolean indentOutput) throws IOException {
+        writer.write((indentOutput ? PRETTY_WRITER : WRITER).writeValueAsString(value));
+        writer.write(LINE);
+        writer.flush();
+    }
+
+    public static void write(@NonNull final File file, @NonNull final Object value,
+                             final boolean indentOutput) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8))) {
+            write(writer, value, indentOutput);
+        }
+    }
+
+    public static <T> String toString(@NonNull final Collection<T> list) {
+        StringWriter writer = new StringWriter();
+        try {
+            logFailures(writeLines(writer, list.iterator()));
+        } catch (IOException e) {
+            //a string writer does not throw
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 
     public static <T> T read(@NonNull final String file,
                              @NonNull final Class<? extends T> c) throws IOException {
         try (InputStream s = IOUtils.openStream(file)) {
-            return getJsonMapper().readValue(s, c);
+            return reader(c).readValue(s);
         }
     }
 
     public static <T> List<T> readList(@NonNull final Reader reader,
                                        @NonNull final Class<? extends T> c) throws IOException {
-        MappingIterator<? extends T> it = getJsonMapper().readValues(new JsonFactory().createParser(reader), c);
+        MappingIterator<? extends T> it = reader(c).readValues(reader);
         return IteratorUtils.toList(it);
     }
 
     public static <T> List<T> readList(@NonNull final InputStream stream,
                                        @NonNull final Class<? extends T> c) throws IOException {
-        MappingIterator<? extends T> it = getJsonMapper().readValues(new JsonFactory().createParser(stream), c);
+        MappingIterator<? extends T> it = reader(c).readValues(stream);
         return IteratorUtils.toList(it);
     }
 
@@ -105,4 +232,117 @@ public final class JsonUtils {
             return readList(stream, c);
         }
     }
+
+    /**
+     * Lazily reads one value per line. The iterator must be closed, which also closes the reader.
+     */
+    public static <T> JsonLineIterator<T> iterate(@NonNull final Reader reader,
+                                                  @NonNull final Class<? extends T> c,
+                                                  @NonNull final ErrorPolicy policy) {
+        return new JsonLineIterator<>(buffered(reader), reader(c), policy, null);
+    }
+
+    public static <T> JsonLineIterator<T> iterate(@NonNull final InputStream stream,
+                                                  @NonNull final Class<? extends T> c,
+                                                  @NonNull final ErrorPolicy policy) {
+        return iterate(new InputStreamReader(stream, StandardCharsets.UTF_8), c, policy);
+    }
+
+    /**
+     * files ending with ".gz" are decompressed
+     */
+    public static <T> JsonLineIterator<T> iterate(@NonNull final File file,
+                                                  @NonNull final Class<? extends T> c,
+                                                  @NonNull final ErrorPolicy policy) throws IOException {
+        return iterate(openInputStream(file), c, policy);
+    }
+
+    public static <T> JsonLineIterator<T> iterate(@NonNull final String file,
+                                                  @NonNull final Class<? extends T> c,
+                                                  @NonNull final ErrorPolicy policy) throws IOException {
+        return iterate(IOUtils.openStream(file), c, policy);
+    }
+
+    /**
+     * Lazily reads one value per line. The stream must be closed, which also closes the reader.
+     */
+    public static <T> Stream<T> readStream(@NonNull final Reader reader,
+                                           @NonNull final Class<? extends T> c,
+                                           @NonNull final ErrorPolicy policy) {
+        return toStream(iterate(reader, c, policy));
+    }
+
+    /**
+     * Lazily reads one value per line, lines that can not be read are skipped and passed to the error handler.
+     */
+    public static <T> Stream<T> readStream(@NonNull final Reader reader,
+                                           @NonNull final Class<? extends T> c,
+                                           @NonNull final Consumer<? super JsonLineError> onError) {
+        return toStream(new JsonLineIterator<>(buffered(reader), reader(c), ErrorPolicy.SKIP, onError));
+    }
+
+    public static <T> Stream<T> readStream(@NonNull final InputStream stream,
+                                           @NonNull final Class<? extends T> c,
+                                           @NonNull final ErrorPolicy policy) {
+        return readStream(new InputStreamReader(stream, StandardCharsets.UTF_8), c, policy);
+    }
+
+    /**
+     * files ending with ".gz" are decompressed
+     */
+    public static <T> Stream<T> readStream(@NonNull final File file,
+                                           @NonNull final Class<? extends T> c,
+                                           @NonNull final ErrorPolicy policy) throws IOException {
+        return readStream(openInputStream(file), c, policy);
+    }
+
+    public static <T> Stream<T> readStream(@NonNull final String file,
+                                           @NonNull final Class<? extends T> c,
+                                           @NonNull final ErrorPolicy policy) throws IOException {
+        return readStream(IOUtils.openStream(file), c, policy);
+    }
+
+    private static <T> Stream<T> toStream(final JsonLineIterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        iterator.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static InputStream openInputStream(final File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return file.getName().endsWith(GZIP_EXTENSION) ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static OutputStream openOutputStream(final File file, final boolean gzip) throws IOException {
+        OutputStream out = org.apache.commons.io.FileUtils.openOutputStream(file);
+        try {
+            return gzip ? new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE) :
+                    new BufferedOutputStream(out, BUFFER_SIZE);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    private static void logFailures(final JsonWriteResult result) {
+        result.getFailures().forEach(f -> log.warn("Can not write record {}: {}", f.getIndex(), f.getMessage()));
+    }
+
+    private static BufferedReader buffered(final Reader reader) {
+        return reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    private static ObjectReader reader(final Class<?> c) {
+        return READERS.computeIfAbsent(c, MAPPER::readerFor);
+    }
 }
@@ -0,0 +1,27 @@
+package org.utils;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a JSON-lines write: how many records were written and which ones could not be serialized.
+ */
+@Data
+public class JsonWriteResult {
+
+    @Data
+    public static class Failure {
+        /**
+         * 0-based position of the record in the source
+         */
+        private final long index;
+
+        private final String message;
+    }
+
+    private long written;
+
+    private final List<Failure> failures = new ArrayList<>();
+}
@@ -0,0 +1,58 @@
+package org.utils;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A read-only window on another {@link CharSequence}, e.g. a sentence of a document text. No characters are copied
+ * until {@link #toString()} is called.
+ */
+@Getter
+public final class TextSlice implements CharSequence {
+
+    @NonNull
+    private final CharSequence source;
+
+    private final int start;
+
+    private final int end;
+
+    public TextSlice(@NonNull final CharSequence source, final int start, final int end) {
+        if (start < 0 || end < start || end > source.length()) {
+            throw new IndexOutOfBoundsException("Illegal slice [" + start + ", " + end + ") of length "
+                    + source.length());
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public TextSlice subSequence(final int from, final int to) {
+        if (from < 0 || to < from || to > end - start) {
+            throw new IndexOutOfBoundsException("Illegal slice [" + from + ", " + to + ") of length " + length());
+        }
+        return new TextSlice(source, start + from, start + to);
+    }
+
+    /**
+     * @return a copy of the characters
+     */
+    @Override
+    public String toString() {
+        return source.subSequence(start, end).toString();
+    }
+}
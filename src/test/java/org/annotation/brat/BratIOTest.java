@@ -1,15 +1,27 @@
 package org.annotation.brat;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 @Slf4j
 public class BratIOTest {
     final static String bratDir = "org/annotation/brat/brat_directory_examples";
@@ -38,4 +50,311 @@ public class BratIOTest {
 
         BratUtils.saveAnnotation(bratSentences,null,line_delimiter,10,outputDir,true);
     }
+
+    @Test
+    public void schemaStatisticsTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratIOTest.class.getClassLoader().getResource(bratDir).toURI());
+        List<BratDocument> documents = BratUtils.readBratDirectory(inputDir, line_delimiter);
+        File outputDir = new File("target/brat_schema_output");
+        FileUtils.deleteDirectory(outputDir);
+        outputDir.mkdirs();
+
+        BratSchemaStatistics.of(documents).writeAnnotationConfig(outputDir);
+        File config = new File(outputDir, BratUtils.ANNO_CONFIG_FILE);
+        String written = FileUtils.readFileToString(config, "utf8");
+        assertEquals(BratSchemaStatistics.read(config).toConfigString(), written);
+
+        //merging into the existing config keeps its types and adds the new ones
+        BratDocument added = BratUtils.readAnnotation("added", "Smith sold InBev", List.of(
+                "T1\tperson 0 5\tSmith",
+                "T2\tsale 6 10\tsold",
+                "T3\tbrand 11 16\tInBev",
+                "E1\tsale:T2 seller:T1 object:T3",
+                "A1\tSpeculation E1",
+                "R1\towner Arg1:T1 Arg2:T3"), null, d -> {
+        });
+        BratUtils.updateAnnotationConfig(List.of(added), outputDir);
+        String updated = FileUtils.readFileToString(config, "utf8");
+        List<BratDocument> all = new ArrayList<>(documents);
+        all.add(added);
+        assertEquals(BratSchemaStatistics.read(config).toConfigString(), BratSchemaStatistics.of(all).toConfigString());
+        //the other lines are kept as they are
+        assertTrue(updated.lines().collect(Collectors.toSet()).containsAll(written.lines()
+                .filter(l -> !l.startsWith("Speculation\t"))
+                .collect(Collectors.toList())));
+        assertTrue(updated.contains("sale\tobject?:brand, seller?:person"));
+        assertTrue(updated.contains("owner\tArg1:person, Arg2:brand"));
+        //the attribute existed already, the new event type is added to its arguments
+        assertTrue(updated.lines().anyMatch(l -> l.startsWith("Speculation\tArg:acquisition|")
+                && l.endsWith("|sale")));
+
+        //updating with the same documents again changes nothing
+        BratUtils.updateAnnotationConfig(List.of(added), outputDir);
+        assertEquals(FileUtils.readFileToString(config, "utf8"), updated);
+    }
+
+    @Test
+    public void schemaUpdateTest() throws IOException {
+        File outputDir = new File("target/brat_schema_update");
+        FileUtils.deleteDirectory(outputDir);
+        outputDir.mkdirs();
+        File config = new File(outputDir, BratUtils.ANNO_CONFIG_FILE);
+        final String handWritten = "# hand maintained\n"
+                + "[entities]\n\n"
+                + "Protein\n"
+                + "!Entity\n"
+                + "\tOrganism\n"
+                + "\tChemical\n\n"
+                + "[relations]\n\n"
+                + "<PROTEIN>=Protein|Chemical\n"
+                + "<OVERLAP>\tArg1:<ENTITY>, Arg2:<ENTITY>, <OVL-TYPE>:<ANY>\n"
+                + "Equiv\tArg1:Protein, Arg2:Protein, <REL-TYPE>:symmetric-transitive\n"
+                + "Part-of\tArg1:Protein, Arg2:Organism\n\n"
+                + "[events]\n\n"
+                + "Gene_expression\tTheme:Protein\n"
+                + "Binding\tTheme+:Protein, Site*:Chemical\n"
+                + "!Regulation\n"
+                + "\tPositive_regulation\tTheme:Protein|Binding, Cause?:Protein\n\n"
+                + "[attributes]\n\n"
+                + "Negation\tArg:<EVENT>\n"
+                + "Confidence\tArg:Binding, Value:L1|L2|L3\n";
+        FileUtils.write(config, handWritten, "utf8");
+
+        BratDocument document = BratUtils.readAnnotation("added", "p53 binds mice cells, it is phosphorylated", List.of(
+                "T1\tProtein 0 3\tp53",
+                "T2\tBinding 4 9\tbinds",
+                "T3\tOrganism 10 14\tmice",
+                "T4\tCell 15 20\tcells",
+                "T5\tPhosphorylation 28 42\tphosphorylated",
+                "E1\tBinding:T2 Theme:T1 Cause:T3",
+                "E2\tPhosphorylation:T5 Theme:T1",
+                "A1\tNegation E1",
+                "A2\tConfidence E2",
+                "R1\tEquiv Arg1:T1 Arg2:T1",
+                "R2\tPart-of Arg1:T1 Arg2:T4",
+                "R3\tLocated Arg1:T1 Arg2:T4"), null, d -> {
+        });
+        BratUtils.updateAnnotationConfig(List.of(document), outputDir);
+        assertEquals(FileUtils.readFileToString(config, "utf8"), "# hand maintained\n"
+                + "[entities]\n\n"
+                + "Protein\n"
+                + "!Entity\n"
+                + "\tOrganism\n"
+                + "\tChemical\n"
+                + "Cell\n\n"
+                + "[relations]\n\n"
+                + "<PROTEIN>=Protein|Chemical\n"
+                + "<OVERLAP>\tArg1:<ENTITY>, Arg2:<ENTITY>, <OVL-TYPE>:<ANY>\n"
+                + "Equiv\tArg1:Protein, Arg2:Protein, <REL-TYPE>:symmetric-transitive\n"
+                + "Part-of\tArg1:Protein, Arg2:Organism|Cell\n"
+                + "Located\tArg1:Protein, Arg2:Cell\n\n"
+                + "[events]\n\n"
+                + "Gene_expression\tTheme:Protein\n"
+                + "Binding\tTheme+:Protein, Site*:Chemical, Cause?:Organism\n"
+                + "!Regulation\n"
+                + "\tPositive_regulation\tTheme:Protein|Binding, Cause?:Protein\n"
+                + "Phosphorylation\tTheme?:Protein\n\n"
+                + "[attributes]\n\n"
+                + "Negation\tArg:<EVENT>\n"
+                + "Confidence\tArg:Binding|Phosphorylation, Value:L1|L2|L3\n");
+
+        //the statistics of the config skip macros, special keys and attribute values
+        BratSchemaStatistics read = BratSchemaStatistics.read(config);
+        assertTrue(read.toConfigString().contains("Equiv\tArg1:Protein, Arg2:Protein\n"));
+        assertTrue(read.toConfigString().contains("Confidence\tArg:Binding|Phosphorylation\n"));
+        assertTrue(read.toConfigString().contains("Binding\tCause?:Organism, Site?:Chemical, Theme?:Protein\n"));
+
+        //a second update changes nothing
+        String updated = FileUtils.readFileToString(config, "utf8");
+        BratUtils.updateAnnotationConfig(List.of(document), outputDir);
+        assertEquals(FileUtils.readFileToString(config, "utf8"), updated);
+    }
+
+    @Test
+    public void saveStreamTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratIOTest.class.getClassLoader().getResource(bratDir).toURI());
+        List<BratSentence> sentences = BratUtils.readBratDirectory(inputDir, line_delimiter).stream()
+                .flatMap(d -> d.getSentences().stream())
+                .collect(Collectors.toList());
+        File listDir = new File("target/brat_list_output");
+        FileUtils.deleteDirectory(listDir);
+        BratUtils.saveAnnotation(sentences, null, line_delimiter, 10, listDir, true);
+
+        File streamDir = new File("target/brat_stream_output");
+        FileUtils.deleteDirectory(streamDir);
+        //saving moves the annotations of the sentences, so stream a freshly read copy
+        BratSaveSummary summary = BratUtils.saveAnnotation(BratUtils.readBratDirectory(inputDir, line_delimiter)
+                        .stream()
+                        .flatMap(d -> d.getSentences().stream()),
+                null, line_delimiter, 10, streamDir, true);
+        assertEquals(summary.getSentences(), sentences.size());
+        assertEquals(summary.getDocuments(), (sentences.size() + 9) / 10);
+        assertEquals(streamDir.list().length, listDir.list().length);
+        for (File file : listDir.listFiles()) {
+            assertEquals(FileUtils.readFileToString(new File(streamDir, file.getName()), "utf8"),
+                    FileUtils.readFileToString(file, "utf8"));
+        }
+    }
+
+    @Test
+    public void loaderTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratIOTest.class.getClassLoader().getResource(bratDir).toURI());
+        final File nestedDir = new File("target/brat_nested/a/b");
+        FileUtils.deleteDirectory(new File("target/brat_nested"));
+        FileUtils.copyDirectory(inputDir, nestedDir);
+        FileUtils.write(new File("target/brat_nested/a/orphan.ann"), "T1\tdate 0 7\tJanuary\n", "utf8");
+
+        List<BratDocument> flat = BratUtils.readBratDirectory(inputDir, line_delimiter);
+
+        BratCorpusLoader loader = new BratCorpusLoader(line_delimiter);
+        loader.setParallelism(3);
+        List<String> ids = new ArrayList<>();
+        List<BratSkippedFile> skipped = loader.load(new File("target/brat_nested"), d -> ids.add(d.getId()));
+
+        assertEquals(ids, flat.stream().map(BratDocument::getId).collect(Collectors.toList()));
+        assertEquals(skipped.size(), 1);
+        assertEquals(skipped.get(0).getReason(), BratSkippedFile.Reason.MISSING_TEXT);
+        assertTrue(BratUtils.readBratDirectory(new File("target/brat_nested"), line_delimiter).isEmpty());
+    }
+
+    @Test
+    public void cacheTest() throws IOException, URISyntaxException {
+        final File inputDir = new File("target/brat_cached");
+        FileUtils.deleteDirectory(inputDir);
+        FileUtils.copyDirectory(new File(BratIOTest.class.getClassLoader().getResource(bratDir).toURI()), inputDir);
+        FileUtils.deleteDirectory(new File("target/brat_cache"));
+        BratParseCache cache = new BratParseCache(new File("target/brat_cache").toPath());
+
+        List<BratDocument> expected = BratUtils.readBratDirectory(inputDir, line_delimiter);
+        assertEquals(BratUtils.readBratDirectory(inputDir, line_delimiter, cache), expected);
+        assertEquals(cache.getMisses(), expected.size());
+        assertEquals(BratUtils.readBratDirectory(inputDir, line_delimiter, cache), expected);
+        assertEquals(cache.getHits(), expected.size());
+
+        //a new time with the same content is still a hit, a new content is not
+        File[] annoFiles = inputDir.listFiles((dir, name) -> name.endsWith(BratUtils.ANNO_FILE_EXTENSION));
+        assertTrue(annoFiles[0].setLastModified(annoFiles[0].lastModified() - 10_000));
+        FileUtils.write(annoFiles[1], "T1\tdate 0 1\tx\n", "utf8");
+        List<BratDocument> changed = BratUtils.readBratDirectory(inputDir, line_delimiter, cache);
+        assertEquals(changed, BratUtils.readBratDirectory(inputDir, line_delimiter));
+        assertEquals(cache.getHits(), 2L * expected.size() - 1);
+        assertEquals(cache.getMisses(), expected.size() + 1);
+
+        new BratParseCache(cache.getDirectory(), Long.MAX_VALUE, 2).evict();
+        assertEquals(cache.getDirectory().toFile().list((dir, name) -> name.endsWith(".entry")).length, 2);
+    }
+
+    @Test
+    public void cacheRacyTest() throws IOException {
+        final File inputDir = new File("target/brat_racy");
+        FileUtils.deleteDirectory(inputDir);
+        FileUtils.deleteDirectory(new File("target/brat_racy_cache"));
+        BratParseCache cache = new BratParseCache(new File("target/brat_racy_cache").toPath());
+        File textFile = new File(inputDir, "racy.txt");
+        File annoFile = new File(inputDir, "racy.ann");
+        FileUtils.write(textFile, "Smith", "utf8");
+        FileUtils.write(annoFile, "T1\tPerson 0 5\tSmith\n", "utf8");
+        final long modified = annoFile.lastModified();
+
+        BratDocument first = cache.read("racy", textFile.toPath(), annoFile.toPath(), "\n", new BratLabelPool());
+        assertEquals(first.getAllEntities().get(0).getType(), "Person");
+
+        //an edit of the same size within the timestamp granularity of the cached read
+        FileUtils.write(annoFile, "T1\tAnimal 0 5\tSmith\n", "utf8");
+        assertTrue(annoFile.setLastModified(modified));
+        BratDocument second = cache.read("racy", textFile.toPath(), annoFile.toPath(), "\n", new BratLabelPool());
+        assertEquals(second.getAllEntities().get(0).getType(), "Animal");
+        assertEquals(cache.getMisses(), 2);
+
+        //old enough files are trusted by size and time, and still hit after the entry is refreshed
+        final long old = System.currentTimeMillis() - 10 * BratParseCache.RACY_MILLIS;
+        assertTrue(textFile.setLastModified(old));
+        assertTrue(annoFile.setLastModified(old));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(cache.read("racy", textFile.toPath(), annoFile.toPath(), "\n", new BratLabelPool()),
+                    second);
+        }
+        assertEquals(cache.getHits(), 3);
+        assertEquals(cache.getMisses(), 2);
+    }
+
+    @Test
+    public void watcherTest() throws IOException, URISyntaxException, InterruptedException {
+        final File inputDir = new File("target/brat_watched");
+        FileUtils.deleteDirectory(inputDir);
+        FileUtils.copyDirectory(new File(BratIOTest.class.getClassLoader().getResource(bratDir).toURI()), inputDir);
+        List<BratDocument> expected = BratUtils.readBratDirectory(inputDir, line_delimiter);
+
+        BlockingQueue<BratCorpusChange> changes = new LinkedBlockingQueue<>();
+        try (BratCorpusWatcher watcher = new BratCorpusWatcher(inputDir, line_delimiter, 50)) {
+            watcher.addListener(changes::add);
+            watcher.start();
+            assertEquals(watcher.getDocuments().size(), expected.size());
+            assertEquals(watcher.getDocument(expected.get(0).getId()), expected.get(0));
+
+            FileUtils.write(new File(inputDir, "added.txt"), "a b", "utf8");
+            FileUtils.write(new File(inputDir, "added.ann"), "T1\tdate 0 1\ta\n", "utf8");
+            BratCorpusChange change = changes.poll(10, TimeUnit.SECONDS);
+            assertEquals(change.getKind(), BratCorpusChange.Kind.ADDED);
+            assertEquals(change.getDocumentId(), "added");
+            assertEquals(watcher.getDocument("added").getAllEntities().size(), 1);
+
+            FileUtils.write(new File(inputDir, "added.ann"), "T1\tdate 0 1\ta\nT2\tdate 2 3\tb\n", "utf8");
+            change = changes.poll(10, TimeUnit.SECONDS);
+            assertEquals(change.getKind(), BratCorpusChange.Kind.UPDATED);
+            assertEquals(change.getDocument().getAllEntities().size(), 2);
+
+            assertTrue(new File(inputDir, expected.get(0).getId() + BratUtils.ANNO_FILE_EXTENSION).delete());
+            change = changes.poll(10, TimeUnit.SECONDS);
+            assertEquals(change.getKind(), BratCorpusChange.Kind.REMOVED);
+            assertEquals(change.getPrevious(), expected.get(0));
+            assertEquals(watcher.getDocuments().size(), expected.size());
+        }
+    }
+
+    @Test
+    public void lazyCorpusTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratIOTest.class.getClassLoader().getResource(bratDir).toURI());
+        List<BratDocument> expected = BratUtils.readBratDirectory(inputDir, line_delimiter);
+        expected.sort(Comparator.comparing(BratDocument::getId));
+
+        //room for about one document
+        final long maxBytes = BratLazyCorpus.estimateSize(expected.get(0)) + 1;
+        try (BratLazyCorpus corpus = new BratLazyCorpus(inputDir, line_delimiter, maxBytes, 2)) {
+            assertEquals(corpus.size(), expected.size());
+            assertEquals(corpus.stream().collect(Collectors.toList()), expected);
+            BratLazyCorpus.Statistics statistics = corpus.getStatistics();
+            assertEquals(statistics.getMisses(), expected.size());
+            assertTrue(statistics.getEvictions() > 0);
+            assertTrue(statistics.getCachedBytes() <= maxBytes || statistics.getCachedDocuments() == 1);
+
+            String last = expected.get(expected.size() - 1).getId();
+            assertEquals(corpus.get(last), expected.get(expected.size() - 1));
+            assertEquals(corpus.getStatistics().getHits(), 1);
+            assertEquals(corpus.get("missing"), null);
+        }
+    }
+
+    @Test
+    public void lazyCorpusCloseTest() throws IOException {
+        File dir = new File("target/brat_lazy_close");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        final int documents = 200;
+        for (int i = 0; i < documents; i++) {
+            String id = String.format("doc%03d", i);
+            FileUtils.write(new File(dir, id + BratUtils.TEXT_FILE_EXTENSION), "Smith sold InBev\n", "utf8");
+            FileUtils.write(new File(dir, id + BratUtils.ANNO_FILE_EXTENSION), "T1\tperson 0 5\tSmith\n", "utf8");
+        }
+        try (BratLazyCorpus corpus = new BratLazyCorpus(dir, null, BratLazyCorpus.DEFAULT_MAX_BYTES, 100)) {
+            Iterator<BratDocument> iterator = corpus.iterator();
+            List<String> ids = new ArrayList<>();
+            ids.add(iterator.next().getId());
+            //reads are still queued, the iterator goes on without the read-ahead thread
+            corpus.close();
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> iterator.forEachRemaining(d -> ids.add(d.getId())));
+            assertEquals(ids, corpus.getIds());
+            assertEquals(corpus.stream().count(), documents);
+        }
+    }
 }
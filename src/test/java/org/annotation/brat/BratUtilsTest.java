@@ -1,19 +1,30 @@
 package org.annotation.brat;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.platform.commons.util.StringUtils;
 import org.utils.JsonUtils;
+import org.utils.TextSlice;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -84,4 +95,350 @@ public class BratUtilsTest {
     }
 
 
+    @Test
+    public void testParseDiagnostics() {
+        List<String> lines = List.of(
+                "E1\tacquisition:T1 buyer:T2 seller:T9",
+                "T1\tacquisition 0 3\tbuy",
+                "T2\torganization 4 9\tInBev",
+                "T3\torganization four 9\tInBev",
+                "R1\tREF Arg1:T2 Arg2:T1\t",
+                "A1\tNegation E1");
+        List<BratParseDiagnostic> diagnostics = new ArrayList<>();
+
+        BratDocument document = BratUtils.readAnnotation("test", "buy InBev", lines, null, diagnostics::add);
+        assertEquals(document.getEntities().size(), 2);
+        assertEquals(document.getEvents().size(), 1);
+        assertEquals(document.getEvents().get(0).getArgument().size(), 1);
+        assertEquals(document.getEvents().get(0).getAttribute(), Set.of("Negation"));
+        assertEquals(document.getRelations().size(), 1);
+
+        assertEquals(diagnostics.stream().map(BratParseDiagnostic::getReason).collect(Collectors.toList()),
+                List.of(BratParseDiagnostic.Reason.INVALID_OFFSET, BratParseDiagnostic.Reason.UNKNOWN_ARGUMENT));
+        assertEquals(diagnostics.get(0).getLineNumber(), 4);
+    }
+
+    private static final String DISTRIBUTION_TEXT = "InBev buys AmBev from Smith and Jones";
+
+    private static BratDocument distributionDocument() {
+        return BratUtils.readAnnotation("test", DISTRIBUTION_TEXT, List.of(
+                "T1\torganization 0 5\tInBev",
+                "T2\torganization 11 16\tAmBev",
+                "T3\tperson 22 27\tSmith",
+                "T4\tacquisition 6 10\tbuys",
+                "T5\tperson 32 37\tJones",
+                "T6\tphrase 14 24\tev from Sm",
+                "E1\tacquisition:T4 buyer:T1 seller:T2",
+                "R1\tpartner Arg1:T3 Arg2:T5",
+                "R2\tpartner Arg1:T1 Arg2:T3"), null, d -> {
+        });
+    }
+
+    private static List<BratSentence> sentences(final int... bounds) {
+        List<BratSentence> sentences = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i += 2) {
+            BratSentence sentence = new BratSentence();
+            sentence.setStartPosition(bounds[i]);
+            sentence.setEndPosition(bounds[i + 1]);
+            sentences.add(sentence);
+        }
+        return sentences;
+    }
+
+    /**
+     * the nested loops BratSentenceDistributor replaced: every sentence takes the annotations it contains
+     */
+    private static void distributeNested(final BratDocument document, final BratSentence sentence) {
+        final int start = sentence.getStartPosition(), end = sentence.getEndPosition();
+        document.getEntities().stream().filter(e -> e.getStartPosition() >= start && e.getEndPosition() <= end)
+                .forEach(sentence.getEntities()::add);
+        document.getEvents().stream().filter(e -> e.getStartPosition() >= start && e.getEndPosition() <= end)
+                .forEach(sentence.getEvents()::add);
+        document.getRelations().stream().filter(r -> r.getArguments().stream()
+                .allMatch(a -> a.getStartPosition() >= start && a.getEndPosition() <= end))
+                .forEach(sentence.getRelations()::add);
+        document.getEntities().removeAll(sentence.getEntities());
+        document.getRelations().removeAll(sentence.getRelations());
+        document.getEvents().removeAll(sentence.getEvents());
+    }
+
+    private static List<List<String>> ids(final BratDocument document, final List<BratSentence> sentences) {
+        List<List<String>> ids = new ArrayList<>();
+        for (BratSentence sentence : sentences) {
+            ids.add(ids(sentence.getEntities(), sentence.getEvents(), sentence.getRelations()));
+        }
+        ids.add(ids(document.getEntities(), document.getEvents(), document.getRelations()));
+        return ids;
+    }
+
+    private static List<String> ids(final List<BratEntity> entities, final List<BratEvent> events,
+                                    final List<BratBRelation> relations) {
+        List<String> ids = new ArrayList<>();
+        entities.forEach(e -> ids.add(e.getId()));
+        events.forEach(e -> ids.add(e.getId()));
+        relations.forEach(r -> ids.add(r.getId()));
+        return ids;
+    }
+
+    @Test
+    public void testDistributeAnnotation() {
+        List<int[]> layouts = List.of(
+                //sentences touching at 16, entities end and start on the boundary, T6 crosses it
+                new int[]{0, 16, 16, 37},
+                //not ordered by start
+                new int[]{16, 37, 0, 10, 10, 16},
+                //empty sentences at the boundaries
+                new int[]{0, 0, 0, 16, 16, 16, 16, 37, 37, 37},
+                //overlapping sentences fall back to the nested loops
+                new int[]{0, 20, 10, 37},
+                new int[]{10, 37, 0, 20},
+                new int[]{},
+                new int[]{0, 37});
+        for (int[] layout : layouts) {
+            BratDocument expectedDocument = distributionDocument();
+            List<BratSentence> expectedSentences = sentences(layout);
+            expectedSentences.forEach(s -> distributeNested(expectedDocument, s));
+
+            BratDocument document = distributionDocument();
+            List<BratSentence> sentences = sentences(layout);
+            BratUtils.distributeAnnotation(document, sentences);
+            assertEquals(ids(document, sentences), ids(expectedDocument, expectedSentences),
+                    Arrays.toString(layout));
+        }
+
+        //the single sentence overload
+        BratDocument expectedDocument = distributionDocument();
+        BratSentence expected = sentences(0, 16).get(0);
+        distributeNested(expectedDocument, expected);
+        BratDocument document = distributionDocument();
+        BratSentence sentence = sentences(0, 16).get(0);
+        BratUtils.distributeAnnotation(document, sentence);
+        assertEquals(ids(document, List.of(sentence)), ids(expectedDocument, List.of(expected)));
+        assertEquals(sentence.getEntities().size(), 3);
+    }
+
+    @Test
+    public void testTextView() throws IOException {
+        final String text = "InBev buys AmBev. Smith sells.";
+        BratSentence view = new BratSentence();
+        view.setTextView(new TextSlice(text, 0, 17));
+        view.setEndPosition(17);
+        view.setId("test_0");
+        BratSentence string = new BratSentence();
+        string.setText("InBev buys AmBev.");
+        string.setEndPosition(17);
+        string.setId("test_0");
+
+        assertTrue(view.getTextView() instanceof TextSlice);
+        assertEquals(view.getText(), "InBev buys AmBev.");
+        assertEquals(view, string);
+        assertEquals(view.hashCode(), string.hashCode());
+        assertEquals(view.toString(), string.toString());
+        assertEquals(JsonUtils.getJsonMapper().writeValueAsString(view),
+                JsonUtils.getJsonMapper().writeValueAsString(string));
+        assertEquals(JsonUtils.toString(List.of(view)), JsonUtils.toString(List.of(string)));
+
+        view.setText("InBev buys.");
+        assertTrue(view.getTextView() instanceof String);
+        assertEquals(view.getText(), "InBev buys.");
+
+        TextSlice slice = new TextSlice(text, 18, 30);
+        assertEquals(slice.toString(), "Smith sells.");
+        assertEquals(slice.subSequence(6, 11).toString(), "sells");
+        assertEquals(slice.subSequence(12, 12).length(), 0);
+        assertEquals(slice.charAt(11), '.');
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.subSequence(6, 13));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.subSequence(-1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.subSequence(3, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.charAt(12));
+        assertThrows(IndexOutOfBoundsException.class, () -> new TextSlice(text, 18, 31));
+    }
+
+    @Test
+    public void testMetrics() {
+        BratMetrics metrics = new BratMetrics();
+        BratAnnotationParser parser = new BratAnnotationParser(new BratLabelPool(), metrics);
+        List.of("T1\tacquisition 0 3\tbuy",
+                "T3\torganization four 9\tInBev",
+                "E1\tacquisition:T1 buyer:T2",
+                "#1\tAnnotatorNotes T1\tnote").forEach(parser::accept);
+        parser.finish();
+
+        BratMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(snapshot.getLines().get(BratMetrics.LineKind.ENTITY), 2L);
+        assertEquals(snapshot.getLines().get(BratMetrics.LineKind.EVENT), 1L);
+        assertEquals(snapshot.getLines().get(BratMetrics.LineKind.OTHER), 1L);
+        assertEquals(snapshot.getRejectCount(), 2);
+        assertEquals(snapshot.toMap().get("rejects.invalid_offset"), 1L);
+        assertEquals(snapshot.toMap().get("rejects.unknown_argument"), 1L);
+
+        metrics.reset();
+        assertEquals(metrics.snapshot().toMap().values().stream().mapToLong(Long::longValue).sum(), 0);
+    }
+
+    @Test
+    public void testLoaderMetrics() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratUtilsTest.class.getClassLoader()
+                .getResource("org/annotation/brat/brat_directory_examples").toURI());
+        BratMetrics metrics = new BratMetrics();
+        BratCorpusLoader loader = new BratCorpusLoader("\n-\n");
+        loader.setMetrics(metrics);
+        BratLoadResult result = loader.load(inputDir);
+
+        BratMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(snapshot.getDocuments(), result.getDocuments().size());
+        assertTrue(snapshot.getLines().get(BratMetrics.LineKind.ENTITY) > 0);
+        assertTrue(snapshot.getBytes().get(BratMetrics.Stage.READ) > 0);
+        assertTrue(snapshot.getNanos().get(BratMetrics.Stage.PARSE) > 0);
+        assertEquals(snapshot.getBytes().get(BratMetrics.Stage.WRITE).longValue(), 0);
+
+        File outputDir = new File("target/brat_metrics_output");
+        FileUtils.deleteDirectory(outputDir);
+        BratMetrics writeMetrics = new BratMetrics();
+        BratSaveSummary summary = BratUtils.saveAnnotation(result.getDocuments().stream()
+                .flatMap(d -> d.getSentences().stream()), null, "\n-\n", 10, outputDir, false, writeMetrics);
+        long written = 0;
+        for (File file : outputDir.listFiles()) {
+            written += file.length();
+        }
+        assertEquals(writeMetrics.snapshot().getBytes().get(BratMetrics.Stage.WRITE).longValue(), written);
+        assertEquals(outputDir.listFiles().length, summary.getDocuments() * 2);
+        assertTrue(writeMetrics.snapshot().getNanos().get(BratMetrics.Stage.WRITE) > 0);
+    }
+
+    @Test
+    public void testSentenceSplitters() throws IOException {
+        BratSentenceSplitter legacy = BratSentenceSplitter.of("\n");
+        assertEquals(legacy.split("a\n\nb").stream().map(BratSentence::getText).collect(Collectors.toList()),
+                List.of("a", "", "b"));
+        assertTrue(legacy.split("no delimiter").isEmpty());
+
+        BratSentenceSplitter delimiters = BratSentenceSplitter.delimiters("\n", "\n-\n", "\n\n");
+        List<BratSentence> sentences = delimiters.split("a\n-\nb\n\nc\nd");
+        assertEquals(sentences.stream().map(BratSentence::getText).collect(Collectors.toList()),
+                List.of("a", "b", "c", "d"));
+        assertEquals(sentences.get(1).getStartPosition(), 4);
+        assertEquals(delimiters.split("one").size(), 1);
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; large.length() < 200_000; i++) {
+            large.append("sentence ").append(i).append(i % 3 == 0 ? "\n-\n" : "\n");
+        }
+        List<BratSentence> streamed = new ArrayList<>();
+        delimiters.split(new StringReader(large.toString()), streamed::add);
+        assertEquals(streamed, delimiters.split(large.toString()));
+        assertEquals(streamed.get(streamed.size() - 1).getEndPosition(), large.length() - 1);
+
+        BratSentenceSplitter punctuation = BratSentenceSplitter.punctuation();
+        assertEquals(punctuation.split("Mr. Smith bought it, e.g. for 3.5 dollars. \"Why?\" she asked!\n\nDone")
+                        .stream().map(BratSentence::getText).collect(Collectors.toList()),
+                List.of("Mr. Smith bought it, e.g. for 3.5 dollars.", "\"Why?\"", "she asked!", "Done"));
+    }
+
+    @Test
+    public void testEventArguments() throws IOException {
+        List<String> lines = List.of(
+                "T1\tbinding 10 15\tbinds",
+                "T2\tprotein 0 5\tTRAF2",
+                "T3\tprotein 20 25\tCD40",
+                "E1\tbinding:T1 Theme:T2 Theme:T3",
+                "A1\tNegation E1");
+        BratDocument document = BratUtils.readAnnotation("test", "TRAF2 xxxx binds to CD40", lines, null,
+                d -> {
+                });
+        BratEvent event = document.getEvents().get(0);
+        assertEquals(event.getArgument().getAll("Theme").size(), 2);
+        assertEquals(event.toBratString(), "E1\tbinding:T1 Theme:T2 Theme:T3");
+        assertEquals(event.getStartPosition(), 0);
+        assertEquals(event.getEndPosition(), 25);
+        assertTrue(JsonUtils.getJsonMapper().writeValueAsString(event).contains("\"attribute\":[\"Negation\"]"));
+        JsonNode arguments = JsonUtils.getJsonMapper().valueToTree(event).get("argument");
+        assertEquals(arguments.size(), 2);
+        assertEquals(arguments.get("Theme").get("id").asText(), "T2");
+        assertEquals(arguments.get("Theme2").get("id").asText(), "T3");
+
+        //the order of the arguments does not matter for equality
+        BratEvent reordered = BratUtils.readAnnotation("test", "TRAF2 xxxx binds to CD40",
+                List.of(lines.get(0), lines.get(1), lines.get(2), "E1\tbinding:T1 Theme:T3 Theme:T2",
+                        lines.get(4)), null, d -> {
+                }).getEvents().get(0);
+        assertEquals(reordered.getArgument(), event.getArgument());
+        assertEquals(reordered.getArgument().hashCode(), event.getArgument().hashCode());
+        assertEquals(reordered, event);
+        BratEvent other = BratUtils.readAnnotation("test", "TRAF2 xxxx binds to CD40",
+                List.of(lines.get(0), lines.get(1), lines.get(2), "E1\tbinding:T1 Theme:T2 Theme:T2",
+                        lines.get(4)), null, d -> {
+                }).getEvents().get(0);
+        assertNotEquals(other.getArgument(), event.getArgument());
+
+        //the map view has the first entity of every role
+        BratEntity cd40 = document.getEntities().stream().filter(e -> e.getId().equals("T3")).findFirst().get();
+        event.getArgument().add("Site", cd40);
+        Map<String, BratEntity> map = event.getArgument().asMap();
+        assertEquals(map, Map.of("Theme", event.getArgument().getEntity(0), "Site", cd40));
+        assertEquals(new ArrayList<>(event.getArgument().keySet()), List.of("Theme", "Site"));
+        assertEquals(new ArrayList<>(event.getArgument().values()), List.of(event.getArgument().getEntity(0), cd40));
+        assertEquals(event.getArgument().entrySet(), map.entrySet());
+        assertTrue(event.getArgument().containsKey("Site"));
+        assertEquals(event.getArgument().getOrDefault("Cause", cd40), cd40);
+        assertThrows(UnsupportedOperationException.class, () -> map.put("Cause", cd40));
+        event.getArgument().remove("Site");
+        assertEquals(map.size(), 1);
+
+        event.getArgument().remove("Theme");
+        assertEquals(event.getEndPosition(), 15);
+        event.getTrigger().setEndPosition(16);
+        event.invalidateSpan();
+        assertEquals(event.getEndPosition(), 16);
+    }
+
+    @Test
+    public void testLabelPool() {
+        BratLabelPool labels = new BratLabelPool();
+        List<String> lines = List.of(
+                "T1\torganization 0 5\tInBev",
+                "T2\torganization 6 9\tAmB");
+        BratParseResult first = BratAnnotationParser.parse(lines, labels);
+        BratParseResult second = BratAnnotationParser.parse(lines, labels);
+
+        assertTrue(first.getEntities().get("T1").getType() == second.getEntities().get("T2").getType());
+        assertEquals(labels.size(), 1);
+        assertEquals(labels.getStatistics().getLookups(), 4);
+        assertEquals(labels.getStatistics().getHits(), 3);
+        assertTrue(labels.getStatistics().getSavedBytes() > 0);
+    }
+
+    @Test
+    public void testEmbedJson() throws IOException {
+        String textFile = "org/annotation/brat/acquisition1.txt";
+        String annoFile = "org/annotation/brat/acquisition1.ann";
+        BratDocument document = BratUtils.readAnnotation("test", textFile, annoFile);
+
+        JsonNode json = document.getEmbedJson();
+        assertEquals(json.get("text").asText(), document.getText());
+        assertEquals(json.get("entities").size() + json.get("triggers").size(), 32);
+        assertEquals(json.get("triggers").size(), 5);
+        assertEquals(json.get("events").size(), 5);
+        assertEquals(json.get("relations").size() + json.get("equivs").size(), 4);
+        assertEquals(json.get("attributes").size(), 2);
+
+        StringWriter writer = new StringWriter();
+        BratEmbedWriter.writeAll(List.of(document, document), writer);
+        JsonNode array = JsonUtils.getJsonMapper().readTree(writer.toString());
+        assertEquals(array.size(), 2);
+        assertEquals(array.get(1), json);
+    }
+
+    @Test
+    public void testEmbedJsonLines() throws IOException {
+        BratDocument document = BratUtils.readAnnotation("test", "org/annotation/brat/acquisition1.txt",
+                "org/annotation/brat/acquisition1.ann");
+        StringWriter single = new StringWriter();
+        BratEmbedWriter.write(document, single);
+
+        StringWriter lines = new StringWriter();
+        BratEmbedWriter.writeLines(List.of(document, document), lines);
+        assertEquals(lines.toString(), single + "\n" + single + "\n");
+    }
+
 }
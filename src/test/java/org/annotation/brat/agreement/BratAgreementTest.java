@@ -0,0 +1,82 @@
+package org.annotation.brat.agreement;
+
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BratAgreementTest {
+
+    private static final String TEXT = "InBev buys AmBev from Smith and Jones";
+
+    private static BratDocument document(final String... lines) {
+        return BratUtils.readAnnotation("test", TEXT, List.of(lines), null, d -> {
+        });
+    }
+
+    @Test
+    public void documentTest() {
+        BratDocument reference = document(
+                "T1\torganization 0 5\tInBev",
+                "T2\torganization 11 16\tAmBev",
+                "T3\tperson 22 27\tSmith",
+                "T4\tacquisition 6 10\tbuys",
+                "E1\tacquisition:T4 buyer:T1 seller:T2");
+        BratDocument candidate = document(
+                "T1\torganization 0 5\tInBev",
+                "T2\torganization 11 15\tAmBe",
+                "T3\tlocation 22 27\tSmith",
+                "T4\tperson 32 37\tJones",
+                "T5\tacquisition 6 10\tbuys",
+                "E1\tacquisition:T5 buyer:T1 seller:T2");
+
+        BratAgreementResult exact = new BratAgreement(MatchMode.EXACT).compare(reference, candidate);
+        BratTypeAgreement organization = exact.getTypes(AnnotationKind.ENTITY).get("organization");
+        assertEquals(organization.getTruePositives(), 1);
+        assertEquals(organization.getFalsePositives(), 1);
+        assertEquals(organization.getFalseNegatives(), 1);
+        assertEquals(organization.getF1(), 0.5);
+        assertEquals(exact.getTypes(AnnotationKind.ENTITY).get("person").getFalseNegatives(), 1);
+        assertEquals(exact.getTypes(AnnotationKind.ENTITY).get("person").getFalsePositives(), 1);
+        assertEquals(exact.getTypes(AnnotationKind.ENTITY).get("location").getFalsePositives(), 1);
+        //the seller span differs
+        assertEquals(exact.getTypes(AnnotationKind.EVENT).get("acquisition").getTruePositives(), 0);
+        assertEquals(exact.getDiffs().stream().map(BratAgreementDiff::getKind).sorted().collect(Collectors.toList()),
+                List.of(BratAgreementDiff.Kind.MISSING, BratAgreementDiff.Kind.SPURIOUS,
+                        BratAgreementDiff.Kind.SPURIOUS, BratAgreementDiff.Kind.TYPE_MISMATCH,
+                        BratAgreementDiff.Kind.ARGUMENT_MISMATCH));
+
+        BratAgreementResult overlap = new BratAgreement(MatchMode.OVERLAP).compare(reference, candidate);
+        assertEquals(overlap.getTypes(AnnotationKind.ENTITY).get("organization").getTruePositives(), 2);
+        assertEquals(overlap.getTypes(AnnotationKind.EVENT).get("acquisition").getTruePositives(), 1);
+        assertEquals(overlap.getUnits(AnnotationKind.ENTITY), 5);
+        assertTrue(overlap.getKappa(AnnotationKind.ENTITY) < 1);
+        assertTrue(overlap.getKappa(AnnotationKind.ENTITY) > exact.getKappa(AnnotationKind.ENTITY));
+    }
+
+    @Test
+    public void corpusTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratAgreementTest.class.getClassLoader()
+                .getResource("org/annotation/brat/brat_directory_examples").toURI());
+        List<BratDocument> reference = BratUtils.readBratDirectory(inputDir, "\n-\n");
+        List<BratDocument> candidate = BratUtils.readBratDirectory(inputDir, "\n-\n");
+        candidate.remove(0);
+
+        BratAgreementResult result = new BratAgreement(MatchMode.EXACT).compareCorpus(reference, candidate);
+        assertEquals(result.getDocuments(), reference.size() - 1);
+        assertEquals(result.getUnpairedDocuments(), List.of(reference.get(0).getId()));
+        assertTrue(result.getDiffs().isEmpty());
+        assertEquals(result.getTotal(AnnotationKind.ENTITY).getF1(), 1.0);
+        assertEquals(result.getKappa(AnnotationKind.ENTITY), 1.0);
+        assertEquals(result.getTotal(AnnotationKind.ENTITY).getTruePositives(), reference.stream().skip(1)
+                .mapToLong(d -> d.getAllEntities().size()).sum());
+    }
+}
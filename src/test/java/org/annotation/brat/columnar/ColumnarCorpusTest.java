@@ -0,0 +1,67 @@
+package org.annotation.brat.columnar;
+
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratUtils;
+import org.junit.jupiter.api.Test;
+import org.utils.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ColumnarCorpusTest {
+
+    @Test
+    public void roundTripTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(ColumnarCorpusTest.class.getClassLoader()
+                .getResource("org/annotation/brat/brat_directory_examples").toURI());
+        List<BratDocument> documents = BratUtils.readBratDirectory(inputDir, "\n-\n");
+        BratDocument undistributed = BratUtils.readAnnotation("acquisition1",
+                IOUtils.getPath("org/annotation/brat/acquisition1.txt"),
+                IOUtils.getPath("org/annotation/brat/acquisition1.ann"), null);
+        documents.add(undistributed);
+
+        ColumnarCorpus corpus = ColumnarCorpus.of(documents);
+        corpus.trim();
+        assertEquals(corpus.toDocuments(), documents);
+        assertEquals(corpus.getEntityCount(),
+                documents.stream().mapToInt(d -> d.getAllEntities().size()).sum());
+
+        final int last = corpus.getDocumentCount() - 1;
+        EntityView view = new EntityView(corpus);
+        for (BratEntity entity : undistributed.getAllEntities()) {
+            int row = corpus.getFirstEntity(last) + undistributed.getAllEntities().indexOf(entity);
+            assertEquals(view.moveTo(row).toEntity(), entity);
+            assertEquals(view.getDocument(), last);
+        }
+        EventView event = new EventView(corpus);
+        corpus.forEachEvent(last, e -> assertEquals(e.getArgumentCount(),
+                undistributed.getEvents().get(e.getRow() - corpus.getFirstEvent(last)).getArgument().size()));
+        assertEquals(event.moveTo(corpus.getFirstEvent(last)).getType(), undistributed.getEvents().get(0).getType());
+    }
+
+    @Test
+    public void addAfterTrimTest() {
+        BratDocument first = BratUtils.readAnnotation("first", "InBev buys AmBev.", List.of(
+                "T1\torganization 0 5\tInBev",
+                "T2\torganization 11 16\tAmBev"), null, d -> {
+        });
+        BratDocument second = BratUtils.readAnnotation("second", "Smith sells AmBev.", List.of(
+                "T1\tperson 0 5\tSmith",
+                "T2\torganization 12 17\tAmBev",
+                "R1\towner Arg1:T1 Arg2:T2"), null, d -> {
+        });
+        //no relations, events or attributes, so their columns are trimmed to empty arrays
+        ColumnarCorpus corpus = ColumnarCorpus.of(List.of(first));
+        corpus.trim();
+        assertEquals(corpus.add(second), 1);
+        corpus.trim();
+        assertEquals(corpus.add(first), 2);
+        assertEquals(corpus.toDocuments(), List.of(first, second, first));
+        assertEquals(corpus.getRelationCount(), 1);
+    }
+}
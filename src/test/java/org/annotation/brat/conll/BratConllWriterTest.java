@@ -0,0 +1,91 @@
+package org.annotation.brat.conll;
+
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratSentence;
+import org.annotation.brat.BratUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BratConllWriterTest {
+
+    private static final String TEXT = "Bank of New York buys AmBev.";
+
+    private static BratSentence sentence() {
+        BratDocument document = BratUtils.readAnnotation("test", TEXT,
+                List.of("T1\torganization 0 16\tBank of New York",
+                        "T2\tlocation 8 16\tNew York",
+                        "T3\tcity 8 11\tNew",
+                        "T4\torganization 22 27\tAmBev",
+                        "T5\tproduct 18 24\tbuys A"), null, d -> {
+                });
+        BratSentence sentence = new BratSentence();
+        sentence.setTextView(document.getText());
+        sentence.setEndPosition(TEXT.length());
+        sentence.getEntities().addAll(document.getEntities());
+        return sentence;
+    }
+
+    @Test
+    public void tokenizerTest() {
+        List<ConllToken> tokens = BratTokenizer.simple().tokenize(" New-York, 2020 ");
+        assertEquals(tokens.stream().map(ConllToken::getText).collect(Collectors.toList()),
+                List.of("New", "-", "York", ",", "2020"));
+        assertEquals(tokens.get(2).getStart(), 5);
+        assertEquals(tokens.get(2).getEnd(), 9);
+        assertEquals(BratTokenizer.whitespace().tokenize(" New-York, 2020 ").size(), 2);
+    }
+
+    @Test
+    public void policyTest() {
+        BratSentence sentence = sentence();
+        BratConllWriter outermost = new BratConllWriter(BratTokenizer.simple(), NestingPolicy.OUTERMOST);
+        //the product crosses the second organization and starts first
+        assertEquals(Arrays.asList(outermost.tag(sentence, outermost.tokenize(sentence))),
+                List.of("B-organization", "I-organization", "I-organization", "I-organization", "B-product",
+                        "I-product", "O"));
+        BratConllWriter innermost = new BratConllWriter(BratTokenizer.simple(), NestingPolicy.INNERMOST);
+        assertEquals(Arrays.asList(innermost.tag(sentence, innermost.tokenize(sentence))),
+                List.of("O", "O", "B-city", "O", "B-product", "I-product", "O"));
+        BratConllWriter longest = new BratConllWriter(BratTokenizer.simple(), NestingPolicy.LONGEST);
+        sentence.getEntities().removeIf(e -> e.getType().equals("product"));
+        sentence.getEntities().add(BratUtils.readAnnotation("test", TEXT, List.of("T6\tproduct 20 23\tys "),
+                null, d -> {
+                }).getEntities().get(0));
+        //the organization is longer than the crossing product
+        assertEquals(Arrays.asList(longest.tag(sentence, longest.tokenize(sentence))),
+                List.of("B-organization", "I-organization", "I-organization", "I-organization", "O",
+                        "B-organization", "O"));
+
+        longest.setOffsets(true);
+        assertEquals(longest.format(sentence).split("\n")[5], "AmBev\t22\t27\tB-organization");
+    }
+
+    @Test
+    public void writeTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratConllWriterTest.class.getClassLoader()
+                .getResource("org/annotation/brat/brat_directory_examples").toURI());
+        List<BratDocument> documents = BratUtils.readBratDirectory(inputDir, "\n-\n");
+        List<BratSentence> sentences = documents.stream().flatMap(d -> d.getSentences().stream())
+                .collect(Collectors.toList());
+
+        BratConllWriter writer = new BratConllWriter();
+        StringBuilder expected = new StringBuilder();
+        long nonEmpty = sentences.stream().filter(s -> writer.format(s, expected)).count();
+
+        writer.setParallelism(4);
+        writer.setBatchSize(1);
+        StringWriter out = new StringWriter();
+        assertEquals(writer.writeDocuments(documents, out), nonEmpty);
+        assertEquals(out.toString(), expected.toString());
+        assertEquals(out.toString().lines().filter(String::isEmpty).count(), nonEmpty);
+    }
+}
@@ -0,0 +1,115 @@
+package org.annotation.brat.index;
+
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratEntity;
+import org.annotation.brat.BratUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BratSpanIndexTest {
+
+    @Test
+    public void spanTreeTest() {
+        Random random = new Random(7);
+        List<int[]> spans = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(1000);
+            spans.add(new int[]{start, start + random.nextInt(40)});
+        }
+        SpanTree<int[]> tree = new SpanTree<>(spans, s -> s[0], s -> s[1]);
+        Comparator<int[]> order = Comparator.<int[]>comparingInt(s -> s[0]).thenComparingInt(s -> s[1]);
+
+        for (int q = 0; q < 200; q++) {
+            final int start = random.nextInt(1050);
+            final int end = start + random.nextInt(60);
+            assertEquals(tree.getOverlapping(start, end).stream().sorted(order).collect(Collectors.toList()),
+                    spans.stream().filter(s -> s[0] < end && s[1] > start).sorted(order)
+                            .collect(Collectors.toList()));
+            assertEquals(tree.getContained(start, end).stream().sorted(order).collect(Collectors.toList()),
+                    spans.stream().filter(s -> s[0] >= start && s[1] <= end).sorted(order)
+                            .collect(Collectors.toList()));
+            assertEquals(tree.getContaining(start, end).stream().sorted(order).collect(Collectors.toList()),
+                    spans.stream().filter(s -> s[0] <= start && s[1] >= end).sorted(order)
+                            .collect(Collectors.toList()));
+            int[] nearest = tree.getNearest(start, end);
+            int gap = spans.stream().mapToInt(s -> gap(s, start, end)).min().getAsInt();
+            assertEquals(gap(nearest, start, end), gap);
+        }
+    }
+
+    private static int gap(final int[] span, final int start, final int end) {
+        return Math.max(0, Math.max(span[0] - end, start - span[1]));
+    }
+
+    @Test
+    public void indexTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratSpanIndexTest.class.getClassLoader()
+                .getResource("org/annotation/brat/brat_directory_examples").toURI());
+        List<BratDocument> documents = BratUtils.readBratDirectory(inputDir, "\n-\n");
+        BratSpanIndex index = BratSpanIndex.of(documents);
+        assertEquals(index.size(), documents.size());
+
+        BratDocument document = documents.get(0);
+        List<BratEntity> organizations = document.getAllEntities().stream()
+                .filter(e -> "organization".equals(e.getType()))
+                .collect(Collectors.toList());
+        assertEquals(index.getOverlappingEntities(document.getId(), "organization", 0, Integer.MAX_VALUE).size(),
+                organizations.size());
+        assertEquals(index.getEntities("organization").count(), documents.stream()
+                .flatMap(d -> d.getAllEntities().stream())
+                .filter(e -> "organization".equals(e.getType()))
+                .count());
+        assertTrue(index.getDocumentIds("organization").contains(document.getId()));
+
+        index.add(new BratDocument(document.getId(), document.getText()));
+        assertTrue(index.getEntityTree(document.getId(), null).toList().isEmpty());
+        assertTrue(!index.getDocumentIds("organization").contains(document.getId()));
+        assertTrue(index.remove(document.getId()));
+        assertEquals(index.getDocumentIds(), documents.stream().skip(1).map(BratDocument::getId)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void concurrentTest() throws InterruptedException {
+        final String[] types = {"person", "organization", "location"};
+        BratSpanIndex index = new BratSpanIndex();
+        ExecutorService service = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 5000; i++) {
+            final Random random = new Random(i);
+            final String id = "d" + random.nextInt(20);
+            final String type = types[random.nextInt(types.length)];
+            service.execute(() -> {
+                if (random.nextInt(10) == 0) {
+                    index.remove(id);
+                } else {
+                    index.add(BratUtils.readAnnotation(id, "abc", List.of("T1\t" + type + " 0 3\tabc"), null,
+                            d -> {
+                            }));
+                }
+            });
+        }
+        service.shutdown();
+        assertTrue(service.awaitTermination(1, TimeUnit.MINUTES));
+
+        for (String type : types) {
+            assertEquals(index.getDocumentIds(type), index.getDocumentIds().stream()
+                    .filter(id -> index.getEntityTree(id, null).get(0).getType().equals(type))
+                    .collect(Collectors.toSet()));
+        }
+    }
+}
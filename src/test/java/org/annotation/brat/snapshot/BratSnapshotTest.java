@@ -0,0 +1,46 @@
+package org.annotation.brat.snapshot;
+
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratUtils;
+import org.junit.jupiter.api.Test;
+import org.utils.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BratSnapshotTest {
+
+    @Test
+    public void roundTripTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratSnapshotTest.class.getClassLoader()
+                .getResource("org/annotation/brat/brat_directory_examples").toURI());
+        List<BratDocument> documents = BratUtils.readBratDirectory(inputDir, "\n-\n");
+        documents.add(BratUtils.readAnnotation("acquisition1",
+                IOUtils.getPath("org/annotation/brat/acquisition1.txt"),
+                IOUtils.getPath("org/annotation/brat/acquisition1.ann"), null));
+
+        Path file = Paths.get("target/snapshot/corpus.snapshot");
+        Files.createDirectories(file.getParent());
+        BratSnapshot.write(documents, file);
+
+        assertEquals(BratSnapshot.read(file), documents);
+
+        try (MappedBratSnapshot snapshot = new MappedBratSnapshot(file, 4096)) {
+            assertEquals(snapshot.getDocumentCount(), documents.size());
+            assertTrue(snapshot.getSegmentCount() > 1);
+            for (int n = documents.size() - 1; n >= 0; n--) {
+                assertEquals(snapshot.get(n), documents.get(n));
+            }
+            assertEquals(snapshot.stream().collect(Collectors.toList()), documents);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.annotation.brat.stats;
+
+import org.annotation.brat.BratCorpusLoader;
+import org.annotation.brat.BratDocument;
+import org.annotation.brat.BratUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BratCorpusStatisticsTest {
+
+    @Test
+    public void documentTest() {
+        BratDocument document = BratUtils.readAnnotation("test", "InBev buys AmBev.\nSmith sells.",
+                List.of("T1\torganization 0 5\tInBev",
+                        "T2\torganization 11 16\tAmBev",
+                        "T3\tacquisition 6 10\tbuys",
+                        "T4\tperson 18 23\tSmith",
+                        "E1\tacquisition:T3 buyer:T1 seller:T2",
+                        "A1\tNegation E1",
+                        "R1\tpartner Arg1:T1 Arg2:T2"), "\n", d -> {
+                });
+        BratCorpusStatistics statistics = new BratCorpusStatistics();
+        statistics.add(document);
+
+        assertEquals(statistics.getDocuments(), 1);
+        assertEquals(statistics.getSentences(), 2);
+        assertEquals(statistics.getEntities(), 4);
+        assertEquals(statistics.getEvents(), 1);
+        assertEquals(statistics.getRelations(), 1);
+        assertEquals(statistics.getEntityTypes().toMap(), Map.of("organization", 2L, "acquisition", 1L, "person", 1L));
+        assertEquals(statistics.getArgumentRoles().toMap(), Map.of("buyer", 1L, "seller", 1L));
+        assertEquals(statistics.getEventAttributes().get("Negation"), 1);
+        assertEquals(statistics.getRelationTypes().get("partner"), 1);
+        assertEquals(statistics.getEntitySpanLengths().getBuckets(), Map.of("4-7", 4L));
+        assertEquals(statistics.getEntitySpanLengthsByType().get("acquisition").getMax(), 4);
+        assertEquals(statistics.getSentenceLengths().getCount(), 2);
+        assertEquals(statistics.getAnnotationsPerDocument().getMax(), 6);
+        assertEquals(statistics.getDocumentDensity().getMax(), Math.round(6 * 1000.0 / 30));
+    }
+
+    @Test
+    public void corpusTest() throws IOException, URISyntaxException {
+        final File inputDir = new File(BratCorpusStatisticsTest.class.getClassLoader()
+                .getResource("org/annotation/brat/brat_directory_examples").toURI());
+        List<BratDocument> documents = BratUtils.readBratDirectory(inputDir, "\n-\n");
+
+        BratCorpusStatistics sequential = new BratCorpusStatistics();
+        documents.forEach(sequential::add);
+        assertEquals(sequential.getDocuments(), documents.size());
+        assertEquals(sequential.getEntities(), documents.stream().mapToLong(d -> d.getAllEntities().size()).sum());
+        assertEquals(sequential.getEvents(), documents.stream().mapToLong(d -> d.getAllEvents().size()).sum());
+        assertTrue(sequential.getDensity() > 0);
+
+        //large enough to be split, in an order that differs from the sequential one
+        List<BratDocument> copies = new ArrayList<>();
+        for (int i = 0; i < BratCorpusStatistics.THRESHOLD; i++) {
+            copies.addAll(documents);
+        }
+        Collections.shuffle(copies);
+        BratCorpusStatistics parallel = BratCorpusStatistics.of(copies);
+        assertEquals(parallel.getDocuments(), sequential.getDocuments() * BratCorpusStatistics.THRESHOLD);
+        assertEquals(parallel.getEntityTypes().toMap().keySet(), sequential.getEntityTypes().toMap().keySet());
+        assertEquals(parallel.getEntitySpanLengths().getCount(),
+                sequential.getEntitySpanLengths().getCount() * BratCorpusStatistics.THRESHOLD);
+        assertEquals(parallel.getDensity(), sequential.getDensity(), 1e-9);
+
+        BratCorpusStatistics streamed = BratCorpusStatistics.read(inputDir, new BratCorpusLoader("\n-\n"));
+        assertEquals(json(streamed), json(sequential));
+    }
+
+    private static String json(final BratCorpusStatistics statistics) throws IOException {
+        StringWriter writer = new StringWriter();
+        statistics.write(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package org.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IOUtilsTest {
+
+    private static List<String> lines(final CharSequence chars) {
+        List<String> lines = new ArrayList<>();
+        IOUtils.forEachLine(chars, line -> lines.add(line.toString()));
+        return lines;
+    }
+
+    private static List<String> readLines(final String text) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new StringReader(text));
+        for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    @Test
+    public void testForEachLine() throws IOException {
+        assertEquals(lines("a\rb\r\nc\n\nd"), List.of("a", "b", "c", "", "d"));
+        assertEquals(lines("a\n"), List.of("a"));
+        assertEquals(lines("a\r\n"), List.of("a"));
+        assertEquals(lines("a\r"), List.of("a"));
+        assertEquals(lines("\r\n\r\n"), List.of("", ""));
+        assertEquals(lines(""), List.of());
+        for (String text : List.of("a\rb\r\nc\n\nd", "a\n", "a\r\n", "a\r", "\r\n\r\n", "\n\r", "x\r\r\ny")) {
+            assertEquals(lines(text), readLines(text));
+        }
+    }
+
+    @Test
+    public void testReadChars() throws IOException {
+        Path directory = Files.createDirectories(Paths.get("target/io_utils"));
+
+        Path small = directory.resolve("small.txt");
+        Files.write(small, new byte[]{'a', (byte) 0xFF, 'b', '\r', '\n', 'c'});
+        assertEquals(IOUtils.readString(small, StandardCharsets.UTF_8), "a\uFFFDb\r\nc");
+        assertEquals(IOUtils.readChars(small, StandardCharsets.UTF_8, null).toString(), "a\uFFFDb\r\nc");
+        assertEquals(lines(IOUtils.readChars(small, StandardCharsets.UTF_8, null)), List.of("a\uFFFDb", "c"));
+
+        //memory mapped, with multi byte characters and a malformed byte at the end
+        StringBuilder expected = new StringBuilder();
+        while (expected.length() < IOUtils.MAPPED_THRESHOLD) {
+            expected.append("Gr\u00f6\u00dfe ").append(expected.length()).append("\r\n");
+        }
+        expected.append("last");
+        Path large = directory.resolve("large.txt");
+        byte[] encoded = expected.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[encoded.length + 1];
+        System.arraycopy(encoded, 0, bytes, 0, encoded.length);
+        bytes[encoded.length] = (byte) 0xC3;
+        Files.write(large, bytes);
+        assertTrue(Files.size(large) >= IOUtils.MAPPED_THRESHOLD);
+        expected.append('\uFFFD');
+
+        assertEquals(IOUtils.readString(large, StandardCharsets.UTF_8), expected.toString());
+        CharBuffer reuse = CharBuffer.allocate(bytes.length);
+        CharBuffer chars = IOUtils.readChars(large, StandardCharsets.UTF_8, reuse);
+        assertTrue(chars == reuse);
+        assertEquals(chars.toString(), expected.toString());
+        assertEquals(lines(chars), readLines(expected.toString()));
+    }
+}
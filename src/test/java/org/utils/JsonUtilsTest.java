@@ -0,0 +1,104 @@
+package org.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class ...
+ */
+
+public class JsonUtilsTest {
+
+    private static final String LINES = "{\"id\":1}\n\n{\"id\":2\n{\"id\":3}\n";
+
+    @Test
+    public void testReadStream() throws IOException {
+        try (Stream<Map> stream = JsonUtils.readStream(new StringReader(LINES), Map.class,
+                JsonUtils.ErrorPolicy.SKIP)) {
+            assertEquals(stream.map(m -> m.get("id")).collect(Collectors.toList()), List.of(1, 3));
+        }
+
+        AtomicInteger errors = new AtomicInteger();
+        try (Stream<Map> stream = JsonUtils.readStream(new StringReader(LINES), Map.class,
+                e -> errors.incrementAndGet())) {
+            assertEquals(stream.count(), 2);
+        }
+        assertEquals(errors.get(), 1);
+
+        try (Stream<Map> stream = JsonUtils.readStream(new StringReader(LINES), Map.class,
+                JsonUtils.ErrorPolicy.FAIL)) {
+            assertThrows(UncheckedIOException.class, stream::count);
+        }
+    }
+
+    @Test
+    public void testIterate() throws IOException {
+        try (JsonLineIterator<Map> it = JsonUtils.iterate(new StringReader(LINES), Map.class,
+                JsonUtils.ErrorPolicy.COLLECT)) {
+            assertEquals(it.next().get("id"), 1);
+            assertEquals(it.next().get("id"), 3);
+            assertFalse(it.hasNext());
+            assertEquals(it.getErrors().size(), 1);
+            assertEquals(it.getErrors().get(0).getLineNumber(), 3);
+        }
+    }
+
+    @Test
+    public void testNullLines() throws IOException {
+        try (JsonLineIterator<Map> it = JsonUtils.iterate(new StringReader("{\"a\":1}\nnull\n{\"b\":2}\nnull\n"),
+                Map.class, JsonUtils.ErrorPolicy.FAIL)) {
+            List<Map> values = new ArrayList<>();
+            it.forEachRemaining(values::add);
+            assertEquals(values, Arrays.asList(Map.of("a", 1), null, Map.of("b", 2), null));
+            assertFalse(it.hasNext());
+            assertThrows(NoSuchElementException.class, it::next);
+        }
+
+        try (JsonLineIterator<Map> it = JsonUtils.iterate(new StringReader("null\n"), Map.class,
+                JsonUtils.ErrorPolicy.FAIL)) {
+            assertTrue(it.hasNext());
+            assertTrue(it.hasNext());
+            assertNull(it.next());
+            assertFalse(it.hasNext());
+        }
+    }
+
+    @Test
+    public void testWriteLines() throws IOException {
+        File file = new File("target/json_utils/records.jsons.gz");
+        List<Object> records = List.of(Map.of("id", 1), new Broken(), Map.of("id", 3));
+
+        JsonWriteResult result = JsonUtils.writeLines(file, records.iterator(), true);
+        assertEquals(result.getWritten(), 2);
+        assertEquals(result.getFailures().size(), 1);
+        assertEquals(result.getFailures().get(0).getIndex(), 1);
+
+        try (Stream<Map> stream = JsonUtils.readStream(file, Map.class, JsonUtils.ErrorPolicy.FAIL)) {
+            assertEquals(stream.map(m -> m.get("id")).collect(Collectors.toList()), List.of(1, 3));
+        }
+    }
+
+    public static class Broken {
+        public String getValue() {
+            throw new IllegalStateException("broken");
+        }
+    }
+}